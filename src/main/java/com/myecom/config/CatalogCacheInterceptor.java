@@ -0,0 +1,56 @@
+package com.myecom.config;
+
+import com.myecom.service.cache.CatalogVersion;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * GET condizionali sulle letture del catalogo.
+ *
+ * Prima di arrivare al controller confronta If-None-Match con l'ETag della generazione
+ * corrente del catalogo: se coincide risponde 304 e la richiesta finisce qui
+ * (niente service, niente query, niente JSON). Altrimenti aggiunge ETag e Cache-Control
+ * alla risposta, così anche un reverse proxy può servire le richieste ripetute.
+ *
+ * Le risposte con i prodotti riportano lo stock, quindi il loro ETag cambia anche a ogni vendita
+ * (CatalogVersion.stockEtag); quelle delle categorie solo quando cambia il catalogo.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogCacheInterceptor implements HandlerInterceptor {
+
+    private static final String PRODUCTS_PATH = "/api/products";
+
+    private final CatalogVersion catalogVersion;
+
+    @Value("${catalog.http-cache.max-age:30s}")
+    private Duration maxAge;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(maxAge).cachePublic().mustRevalidate().getHeaderValue());
+
+        // Imposta anche l'header ETag; se il client ha già questa versione la risposta diventa 304
+        return !new ServletWebRequest(request, response).checkNotModified(etag(request));
+    }
+
+    private String etag(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.startsWith(PRODUCTS_PATH) ? catalogVersion.stockEtag() : catalogVersion.etag();
+    }
+}
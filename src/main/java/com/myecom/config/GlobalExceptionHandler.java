@@ -2,6 +2,9 @@ package com.myecom.config;
 
 import com.myecom.dto.common.ApiResponse;
 import com.myecom.exception.BusinessException;
+import com.myecom.exception.TooManyRequestsException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -27,6 +30,16 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(e.getMessage()));
     }
 
+    /**
+     * Gestisce le richieste rifiutate per sovraccarico (es. coda ordini piena)
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiResponse<Void>> handleTooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.error(e.getMessage()));
+    }
+
     /**
      * Gestisce errori di validazione dei parametri
      */
@@ -0,0 +1,27 @@
+package com.myecom.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configurazione Spring MVC: interceptor applicati alle API.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CatalogCacheInterceptor catalogCacheInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Letture del catalogo che dipendono solo dalle generazioni del catalogo e dello stock.
+        // Esclusi: classifiche e suggerimenti (cambiano con vendite e carrelli anche senza modifiche
+        // al catalogo), export in streaming e feed delle modifiche (ha già il suo watermark)
+        registry.addInterceptor(catalogCacheInterceptor)
+                .addPathPatterns("/api/products", "/api/products/**", "/api/categories", "/api/categories/**")
+                .excludePathPatterns("/api/products/most-carted", "/api/products/best-sellers",
+                        "/api/products/suggest", "/api/products/export", "/api/products/changes");
+    }
+}
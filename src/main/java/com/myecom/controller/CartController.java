@@ -1,5 +1,6 @@
 package com.myecom.controller;
 
+import com.myecom.dto.cart.CartBatchRequest;
 import com.myecom.dto.cart.CartItemRequest;
 import com.myecom.dto.cart.CartResponse;
 import com.myecom.service.CartService;
@@ -40,6 +41,25 @@ public class CartController {
         return cartService.addToCart(userId, request);
     }
 
+    /**
+     * Applica più modifiche al carrello in una sola richiesta (in ordine, tutte o nessuna)
+     *
+     * POST http://localhost:8080/api/cart/1/batch
+     *
+     * Body:
+     * {
+     *   "operations": [
+     *     { "type": "ADD", "productId": 1, "quantity": 2 },
+     *     { "type": "SET", "productId": 2, "quantity": 5 },
+     *     { "type": "REMOVE", "productId": 3 }
+     *   ]
+     * }
+     */
+    @PostMapping("/{userId}/batch")
+    public CartResponse applyBatch(@PathVariable Long userId, @Valid @RequestBody CartBatchRequest request) {
+        return cartService.applyBatch(userId, request);
+    }
+
     /**
      * Rimuovi prodotto dal carrello
      *
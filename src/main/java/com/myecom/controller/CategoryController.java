@@ -1,11 +1,13 @@
 package com.myecom.controller;
 
+import com.myecom.dto.product.CategoryProductCount;
 import com.myecom.dto.product.CategoryRequest;
 import com.myecom.dto.product.CategoryResponse;
 import com.myecom.service.CategoryService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -57,11 +59,13 @@ public class CategoryController {
      * GET http://localhost:8090/api/categories
      *
      * Questo endpoint è pubblico e mostra solo categorie attive.
+     * Il corpo è il JSON già pronto della fotografia in memoria.
      */
     @GetMapping
-    public ResponseEntity<List<CategoryResponse>> getActiveCategories() {
-        List<CategoryResponse> categories = categoryService.getActiveCategories();
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<byte[]> getActiveCategories() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(categoryService.getActiveCategoriesJson());
     }
 
     /**
@@ -77,6 +81,16 @@ public class CategoryController {
         return ResponseEntity.ok(categories);
     }
 
+    /**
+     * Categorie con il numero di prodotti attivi (menu di navigazione, statistiche admin).
+     *
+     * GET http://localhost:8090/api/categories/product-counts
+     */
+    @GetMapping("/product-counts")
+    public ResponseEntity<List<CategoryProductCount>> getProductCounts() {
+        return ResponseEntity.ok(categoryService.getProductCounts());
+    }
+
     /**
      * Recupera una categoria specifica per ID.
      *
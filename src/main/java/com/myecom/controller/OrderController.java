@@ -1,12 +1,16 @@
 package com.myecom.controller;
 
 import com.myecom.dto.order.CreateOrderRequest;
+import com.myecom.dto.order.OrderIntakeResponse;
 import com.myecom.dto.order.OrderResponse;
 import com.myecom.service.OrderService;
+import com.myecom.service.intake.OrderIntake;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +20,7 @@ import java.util.Optional;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderIntake orderIntake;
 
     /**
      * Crea nuovo ordine dal carrello dell'utente
@@ -27,10 +32,19 @@ public class OrderController {
      *   "shippingAddress": "Via Roma 1, Milano 20100",
      *   "notes": "Consegnare dopo le 18:00"
      * }
+     *
+     * Con order.intake.async=true risponde 202 con il tracking id (stato su GET /api/orders/intake/{trackingId})
+     * e 429 se la coda degli ordini è piena.
      */
     @PostMapping("/{userId}")
-    public OrderResponse createOrder(@PathVariable Long userId, @Valid @RequestBody CreateOrderRequest request) {
-        return orderService.createOrder(userId, request);
+    public ResponseEntity<?> createOrder(@PathVariable Long userId, @Valid @RequestBody CreateOrderRequest request) {
+        if (orderIntake.isEnabled()) {
+            OrderIntakeResponse intake = orderIntake.submit(userId, request);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/orders/intake/" + intake.getTrackingId()))
+                    .body(intake);
+        }
+        return ResponseEntity.ok(orderService.createOrder(userId, request));
     }
 
     /**
@@ -52,4 +66,14 @@ public class OrderController {
     public Optional<OrderResponse> getOrder(@PathVariable Long orderId) {
         return orderService.findById(orderId);
     }
-}
\ No newline at end of file
+
+    /**
+     * Stato di un ordine accettato in modalità asincrona (404 se sconosciuto o scaduto)
+     *
+     * GET http://localhost:8080/api/orders/intake/3f2b8c1e-... (tracking id restituito dal POST)
+     */
+    @GetMapping("/intake/{trackingId}")
+    public ResponseEntity<OrderIntakeResponse> getIntakeStatus(@PathVariable String trackingId) {
+        return ResponseEntity.of(orderIntake.getStatus(trackingId));
+    }
+}
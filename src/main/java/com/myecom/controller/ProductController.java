@@ -1,14 +1,27 @@
 package com.myecom.controller;
 
+import com.myecom.dto.product.CatalogChangesResponse;
 import com.myecom.dto.product.PageResponse;
+import com.myecom.dto.product.ProductFilterResponse;
+import com.myecom.dto.product.ProductImportResponse;
 import com.myecom.dto.product.ProductRequest;
 import com.myecom.dto.product.ProductResponse;
+import com.myecom.dto.product.ProductSuggestionResponse;
+import com.myecom.service.CatalogChangesService;
+import com.myecom.service.ProductExportService;
+import com.myecom.service.ProductImportService;
 import com.myecom.service.ProductService;
+import com.myecom.service.search.ProductFilter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -16,18 +29,32 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class ProductController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final CatalogChangesService catalogChangesService;
 
     /**
      * Lista prodotti con paginazione
      *
      * GET http://localhost:8080/api/products
      * GET http://localhost:8080/api/products?page=0&size=10
+     *
+     * Modalità cursore (keyset, senza COUNT): passare "cursor" vuoto per la prima pagina,
+     * poi il "nextCursor" ricevuto nella risposta (size massimo 100)
+     * GET http://localhost:8080/api/products?cursor=&size=10
+     * GET http://localhost:8080/api/products?cursor=Y3wyMDI0LTAx...&size=10
      */
     @GetMapping
     public PageResponse<ProductResponse> getProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            return productService.getProductsAfter(cursor, size);
+        }
         return productService.getProducts(page, size);
     }
 
@@ -43,20 +70,101 @@ public class ProductController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Prodotti attivi di una categoria con paginazione
+     *
+     * GET http://localhost:8080/api/products/category/1
+     * GET http://localhost:8080/api/products/category/1?page=0&size=10
+     */
+    @GetMapping("/category/{categoryId}")
+    public PageResponse<ProductResponse> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return productService.getProductsByCategory(categoryId, page, size);
+    }
+
     /**
      * Ricerca prodotti per nome/descrizione
      *
      * GET http://localhost:8080/api/products/search?q=laptop
      * GET http://localhost:8080/api/products/search?q=laptop&page=0&size=10
+     *
+     * Modalità cursore: come per la lista prodotti
+     * GET http://localhost:8080/api/products/search?q=laptop&cursor=&size=10
      */
     @GetMapping("/search")
     public PageResponse<ProductResponse> searchProducts(
             @RequestParam String q,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            return productService.searchProductsAfter(q, cursor, size);
+        }
         return productService.searchProducts(q, page, size);
     }
 
+    /**
+     * Filtri combinabili con conteggi per faccetta.
+     * Valori ripetuti dello stesso parametro sono in OR, parametri diversi in AND.
+     * Fasce di prezzo: 0-25, 25-50, 50-100, 100-250, 250-500, 500-1000, 1000+
+     *
+     * GET http://localhost:8080/api/products/filter?brand=Dell&brand=Apple
+     * GET http://localhost:8080/api/products/filter?categoryId=1&priceBand=500-1000&inStock=true&page=0&size=10
+     */
+    @GetMapping("/filter")
+    public ProductFilterResponse filterProducts(
+            @RequestParam(required = false) List<String> brand,
+            @RequestParam(required = false) List<Long> categoryId,
+            @RequestParam(required = false) List<String> priceBand,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        ProductFilter filter = ProductFilter.builder()
+                .brands(brand)
+                .categoryIds(categoryId)
+                .priceBands(priceBand)
+                .inStock(inStock)
+                .build();
+        return productService.filterProducts(filter, page, size);
+    }
+
+    /**
+     * Autocompletamento su nomi prodotto e marche, dal più venduto
+     *
+     * GET http://localhost:8080/api/products/suggest?prefix=lap
+     * GET http://localhost:8080/api/products/suggest?prefix=dell%20x&limit=5
+     */
+    @GetMapping("/suggest")
+    public List<ProductSuggestionResponse> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return productService.suggest(prefix, limit);
+    }
+
+    /**
+     * Prodotti più venduti
+     *
+     * GET http://localhost:8080/api/products/best-sellers
+     * GET http://localhost:8080/api/products/best-sellers?limit=5
+     */
+    @GetMapping("/best-sellers")
+    public List<ProductResponse> getBestSellers(@RequestParam(defaultValue = "10") int limit) {
+        return productService.getBestSellers(limit);
+    }
+
+    /**
+     * Prodotti più aggiunti ai carrelli
+     *
+     * GET http://localhost:8080/api/products/most-carted
+     * GET http://localhost:8080/api/products/most-carted?limit=5
+     */
+    @GetMapping("/most-carted")
+    public List<ProductResponse> getMostCarted(@RequestParam(defaultValue = "10") int limit) {
+        return productService.getMostCarted(limit);
+    }
+
     /**
      * Crea nuovo prodotto (admin)
      *
@@ -78,4 +186,66 @@ public class ProductController {
     public ProductResponse createProduct(@Valid @RequestBody ProductRequest request) {
         return productService.createProduct(request);
     }
+
+    /**
+     * Modifiche al catalogo dopo il watermark (prodotti e categorie, disattivazioni incluse).
+     * Senza "since" restituisce tutto dall'inizio; ripetere con il watermark ricevuto finché hasMore = true
+     *
+     * GET http://localhost:8080/api/products/changes
+     * GET http://localhost:8080/api/products/changes?since=dzIwMjQtMDEt...&limit=200
+     */
+    @GetMapping("/changes")
+    public CatalogChangesResponse getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "500") int limit) {
+        return catalogChangesService.getChanges(since, limit);
+    }
+
+    /**
+     * Export di tutto il catalogo attivo in NDJSON, scritto in streaming (memoria costante)
+     *
+     * GET http://localhost:8080/api/products/export
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = productExportService::exportActiveProducts;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.ndjson\"")
+                .body(body);
+    }
+
+    /**
+     * Import massivo (admin): il corpo viene letto in streaming, riga per riga
+     *
+     * POST http://localhost:8080/api/products/import
+     * Content-Type: application/x-ndjson
+     * {"name":"iPhone 15","price":1299.99,"stockQuantity":50,"brand":"Apple","categoryId":1}
+     * {"name":"Galaxy S24","price":999.99,"stockQuantity":30,"brand":"Samsung","categoryId":1}
+     *
+     * Content-Type: text/csv
+     * name,description,price,stockQuantity,imageUrl,brand,categoryId,active
+     * "iPhone 15","Latest iPhone",1299.99,50,,Apple,1,true
+     */
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ProductImportResponse importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        ProductImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(TEXT_CSV)
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        return productImportService.importProducts(body, format);
+    }
+
+    /**
+     * Aggiorna un prodotto esistente (admin)
+     *
+     * PUT http://localhost:8080/api/products/1
+     *
+     * Body: come per la creazione. Con "active": false il prodotto
+     * esce dal catalogo pubblico e dalla ricerca.
+     */
+    @PutMapping("/{id}")
+    public ProductResponse updateProduct(@PathVariable Long id, @Valid @RequestBody ProductRequest request) {
+        return productService.updateProduct(id, request);
+    }
 }
\ No newline at end of file
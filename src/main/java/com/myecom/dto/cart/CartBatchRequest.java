@@ -0,0 +1,23 @@
+package com.myecom.dto.cart;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// DTO per applicare più modifiche al carrello in una sola richiesta (applicate in ordine)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchRequest {
+
+    @NotEmpty(message = "Almeno un'operazione è obbligatoria")
+    @Size(max = 200, message = "Massimo 200 operazioni per richiesta")
+    private List<@Valid CartOperationRequest> operations;
+}
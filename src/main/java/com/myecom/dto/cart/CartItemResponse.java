@@ -1,12 +1,11 @@
 package com.myecom.dto.cart;
 
+import com.myecom.model.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 // DTO per articolo nel carrello
 @Data
 @Builder
@@ -17,9 +16,9 @@ public class CartItemResponse {
     private Long id;
     private Long productId;
     private String productName;
-    private BigDecimal unitPrice;
+    private Money unitPrice;
     private String productImageUrl;
     private Integer quantity;
-    private BigDecimal totalPrice;
+    private Money totalPrice;
     private boolean productInStock;
 }
@@ -0,0 +1,31 @@
+package com.myecom.dto.cart;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// DTO per una singola modifica del carrello dentro un batch
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperationRequest {
+
+    public enum Type {
+        ADD,    // Aggiunge quantity pezzi
+        REMOVE, // Toglie il prodotto (quantity ignorata)
+        SET     // Imposta la quantità (0 = toglie il prodotto)
+    }
+
+    @NotNull(message = "Tipo operazione è obbligatorio")
+    private Type type;
+
+    @NotNull(message = "ID prodotto è obbligatorio")
+    private Long productId;
+
+    @Min(value = 0, message = "Quantità non può essere negativa")
+    private Integer quantity;
+}
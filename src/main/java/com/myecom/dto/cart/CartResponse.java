@@ -1,11 +1,11 @@
 package com.myecom.dto.cart;
 
+import com.myecom.model.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 // DTO per risposta carrello
@@ -17,7 +17,7 @@ public class CartResponse {
 
     private Long id;
     private List<CartItemResponse> items;
-    private BigDecimal totalAmount;
+    private Money totalAmount;
     private int totalItems;
     private String updatedAt;
 }
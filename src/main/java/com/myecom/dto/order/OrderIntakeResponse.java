@@ -0,0 +1,30 @@
+package com.myecom.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// DTO per lo stato di un ordine accettato in modalità asincrona (order.intake.async=true)
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIntakeResponse {
+
+    public enum Status {
+        QUEUED,      // In coda, non ancora preso da un worker
+        PROCESSING,  // Creazione dell'ordine in corso
+        COMPLETED,   // Ordine creato: vedi order
+        FAILED       // Ordine rifiutato: vedi error
+    }
+
+    private String trackingId;
+    private Long userId;
+    private Status status;
+    private String acceptedAt;
+
+    // Valorizzati solo a elaborazione finita
+    private OrderResponse order;
+    private String error;
+}
@@ -1,12 +1,11 @@
 package com.myecom.dto.order;
 
+import com.myecom.model.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 // DTO per articolo dell'ordine
 @Data
 @Builder
@@ -18,6 +17,6 @@ public class OrderItemResponse {
     private Long productId;
     private String productName;
     private Integer quantity;
-    private BigDecimal unitPrice;
-    private BigDecimal totalPrice;
+    private Money unitPrice;
+    private Money totalPrice;
 }
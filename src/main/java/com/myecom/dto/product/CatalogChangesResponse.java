@@ -0,0 +1,26 @@
+package com.myecom.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// DTO per il feed delle modifiche al catalogo (sincronizzazione incrementale)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChangesResponse {
+
+    // Prodotti e categorie modificati dopo il watermark, disattivati inclusi (active = false)
+    private List<ProductResponse> products;
+    private List<CategoryResponse> categories;
+
+    // Da passare come ?since= alla richiesta successiva
+    private String watermark;
+
+    // True se ci sono altre modifiche oltre il limite: richiamare subito con il nuovo watermark
+    private boolean hasMore;
+}
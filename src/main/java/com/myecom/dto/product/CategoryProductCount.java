@@ -0,0 +1,16 @@
+package com.myecom.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Categoria con il numero di prodotti attivi, letto dal contatore (constructor expression JPQL).
+// Costa una riga per categoria, senza aggregare la tabella prodotti
+@Getter
+@AllArgsConstructor
+public class CategoryProductCount {
+
+    private Long id;
+    private String name;
+    private Boolean active;
+    private Long activeProductCount;
+}
@@ -1,5 +1,6 @@
 package com.myecom.dto.product;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -20,4 +21,9 @@ public class PageResponse<T> {
     private long totalElements;
     private boolean hasNext;
     private boolean hasPrevious;
+
+    // Solo in modalità cursore: da passare come ?cursor= per la pagina successiva.
+    // In questa modalità totalPages/totalElements non vengono calcolati (niente COUNT)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 }
@@ -0,0 +1,24 @@
+package com.myecom.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// DTO per il filtraggio a faccette: pagina di prodotti + conteggi per ogni valore filtrabile
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilterResponse {
+
+    private PageResponse<ProductResponse> products;
+
+    // Valore → numero di prodotti (tenendo conto dei filtri sulle altre dimensioni)
+    private Map<String, Long> brands;
+    private Map<Long, Long> categories;
+    private Map<String, Long> priceBands;
+    private long inStock;
+}
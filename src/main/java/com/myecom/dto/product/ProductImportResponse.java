@@ -0,0 +1,31 @@
+package com.myecom.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// DTO con l'esito di un import massivo di prodotti
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResponse {
+
+    private long totalRows;
+    private long imported;
+    private long failed;
+
+    // Errori per riga (limitati ai primi N, il totale è in "failed")
+    private List<RowError> errors;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
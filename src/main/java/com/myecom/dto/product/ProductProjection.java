@@ -0,0 +1,31 @@
+package com.myecom.dto.product;
+
+import com.myecom.model.Money;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Proiezione piatta prodotto + categoria, letta con una sola query (constructor expression JPQL).
+// Evita il caricamento lazy di Product.category riga per riga (N+1)
+@Getter
+@AllArgsConstructor
+public class ProductProjection {
+
+    private Long id;
+    private String name;
+    private String description;
+    private Money price;
+    private Integer stockQuantity;
+    private String imageUrl;
+    private String brand;
+    private Boolean active;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // Dati categoria (null se il prodotto non ha categoria)
+    private Long categoryId;
+    private String categoryName;
+    private String categoryDescription;
+    private Boolean categoryActive;
+}
@@ -0,0 +1,22 @@
+package com.myecom.dto.product;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// DTO per l'autocompletamento: nome prodotto (con id) oppure marca
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionResponse {
+
+    private String text;
+    private String type; // PRODUCT o BRAND
+
+    // Solo per i suggerimenti di tipo PRODUCT
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long productId;
+}
@@ -0,0 +1,19 @@
+package com.myecom.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento: "È stato completato un import massivo di prodotti"
+ *
+ * I prodotti importati vengono scritti via JDBC senza passare dalle entità,
+ * quindi vanno aggiunti alle strutture in memoria del catalogo.
+ * firstId e lastId delimitano gli id generati dall'import (gli estremi sono compresi).
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogImportedEvent {
+    private final long importedProducts;
+    private final long firstId;
+    private final long lastId;
+}
@@ -0,0 +1,17 @@
+package com.myecom.events;
+
+import com.myecom.model.Category;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento: "Una categoria è stata modificata o disattivata"
+ *
+ * Serve a chi tiene in memoria dati che includono la categoria
+ * (es. cache dei prodotti) per invalidarli.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+    private final Category category;
+}
@@ -0,0 +1,16 @@
+package com.myecom.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento: "Un prodotto è stato aggiunto a un carrello"
+ *
+ * Serve ad aggiornare la classifica dei prodotti più aggiunti ai carrelli.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductAddedToCartEvent {
+    private final Long productId;
+    private final int quantity;
+}
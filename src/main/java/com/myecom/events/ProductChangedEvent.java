@@ -0,0 +1,24 @@
+package com.myecom.events;
+
+import com.myecom.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento: "Un prodotto è stato creato o modificato"
+ *
+ * Contiene il prodotto appena salvato, così chi mantiene strutture
+ * in memoria (indice di ricerca, ecc.) può aggiornarle senza rileggere il DB.
+ *
+ * stockOnly = è cambiato solo lo stock (una vendita al checkout), non i dati del catalogo.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    private final Product product;
+    private final boolean stockOnly;
+
+    public ProductChangedEvent(Product product) {
+        this(product, false);
+    }
+}
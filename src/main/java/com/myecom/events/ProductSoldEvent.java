@@ -0,0 +1,16 @@
+package com.myecom.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento: "È stata venduta una quantità di un prodotto"
+ *
+ * Pubblicato per ogni riga d'ordine, serve ad aggiornare la classifica dei più venduti.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductSoldEvent {
+    private final Long productId;
+    private final int quantity;
+}
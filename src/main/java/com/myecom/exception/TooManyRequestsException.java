@@ -0,0 +1,19 @@
+package com.myecom.exception;
+
+/**
+ * Eccezione per richieste rifiutate perché il sistema è sovraccarico.
+ * Il client può riprovare più tardi (risposta 429 con Retry-After).
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,107 @@
+package com.myecom.listeners;
+
+import com.myecom.events.CatalogImportedEvent;
+import com.myecom.events.CategoryChangedEvent;
+import com.myecom.events.ProductChangedEvent;
+import com.myecom.model.Product;
+import com.myecom.repository.ProductRepository;
+import com.myecom.service.cache.CatalogVersion;
+import com.myecom.service.cache.CategorySnapshotCache;
+import com.myecom.service.cache.ProductCache;
+import com.myecom.service.search.ProductFacetIndex;
+import com.myecom.service.search.ProductSearchIndex;
+import com.myecom.service.search.ProductSuggestIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Listener che tiene allineate le strutture in memoria del catalogo (indice di ricerca,
+ * indice a faccette, autocompletamento, cache prodotti, categorie attive, generazione/ETag)
+ * quando prodotti o categorie cambiano.
+ *
+ * Service pubblica evento → questo listener → strutture in memoria
+ *
+ * Gli eventi vengono gestiti dopo il commit della transazione (o subito se
+ * non c'è una transazione attiva): così la cache non ricarica dati non ancora committati.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogChangeListener {
+
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductCache productCache;
+    private final CategorySnapshotCache categorySnapshotCache;
+    private final CatalogVersion catalogVersion;
+
+    /**
+     * Reindicizza il prodotto (o lo rimuove se è stato disattivato) e invalida la cache.
+     * L'indice di ricerca contiene solo testo: una vendita non lo tocca.
+     *
+     * Una vendita (solo stock) fa avanzare solo la generazione dello stock: cambiano gli ETag
+     * delle risposte con i prodotti, che riportano lo stock, ma non quelli delle categorie.
+     *
+     * @param event Contiene il prodotto appena salvato
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleProductChanged(ProductChangedEvent event) {
+        if (!event.isStockOnly() || !event.getProduct().isActive()) {
+            productSearchIndex.index(event.getProduct());
+        }
+        productFacetIndex.index(event.getProduct());
+        productSuggestIndex.index(event.getProduct());
+        productCache.invalidate(event.getProduct().getId());
+        if (event.isStockOnly()) {
+            catalogVersion.bumpStock();
+        } else {
+            catalogVersion.bump();
+        }
+    }
+
+    /**
+     * Invalida i prodotti in cache che riportano i dati della categoria modificata
+     * e sostituisce la fotografia delle categorie attive.
+     *
+     * @param event Contiene la categoria appena salvata
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleCategoryChanged(CategoryChangedEvent event) {
+        productCache.invalidateCategory(event.getCategory().getId());
+        categorySnapshotCache.refresh();
+        catalogVersion.bump();
+    }
+
+    /**
+     * Dopo un import massivo (scritto via JDBC, senza eventi per prodotto) aggiunge agli indici
+     * solo i prodotti importati, letti a blocchi per id: gli indici non vengono ricostruiti e ogni
+     * write lock copre un solo prodotto, mai la lettura dal DB. Reindicizzare un prodotto
+     * dell'intervallo creato nel frattempo da un'altra richiesta è innocuo.
+     * La cache non va toccata: contiene solo prodotti già esistenti, che l'import non modifica.
+     *
+     * @param event Numero di prodotti importati e intervallo dei loro id
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleCatalogImported(CatalogImportedEvent event) {
+        long fromId = event.getFirstId();
+        List<Product> batch;
+        do {
+            batch = productRepository.findByActiveTrueAndIdBetweenOrderByIdAsc(
+                    fromId, event.getLastId(), PageRequest.of(0, IMPORT_BATCH_SIZE));
+            for (Product product : batch) {
+                productSearchIndex.index(product);
+                productFacetIndex.index(product);
+                productSuggestIndex.index(product);
+                fromId = product.getId() + 1;
+            }
+        } while (batch.size() == IMPORT_BATCH_SIZE);
+        catalogVersion.bump();
+    }
+}
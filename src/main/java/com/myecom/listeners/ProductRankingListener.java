@@ -0,0 +1,38 @@
+package com.myecom.listeners;
+
+import com.myecom.events.ProductAddedToCartEvent;
+import com.myecom.events.ProductSoldEvent;
+import com.myecom.service.ranking.ProductRankings;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Listener che aggiorna le classifiche prodotti in memoria.
+ *
+ * CreateOrderCommand / CartService pubblicano evento → questo listener → ProductRankings
+ *
+ * Gestito dopo il commit: un ordine annullato non conta come vendita.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductRankingListener {
+
+    private final ProductRankings productRankings;
+
+    /**
+     * @param event Prodotto e quantità di una riga d'ordine
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleProductSold(ProductSoldEvent event) {
+        productRankings.recordSale(event.getProductId(), event.getQuantity());
+    }
+
+    /**
+     * @param event Prodotto e quantità aggiunti al carrello
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleProductAddedToCart(ProductAddedToCartEvent event) {
+        productRankings.recordCartAdd(event.getProductId(), event.getQuantity());
+    }
+}
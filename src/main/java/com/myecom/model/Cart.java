@@ -6,7 +6,6 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -53,13 +52,16 @@ public class Cart {
     }
 
     // Calcola l'importo totale del carrello
-    public BigDecimal getTotalAmount() {
+    public Money getTotalAmount() {
         if (cartItems == null || cartItems.isEmpty()) {
-            return BigDecimal.ZERO;
+            return Money.ZERO;
         }
-        return cartItems.stream()
-                .map(CartItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Somma in centesimi: nessun oggetto intermedio per riga
+        long cents = 0;
+        for (CartItem item : cartItems) {
+            cents = Math.addExact(cents, item.getProduct().getPrice().centsTimes(item.getQuantity()));
+        }
+        return Money.ofCents(cents);
     }
 
     // Calcola il numero totale di articoli nel carrello
@@ -6,7 +6,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -57,7 +56,7 @@ public class CartItem {
     }
 
     // Calcola il prezzo totale per questo item del carrello
-    public BigDecimal getTotalPrice() {
-        return product.getPrice().multiply(BigDecimal.valueOf(quantity));
+    public Money getTotalPrice() {
+        return product.getPrice().times(quantity);
     }
 }
@@ -7,10 +7,14 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Entity
-@Table(name = "categories")
+@Table(name = "categories", indexes = {
+        // Supporta il feed delle modifiche keyset (updatedAt, id)
+        @Index(name = "idx_categories_updated_at_id", columnList = "updated_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -40,21 +44,35 @@ public class Category {
     @Column
     private LocalDateTime updatedAt;
 
+    // Numero di prodotti attivi della categoria, mantenuto a ogni scrittura dei prodotti.
+    // Cambia solo con UPDATE atomici (CategoryRepository.adjustActiveProductCount):
+    // il salvataggio dell'entità non lo sovrascrive con un valore letto prima
+    @Column(nullable = false, updatable = false)
+    @Builder.Default
+    private long activeProductCount = 0L;
+
     // Prodotti appartenenti a questa categoria
     @OneToMany(mappedBy = "category", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Product> products;
 
-    // Inizializza automaticamente createdAt prima del persist
+    // Inizializza automaticamente createdAt prima del persist.
+    // Anche updatedAt parte valorizzato: il feed delle modifiche (/api/products/changes) si basa su di lui
     @PrePersist
     private void prePersist() {
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
         }
+        // Alla precisione della colonna (microsecondi): il valore in memoria resta uguale a quello
+        // salvato, così un watermark calcolato dall'entità non cade a metà di un arrotondamento
+        createdAt = createdAt.truncatedTo(ChronoUnit.MICROS);
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
     }
 
     // Aggiorna automaticamente il timestamp di modifica
     @PreUpdate
     private void preUpdate() {
-        updatedAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
 }
@@ -0,0 +1,105 @@
+package com.myecom.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Importo in euro a virgola fissa, memorizzato come numero intero di centesimi.
+ *
+ * Sostituisce BigDecimal nei conti di carrello, ordini e validazioni: somme e
+ * moltiplicazioni sono operazioni su long, senza oggetti intermedi. Per i totali
+ * nei cicli si accumulano i centesimi (cents()) e si crea un solo Money alla fine.
+ *
+ * Sul DB resta una colonna decimale (vedi MoneyConverter); in JSON viene scritto e letto
+ * come il BigDecimal di prima (numero con due decimali), quindi per i client non cambia nulla.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Importo arrotondato al centesimo (HALF_UP).
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Money of(BigDecimal amount) {
+        return ofCents(toCents(amount));
+    }
+
+    public static Money of(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    /**
+     * Centesimi dell'importo, arrotondato al centesimo (HALF_UP).
+     *
+     * @throws ArithmeticException se l'importo non sta in un long
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public long cents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money times(int quantity) {
+        return ofCents(Math.multiplyExact(cents, (long) quantity));
+    }
+
+    /**
+     * Centesimi di quantity pezzi a questo prezzo, senza creare oggetti.
+     */
+    public long centsTimes(int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return cents > other.cents;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money other && cents == other.cents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    /**
+     * Importo con due decimali, es. "1299.99" o "-0.05" (stesso formato di BigDecimal con scala 2).
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
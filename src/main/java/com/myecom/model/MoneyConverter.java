@@ -0,0 +1,24 @@
+package com.myecom.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Salva Money come colonna decimale (precision/scale restano quelle di @Column),
+ * così lo schema e i dati esistenti non cambiano.
+ */
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money != null ? money.toBigDecimal() : null;
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal amount) {
+        return amount != null ? Money.of(amount) : null;
+    }
+}
@@ -6,8 +6,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Entity
 @Table(name = "order_items")
 @Data
@@ -36,11 +34,11 @@ public class OrderItem {
 
     // Prezzo unitario al momento dell'ordine
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal unitPrice;
+    private Money unitPrice;
 
     // Prezzo totale per questo item (unitPrice * quantity)
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal totalPrice;
+    private Money totalPrice;
 
     // Calcola automaticamente il prezzo totale prima del persist
     @PrePersist
@@ -57,7 +55,7 @@ public class OrderItem {
     // Calcola automaticamente il prezzo totale
     private void calculateTotalPrice() {
         if (unitPrice != null && quantity != null) {
-            totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            totalPrice = unitPrice.times(quantity);
         }
     }
 }
@@ -6,12 +6,17 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Supporta il listing keyset (active, createdAt DESC, id DESC)
+        @Index(name = "idx_products_active_created_at_id", columnList = "active, created_at, id"),
+        // Supporta il feed delle modifiche keyset (updatedAt, id)
+        @Index(name = "idx_products_updated_at_id", columnList = "updated_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -32,7 +37,7 @@ public class Product {
 
     // Prezzo unitario con precisione per valuta
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal price;
+    private Money price;
 
     // Quantità disponibile in magazzino
     @Column(nullable = false)
@@ -70,18 +75,25 @@ public class Product {
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<CartItem> cartItems;
 
-    // Inizializza automaticamente createdAt prima del persist
+    // Inizializza automaticamente createdAt prima del persist.
+    // Anche updatedAt parte valorizzato: il feed delle modifiche (/api/products/changes) si basa su di lui
     @PrePersist
     private void prePersist() {
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
         }
+        // Alla precisione della colonna (microsecondi): il valore in memoria resta uguale a quello
+        // salvato, così un watermark calcolato dall'entità non cade a metà di un arrotondamento
+        createdAt = createdAt.truncatedTo(ChronoUnit.MICROS);
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
     }
 
     // Aggiorna automaticamente il timestamp di modifica
     @PreUpdate
     private void preUpdate() {
-        updatedAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
 
     // Verifica se il prodotto è disponibile
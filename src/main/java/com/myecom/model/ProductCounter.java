@@ -0,0 +1,40 @@
+package com.myecom.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Contatori cumulativi per prodotto (pezzi venduti, pezzi aggiunti ai carrelli).
+ *
+ * Sono la copia persistente delle classifiche tenute in memoria da ProductRankings:
+ * vengono scritti periodicamente e riletti all'avvio.
+ */
+@Entity
+@Table(name = "product_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductCounter {
+
+    // Stesso id del prodotto (nessuna relazione JPA: il contatore non deve caricare il prodotto)
+    @Id
+    private Long productId;
+
+    // Pezzi venduti in totale
+    @Column(nullable = false)
+    private long soldQuantity;
+
+    // Pezzi aggiunti ai carrelli in totale
+    @Column(nullable = false)
+    private long cartAddQuantity;
+
+    // Ultima scrittura del contatore
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
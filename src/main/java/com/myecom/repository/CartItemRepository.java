@@ -6,10 +6,12 @@ import com.myecom.model.Category;
 import com.myecom.model.Product;
 import com.myecom.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +23,10 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     // Trova tutti gli articoli in un carrello specifico
     List<CartItem> findByCart(Cart cart);
 
+    // Articoli del carrello con i rispettivi prodotti in una sola query
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.cart.id = :cartId ORDER BY ci.id")
+    List<CartItem> findWithProductByCartId(@Param("cartId") Long cartId);
+
     // Trova un articolo specifico in un carrello
     Optional<CartItem> findByCartAndProduct(Cart cart, Product product);
 
@@ -30,6 +36,16 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     // Rimuove tutti gli articoli di un carrello
     void deleteByCart(Cart cart);
 
+    // Rimuove con un solo DELETE gli articoli di più carrelli (pulizia dei carrelli abbandonati).
+    // Il criterio di abbandono viene ricontrollato: un carrello toccato dopo la lettura degli id resta intatto
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id IN (" +
+            "SELECT c.id FROM Cart c WHERE c.id IN :cartIds AND COALESCE(c.updatedAt, c.createdAt) < :cutoff " +
+            "AND NOT EXISTS (SELECT recent.id FROM CartItem recent WHERE recent.cart = c " +
+            "AND COALESCE(recent.updatedAt, recent.createdAt) >= :cutoff))")
+    int deleteAbandonedByCartIdIn(@Param("cartIds") Collection<Long> cartIds,
+                                  @Param("cutoff") java.time.LocalDateTime cutoff);
+
     // Rimuove tutti gli articoli di un prodotto specifico (quando viene eliminato)
     void deleteByProduct(Product product);
 
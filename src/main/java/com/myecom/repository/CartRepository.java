@@ -2,10 +2,15 @@ package com.myecom.repository;
 
 import com.myecom.model.Cart;
 import com.myecom.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,10 +21,37 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     // Trova il carrello di un utente specifico
     Optional<Cart> findByUser(User user);
 
+    // Come findByUser, ma senza dover caricare prima l'utente
+    Optional<Cart> findByUserId(Long userId);
+
+    // Carrello dell'utente con righe e prodotti in una sola query (niente lazy loading nel DTO)
+    @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.cartItems ci LEFT JOIN FETCH ci.product " +
+            "WHERE c.user.id = :userId ORDER BY ci.id")
+    Optional<Cart> findWithItemsByUserId(@Param("userId") Long userId);
+
     // Trova carrelli modificati di recente (per pulizia periodica)
     @Query("SELECT c FROM Cart c WHERE c.updatedAt IS NOT NULL ORDER BY c.updatedAt DESC")
     List<Cart> findRecentlyUpdatedCarts();
 
+    // Carrelli abbandonati dopo afterId (paginazione keyset per id): [cartId, userId].
+    // Abbandonato = carrello e righe non toccati dal cutoff (le modifiche alle righe non aggiornano il carrello)
+    @Query("SELECT c.id, c.user.id FROM Cart c " +
+            "WHERE c.id > :afterId AND COALESCE(c.updatedAt, c.createdAt) < :cutoff " +
+            "AND NOT EXISTS (SELECT ci.id FROM CartItem ci WHERE ci.cart = c " +
+            "AND COALESCE(ci.updatedAt, ci.createdAt) >= :cutoff) " +
+            "ORDER BY c.id")
+    List<Object[]> findAbandonedCartIds(@Param("afterId") Long afterId,
+                                        @Param("cutoff") LocalDateTime cutoff,
+                                        Pageable pageable);
+
+    // Cancellazione massiva (le righe vanno tolte prima, vedi CartItemRepository.deleteAbandonedByCartIdIn).
+    // Ricontrolla il cutoff e salta i carrelli che hanno ancora righe: sono stati usati dopo la lettura degli id
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.id IN :cartIds AND COALESCE(c.updatedAt, c.createdAt) < :cutoff " +
+            "AND NOT EXISTS (SELECT ci.id FROM CartItem ci WHERE ci.cart = c)")
+    int deleteAbandonedByIdIn(@Param("cartIds") Collection<Long> cartIds,
+                              @Param("cutoff") LocalDateTime cutoff);
+
     // Conta il numero di articoli in tutti i carrelli
     @Query("SELECT COUNT(ci) FROM Cart c JOIN c.cartItems ci")
     long countTotalItemsInAllCarts();
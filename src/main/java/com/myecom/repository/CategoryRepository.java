@@ -1,15 +1,19 @@
 package com.myecom.repository;
 
+import com.myecom.dto.product.CategoryProductCount;
 import com.myecom.model.Cart;
 import com.myecom.model.CartItem;
 import com.myecom.model.Category;
 import com.myecom.model.Product;
 import com.myecom.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 // Repository per gestire le categorie prodotti
@@ -29,16 +33,43 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     // Verifica se esiste una categoria con questo nome
     boolean existsByName(String name);
 
-    // Query per trovare categorie con prodotti
-    @Query("SELECT DISTINCT c FROM Category c JOIN c.products p WHERE p.active = true")
+    // Categorie con almeno un prodotto attivo (dal contatore, senza leggere i prodotti)
+    @Query("SELECT c FROM Category c WHERE c.activeProductCount > 0")
     List<Category> findCategoriesWithActiveProducts();
 
-    // Query per contare prodotti per categoria
-    @Query("SELECT c, COUNT(p) FROM Category c LEFT JOIN c.products p WHERE p.active = true GROUP BY c")
+    // Conteggio prodotti attivi per categoria (dal contatore)
+    @Query("SELECT c, c.activeProductCount FROM Category c WHERE c.activeProductCount > 0")
     List<Object[]> countProductsByCategory();
 
-    // Query per trovare categorie vuote (senza prodotti attivi)
-    @Query("SELECT c FROM Category c WHERE c.id NOT IN " +
-            "(SELECT DISTINCT p.category.id FROM Product p WHERE p.active = true)")
+    // Categorie vuote (senza prodotti attivi)
+    @Query("SELECT c FROM Category c WHERE c.activeProductCount = 0")
     List<Category> findEmptyCategories();
+
+    // Tutte le categorie con il numero di prodotti attivi, per menu e statistiche admin
+    @Query("SELECT new com.myecom.dto.product.CategoryProductCount(c.id, c.name, c.active, c.activeProductCount) " +
+            "FROM Category c ORDER BY c.name")
+    List<CategoryProductCount> findProductCounts();
+
+    // Variazione atomica del contatore, nella transazione che modifica il prodotto
+    @Modifying
+    @Query("UPDATE Category c SET c.activeProductCount = c.activeProductCount + :delta WHERE c.id = :id")
+    int adjustActiveProductCount(@Param("id") Long id, @Param("delta") long delta);
+
+    // Riallinea tutti i contatori contando i prodotti (righe scritte fuori dai service)
+    @Modifying
+    @Query("UPDATE Category c SET c.activeProductCount = " +
+            "(SELECT COUNT(p) FROM Product p WHERE p.category = c AND p.active = true)")
+    int recountActiveProducts();
+
+    // Feed delle modifiche: categorie modificate dopo la coppia (updatedAt, id) e non oltre :until
+    @Query("SELECT c FROM Category c " +
+            "WHERE (c.updatedAt > :updatedAt OR (c.updatedAt = :updatedAt AND c.id > :id)) " +
+            "AND c.updatedAt <= :until ORDER BY c.updatedAt, c.id")
+    List<Category> findChangedAfter(@Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id,
+                                    @Param("until") LocalDateTime until, Pageable pageable);
+
+    // Valorizza updatedAt sulle righe create prima che fosse impostato all'inserimento
+    @Modifying
+    @Query("UPDATE Category c SET c.updatedAt = c.createdAt WHERE c.updatedAt IS NULL")
+    int backfillUpdatedAt();
 }
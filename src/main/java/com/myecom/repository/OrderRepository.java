@@ -77,4 +77,9 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
             "ORDER BY o.createdAt DESC")
     List<Order> findUserOrdersInPeriod(@Param("user") User user, @Param("start") LocalDateTime start,
                                        @Param("end") LocalDateTime end);
+
+    // Conta gli ordini di un utente in un periodo [start, end) senza caricarli
+    @Query("SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId AND o.createdAt >= :start AND o.createdAt < :end")
+    long countUserOrdersInPeriod(@Param("userId") Long userId, @Param("start") LocalDateTime start,
+                                 @Param("end") LocalDateTime end);
 }
@@ -0,0 +1,21 @@
+package com.myecom.repository;
+
+import com.myecom.model.ProductCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Repository per i contatori persistenti delle classifiche prodotti
+@Repository
+public interface ProductCounterRepository extends JpaRepository<ProductCounter, Long> {
+
+    // Aggregato completo delle vendite (productId, pezzi): usato solo per inizializzare i contatori
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi GROUP BY oi.product.id")
+    List<Object[]> sumSoldQuantityByProduct();
+
+    // Aggregato dei carrelli attuali (productId, pezzi): usato solo per inizializzare i contatori
+    @Query("SELECT ci.product.id, SUM(ci.quantity) FROM CartItem ci GROUP BY ci.product.id")
+    List<Object[]> sumCartQuantityByProduct();
+}
@@ -1,20 +1,38 @@
 package com.myecom.repository;
 
+import com.myecom.dto.product.ProductProjection;
+import com.myecom.model.Money;
 import com.myecom.model.Product;
 import com.myecom.model.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductStockRepository {
+
+    // SELECT comune alle proiezioni del catalogo: prodotto + categoria in una sola query
+    String PRODUCT_PROJECTION = "SELECT new com.myecom.dto.product.ProductProjection(" +
+            "p.id, p.name, p.description, p.price, p.stockQuantity, p.imageUrl, p.brand, p.active, p.createdAt, p.updatedAt, " +
+            "c.id, c.name, c.description, c.active) " +
+            "FROM Product p LEFT JOIN p.category c ";
+
+    // Trova prodotto con la sua categoria in una sola query (usato dalla cache prodotti)
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.id = :id")
+    Optional<Product> findWithCategoryById(@Param("id") Long id);
 
     // Trova prodotti attivi (per il catalogo pubblico)
     List<Product> findByActiveTrue();
@@ -22,6 +40,12 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // Trova prodotti attivi con paginazione
     Page<Product> findByActiveTrue(Pageable pageable);
 
+    // Scorre i prodotti attivi per id crescente a blocchi (keyset, senza COUNT)
+    List<Product> findByActiveTrueAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Come sopra, limitato a un intervallo di id (es. i prodotti appena importati)
+    List<Product> findByActiveTrueAndIdBetweenOrderByIdAsc(Long fromId, Long toId, Pageable pageable);
+
     // Trova prodotti per categoria
     List<Product> findByCategoryAndActiveTrue(Category category);
 
@@ -50,11 +74,64 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%'))) AND p.active = true")
     Page<Product> searchByNameOrDescription(@Param("search") String search, Pageable pageable);
 
+    // ===== Proiezioni per le pagine del catalogo (una query, niente N+1 su category) =====
+
+    // Prodotti attivi con paginazione
+    @Query(value = PRODUCT_PROJECTION + "WHERE p.active = true",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true")
+    Page<ProductProjection> findActiveProjections(Pageable pageable);
+
+    // Prodotti attivi di una categoria con paginazione
+    @Query(value = PRODUCT_PROJECTION + "WHERE c.id = :categoryId AND p.active = true",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId AND p.active = true")
+    Page<ProductProjection> findActiveProjectionsByCategory(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    // Ricerca per nome e descrizione con paginazione
+    @Query(value = PRODUCT_PROJECTION + "WHERE (LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+            "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%'))) AND p.active = true",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE (LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+                    "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%'))) AND p.active = true")
+    Page<ProductProjection> searchProjectionsByNameOrDescription(@Param("search") String search, Pageable pageable);
+
+    // Prodotti per id (es. la pagina di risultati restituita dall'indice di ricerca)
+    @Query(PRODUCT_PROJECTION + "WHERE p.id IN :ids")
+    List<ProductProjection> findProjectionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Feed delle modifiche: prodotti (anche disattivati) modificati dopo la coppia (updatedAt, id)
+    // e non oltre :until, con la categoria in join. Usa l'indice (updated_at, id)
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category " +
+            "WHERE (p.updatedAt > :updatedAt OR (p.updatedAt = :updatedAt AND p.id > :id)) " +
+            "AND p.updatedAt <= :until ORDER BY p.updatedAt, p.id")
+    List<Product> findChangedAfter(@Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id,
+                                   @Param("until") LocalDateTime until, Pageable pageable);
+
+    // Valorizza updatedAt sulle righe create prima che fosse impostato all'inserimento
+    @Modifying
+    @Query("UPDATE Product p SET p.updatedAt = p.createdAt WHERE p.updatedAt IS NULL")
+    int backfillUpdatedAt();
+
+    // Tutto il catalogo attivo come stream (export): le righe arrivano dal cursore JDBC
+    // a blocchi di fetch-size. Va consumato dentro una transazione e chiuso
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(PRODUCT_PROJECTION + "WHERE p.active = true ORDER BY p.id")
+    Stream<ProductProjection> streamActiveProjections();
+
+    // Prima pagina del listing keyset: prodotti attivi dal più recente, senza COUNT
+    @Query(PRODUCT_PROJECTION + "WHERE p.active = true ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductProjection> findActiveProjectionsNewestFirst(Pageable pageable);
+
+    // Pagine successive del listing keyset: prodotti attivi dopo la coppia (createdAt, id) del cursore
+    @Query(PRODUCT_PROJECTION + "WHERE p.active = true AND " +
+            "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductProjection> findActiveProjectionsAfter(@Param("createdAt") LocalDateTime createdAt,
+                                                       @Param("id") Long id, Pageable pageable);
+
     // Trova prodotti in una fascia di prezzo
-    List<Product> findByActiveTrueAndPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
+    List<Product> findByActiveTrueAndPriceBetween(Money minPrice, Money maxPrice);
 
     // Trova prodotti in una fascia di prezzo con paginazione
-    Page<Product> findByActiveTrueAndPriceBetween(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
+    Page<Product> findByActiveTrueAndPriceBetween(Money minPrice, Money maxPrice, Pageable pageable);
 
     // Query per trovare prodotti più venduti
     @Query("SELECT p FROM Product p JOIN p.orderItems oi GROUP BY p ORDER BY SUM(oi.quantity) DESC")
@@ -0,0 +1,47 @@
+package com.myecom.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggiornamenti di stock eseguiti direttamente sul DB (frammento di ProductRepository).
+ */
+public interface ProductStockRepository {
+
+    /**
+     * Scala lo stock di più prodotti con un solo batch di
+     * UPDATE ... SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?.
+     *
+     * Nessuna lettura prima della scrittura: due checkout concorrenti sullo stesso prodotto
+     * non possono vendere più pezzi di quelli disponibili.
+     * Va chiamato in una transazione: se qualche prodotto non ha stock sufficiente
+     * le altre righe sono già state scalate e vanno annullate con il rollback.
+     *
+     * Se tutti gli UPDATE passano, lo stock rimasto viene riletto nella stessa transazione:
+     * le righe sono bloccate dagli UPDATE, quindi è esattamente il valore dopo questo checkout
+     * (non quello letto prima, che un checkout concorrente può aver già cambiato).
+     *
+     * @param quantities productId → pezzi da scalare
+     * @return prodotti senza stock sufficiente, oppure lo stock rimasto di ogni prodotto
+     */
+    StockDecrease decreaseStock(Map<Long, Integer> quantities);
+
+    /**
+     * Esito di decreaseStock.
+     */
+    @Getter
+    @AllArgsConstructor
+    final class StockDecrease {
+        // Id dei prodotti senza stock sufficiente (vuota se tutti gli UPDATE sono andati a buon fine)
+        private final List<Long> insufficient;
+        // productId → stock dopo l'UPDATE (vuota se qualche prodotto non bastava)
+        private final Map<Long, Integer> remaining;
+
+        public boolean isApplied() {
+            return insufficient.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.myecom.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Implementazione JDBC sulla stessa connessione (e transazione) dell'EntityManager
+class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final String DECREASE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? " +
+            "WHERE id = ? AND stock_quantity >= ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public StockDecrease decreaseStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return new StockDecrease(List.of(), Map.of());
+        }
+
+        // Modifiche ancora in memoria scritte prima: non devono sovrascrivere lo stock dopo l'UPDATE
+        entityManager.flush();
+
+        // Righe bloccate sempre in ordine di id: due ordini con gli stessi prodotti non vanno in deadlock
+        Map<Long, Integer> ordered = new TreeMap<>(quantities);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(DECREASE_SQL)) {
+                for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+                    statement.setInt(1, entry.getValue());
+                    statement.setTimestamp(2, now);
+                    statement.setLong(3, entry.getKey());
+                    statement.setInt(4, entry.getValue());
+                    statement.addBatch();
+                }
+                int[] counts = statement.executeBatch();
+
+                List<Long> insufficient = new ArrayList<>();
+                int i = 0;
+                for (Long productId : ordered.keySet()) {
+                    // 0 righe = prodotto inesistente o stock insufficiente
+                    if (counts[i++] == 0) {
+                        insufficient.add(productId);
+                    }
+                }
+                if (!insufficient.isEmpty()) {
+                    return new StockDecrease(insufficient, Map.of());
+                }
+                return new StockDecrease(List.of(), remainingStock(connection, ordered.keySet()));
+            }
+        });
+    }
+
+    // Stock dopo gli UPDATE: le righe sono bloccate da questa transazione, nessun altro può averle cambiate
+    private Map<Long, Integer> remainingStock(Connection connection, Iterable<Long> productIds) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        productIds.forEach(ids::add);
+        String sql = "SELECT id, stock_quantity FROM products WHERE id IN ("
+                + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+
+        Map<Long, Integer> remaining = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                statement.setLong(i + 1, ids.get(i));
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    remaining.put(rows.getLong(1), rows.getInt(2));
+                }
+            }
+        }
+        return remaining;
+    }
+}
@@ -1,22 +1,44 @@
 package com.myecom.service;
 
+import com.myecom.dto.cart.CartBatchRequest;
 import com.myecom.dto.cart.CartItemRequest;
 import com.myecom.dto.cart.CartItemResponse;
+import com.myecom.dto.cart.CartOperationRequest;
 import com.myecom.dto.cart.CartResponse;
+import com.myecom.dto.product.ProductResponse;
+import com.myecom.events.ProductAddedToCartEvent;
 import com.myecom.model.Cart;
 import com.myecom.model.CartItem;
+import com.myecom.model.Money;
 import com.myecom.model.Product;
 import com.myecom.model.User;
 import com.myecom.repository.CartItemRepository;
 import com.myecom.repository.CartRepository;
 import com.myecom.repository.ProductRepository;
 import com.myecom.repository.UserRepository;
+import com.myecom.service.cache.ProductCache;
+import com.myecom.service.cart.CartSnapshot;
+import com.myecom.service.cart.WriteBehindCartStore;
+import com.myecom.service.stock.StockReservations;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,41 +48,162 @@ public class CartService {
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Carrelli in memoria (cart.write-behind.enabled=true)
+    private final WriteBehindCartStore cartStore;
+    private final ProductCache productCache;
+
+    // Pezzi tenuti per chi li ha nel carrello (vedi StockValidator)
+    private final StockReservations stockReservations;
 
     // Aggiunge prodotto al carrello
     public CartResponse addToCart(Long userId, CartItemRequest request) {
+        if (cartStore.isEnabled()) {
+            ProductResponse product = productCache.get(request.getProductId())
+                    .orElseThrow(() -> new IllegalArgumentException("Prodotto non trovato"));
+
+            CartSnapshot cart = cartStore.update(userId, current -> {
+                int quantity = current.getOrDefault(product.getId(), 0) + request.getQuantity();
+                if (!stockReservations.hold(userId, product.getId(), quantity, product.getStockQuantity())) {
+                    throw new IllegalArgumentException("Quantità non disponibile");
+                }
+                current.put(product.getId(), quantity);
+                return current;
+            });
+            eventPublisher.publishEvent(new ProductAddedToCartEvent(product.getId(), request.getQuantity()));
+            return getCartResponse(cart);
+        }
+
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Utente non trovato"));
 
         Product product = productRepository.findById(request.getProductId())
                 .orElseThrow(() -> new IllegalArgumentException("Prodotto non trovato"));
 
-        if (product.getStockQuantity() < request.getQuantity()) {
+        Cart cart = findOrCreateCart(user);
+
+        Optional<CartItem> existingItem = cartItemRepository.findByCartAndProduct(cart, product);
+
+        // Prenota la quantità che il carrello avrà dopo l'aggiunta (stock meno i pezzi tenuti da altri)
+        int quantity = existingItem.map(CartItem::getQuantity).orElse(0) + request.getQuantity();
+        Map<Long, Integer> previousHolds = Map.of(product.getId(), stockReservations.heldBy(userId, product.getId()));
+        if (!stockReservations.hold(userId, product.getId(), quantity, product.getStockQuantity())) {
             throw new IllegalArgumentException("Quantità non disponibile");
         }
 
+        restoreHoldsOnFailure(userId, previousHolds, () -> {
+            if (existingItem.isPresent()) {
+                CartItem item = existingItem.get();
+                item.setQuantity(quantity);
+                cartItemRepository.save(item);
+            } else {
+                CartItem newItem = CartItem.builder()
+                        .cart(cart)
+                        .product(product)
+                        .quantity(request.getQuantity())
+                        .build();
+                cartItemRepository.save(newItem);
+            }
+        });
+
+        // Classifica "più aggiunti al carrello"
+        eventPublisher.publishEvent(new ProductAddedToCartEvent(product.getId(), request.getQuantity()));
+
+        return getCartResponse(cart);
+    }
+
+    /**
+     * Applica più modifiche al carrello in una transazione: una query per tutti i prodotti,
+     * un solo controllo di disponibilità sulle quantità finali e un solo rendering del carrello.
+     * Se un'operazione non è valida il carrello resta invariato.
+     */
+    @Transactional
+    public CartResponse applyBatch(Long userId, CartBatchRequest request) {
+        List<CartOperationRequest> operations = request.getOperations();
+
+        Set<Long> productIds = operations.stream()
+                .map(CartOperationRequest::getProductId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        for (Long productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new IllegalArgumentException("Prodotto non trovato: " + productId);
+            }
+        }
+
+        Map<Long, Integer> added = new HashMap<>();
+
+        if (cartStore.isEnabled()) {
+            CartSnapshot cart = cartStore.update(userId, current -> {
+                Map<Long, Integer> updated = applyOperations(userId, current, operations, products);
+                added.putAll(addedQuantities(current, updated));
+                return updated;
+            });
+            publishCartAdds(added);
+            return getCartResponse(cart);
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Utente non trovato"));
         Cart cart = findOrCreateCart(user);
 
-        Optional<CartItem> existingItem = cartItemRepository.findByCartAndProduct(cart, product);
+        Map<Long, CartItem> items = new LinkedHashMap<>();
+        for (CartItem item : cartItemRepository.findWithProductByCartId(cart.getId())) {
+            items.put(item.getProduct().getId(), item);
+        }
+        Map<Long, Integer> current = new LinkedHashMap<>();
+        items.forEach((productId, item) -> current.put(productId, item.getQuantity()));
 
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + request.getQuantity());
-            cartItemRepository.save(item);
-        } else {
-            CartItem newItem = CartItem.builder()
-                    .cart(cart)
-                    .product(product)
-                    .quantity(request.getQuantity())
-                    .build();
-            cartItemRepository.save(newItem);
+        Map<Long, Integer> previousHolds = new HashMap<>();
+        productIds.forEach(productId -> previousHolds.put(productId, stockReservations.heldBy(userId, productId)));
+
+        Map<Long, Integer> updated = applyOperations(userId, current, operations, products);
+        added.putAll(addedQuantities(current, updated));
+
+        // Scrive solo le righe cambiate
+        List<CartItem> removed = new ArrayList<>();
+        List<CartItem> changed = new ArrayList<>();
+        for (Map.Entry<Long, CartItem> entry : items.entrySet()) {
+            Integer quantity = updated.get(entry.getKey());
+            if (quantity == null) {
+                removed.add(entry.getValue());
+            } else if (!quantity.equals(entry.getValue().getQuantity())) {
+                entry.getValue().setQuantity(quantity);
+                changed.add(entry.getValue());
+            }
         }
+        for (Map.Entry<Long, Integer> entry : updated.entrySet()) {
+            if (!items.containsKey(entry.getKey())) {
+                CartItem newItem = CartItem.builder()
+                        .cart(cart)
+                        .product(products.get(entry.getKey()))
+                        .quantity(entry.getValue())
+                        .build();
+                items.put(entry.getKey(), newItem);
+                changed.add(newItem);
+            }
+        }
+        // Se le righe non arrivano sul DB (anche al commit), le prenotazioni tornano com'erano
+        restoreHoldsOnFailure(userId, previousHolds, () -> {
+            cartItemRepository.deleteAll(removed);
+            cartItemRepository.saveAll(changed);
+        });
+        removed.forEach(item -> items.remove(item.getProduct().getId()));
 
-        return getCartResponse(cart);
+        publishCartAdds(added);
+        return getCartResponse(cart, new ArrayList<>(items.values()));
     }
 
     // Rimuove prodotto dal carrello
     public CartResponse removeFromCart(Long userId, Long productId) {
+        if (cartStore.isEnabled()) {
+            CartSnapshot cart = cartStore.remove(userId, productId);
+            stockReservations.release(userId, productId);
+            return getCartResponse(cart);
+        }
+
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Utente non trovato"));
 
@@ -74,22 +217,39 @@ public class CartService {
                 .orElseThrow(() -> new IllegalArgumentException("Prodotto non nel carrello"));
 
         cartItemRepository.delete(item);
+        stockReservations.release(userId, productId);
         return getCartResponse(cart);
     }
 
     // Recupera carrello utente
     public CartResponse getCart(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Utente non trovato"));
+        if (cartStore.isEnabled()) {
+            return getCartResponse(cartStore.get(userId));
+        }
 
-        Cart cart = cartRepository.findByUser(user)
-                .orElseThrow(() -> new IllegalArgumentException("Carrello non trovato"));
+        // Carrello, righe e prodotti in una query; l'utente si controlla solo se il carrello non c'è
+        Cart cart = cartRepository.findWithItemsByUserId(userId)
+                .orElseThrow(() -> new IllegalArgumentException(userRepository.existsById(userId)
+                        ? "Carrello non trovato"
+                        : "Utente non trovato"));
 
-        return getCartResponse(cart);
+        return getCartResponse(cart, cart.getCartItems());
     }
 
-    // Svuota carrello
+    /**
+     * Svuota il carrello. Dentro una transazione (es. il checkout) lo stato in memoria, cioè
+     * il carrello write-behind e le prenotazioni di stock, viene toccato solo dopo il commit:
+     * se l'ordine va in rollback il carrello e i pezzi tenuti restano com'erano.
+     */
     public void clearCart(Long userId) {
+        if (cartStore.isEnabled()) {
+            afterCommit(() -> {
+                cartStore.clear(userId);
+                stockReservations.releaseAll(userId);
+            });
+            return;
+        }
+
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Utente non trovato"));
 
@@ -97,6 +257,124 @@ public class CartService {
                 .orElseThrow(() -> new IllegalArgumentException("Carrello non trovato"));
 
         cartItemRepository.deleteByCart(cart);
+        afterCommit(() -> stockReservations.releaseAll(userId));
+    }
+
+    /**
+     * Dopo un checkout che ha già cancellato le righe sul DB (group commit):
+     * toglie solo lo stato in memoria, cioè il carrello write-behind e le prenotazioni di stock.
+     */
+    public void clearAfterCheckout(Long userId) {
+        if (cartStore.isEnabled()) {
+            cartStore.clear(userId);
+        }
+        stockReservations.releaseAll(userId);
+    }
+
+    // Esegue action dopo il commit della transazione corrente, o subito se non c'è una transazione
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+        action.run();
+    }
+
+    /**
+     * Esegue la scrittura del carrello e, se fallisce, riporta le prenotazioni a previousHolds.
+     * Dentro una transazione il ripristino avviene al rollback, così copre anche un commit fallito.
+     */
+    private void restoreHoldsOnFailure(Long userId, Map<Long, Integer> previousHolds, Runnable write) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        stockReservations.restore(userId, previousHolds);
+                    }
+                }
+            });
+            write.run();
+            return;
+        }
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            stockReservations.restore(userId, previousHolds);
+            throw e;
+        }
+    }
+
+    // Applica le operazioni in ordine e prenota le quantità finali dei prodotti toccati
+    private Map<Long, Integer> applyOperations(Long userId, Map<Long, Integer> current,
+                                               List<CartOperationRequest> operations, Map<Long, Product> products) {
+        Map<Long, Integer> updated = new LinkedHashMap<>(current);
+        Set<Long> touched = new HashSet<>();
+
+        for (CartOperationRequest operation : operations) {
+            Long productId = operation.getProductId();
+            int quantity = operation.getQuantity() != null ? operation.getQuantity() : 0;
+            switch (operation.getType()) {
+                case ADD -> {
+                    if (quantity < 1) {
+                        throw new IllegalArgumentException("Quantità deve essere almeno 1");
+                    }
+                    updated.merge(productId, quantity, Integer::sum);
+                }
+                case REMOVE -> {
+                    if (updated.remove(productId) == null) {
+                        throw new IllegalArgumentException("Prodotto non nel carrello: " + productId);
+                    }
+                }
+                case SET -> {
+                    if (quantity == 0) {
+                        updated.remove(productId);
+                    } else {
+                        updated.put(productId, quantity);
+                    }
+                }
+            }
+            touched.add(productId);
+        }
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        Map<Long, Integer> stock = new HashMap<>();
+        for (Long productId : touched) {
+            quantities.put(productId, updated.getOrDefault(productId, 0));
+            stock.put(productId, products.get(productId).getStockQuantity());
+        }
+        Long unavailable = stockReservations.holdAll(userId, quantities, stock);
+        if (unavailable != null) {
+            throw new IllegalArgumentException("Quantità non disponibile: " + products.get(unavailable).getName());
+        }
+        return updated;
+    }
+
+    // Pezzi aggiunti per prodotto (solo gli aumenti), per la classifica "più aggiunti al carrello"
+    private Map<Long, Integer> addedQuantities(Map<Long, Integer> before, Map<Long, Integer> after) {
+        Map<Long, Integer> added = new HashMap<>();
+        after.forEach((productId, quantity) -> {
+            int delta = quantity - before.getOrDefault(productId, 0);
+            if (delta > 0) {
+                added.put(productId, delta);
+            }
+        });
+        return added;
+    }
+
+    private void publishCartAdds(Map<Long, Integer> added) {
+        added.forEach((productId, quantity) ->
+                eventPublisher.publishEvent(new ProductAddedToCartEvent(productId, quantity)));
+    }
+
+    // Porta sul DB le modifiche in memoria del carrello (prima di leggerlo da carts/cart_items)
+    public void flushCart(Long userId) {
+        cartStore.flush(userId);
     }
 
     // Trova o crea carrello
@@ -118,25 +396,81 @@ public class CartService {
         return cartRepository.save(cart);
     }
 
-    // Converte Cart a CartResponse
+    // Converte Cart a CartResponse rileggendo righe e prodotti con una query
     private CartResponse getCartResponse(Cart cart) {
-        List<CartItem> items = cartItemRepository.findByCart(cart);
+        return getCartResponse(cart, cartItemRepository.findWithProductByCartId(cart.getId()));
+    }
 
+    // Converte Cart a CartResponse: totali calcolati sulle righe già caricate
+    private CartResponse getCartResponse(Cart cart, List<CartItem> items) {
         List<CartItemResponse> itemResponses = items.stream()
                 .map(this::convertToItemResponse)
                 .toList();
 
+        long totalCents = 0;
+        int totalItems = 0;
+        for (CartItemResponse item : itemResponses) {
+            totalCents = Math.addExact(totalCents, item.getTotalPrice().cents());
+            totalItems += item.getQuantity();
+        }
+
         return CartResponse.builder()
                 .id(cart.getId())
                 .items(itemResponses)
-                .totalAmount(cart.getTotalAmount())
-                .totalItems(cart.getTotalItems())
+                .totalAmount(Money.ofCents(totalCents))
+                .totalItems(totalItems)
                 .updatedAt(cart.getUpdatedAt() != null ?
                         cart.getUpdatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) :
                         cart.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
                 .build();
     }
 
+    // Converte un carrello in memoria a CartResponse (prodotti dalla cache, niente query se già presenti)
+    private CartResponse getCartResponse(CartSnapshot cart) {
+        List<CartItemResponse> itemResponses = new ArrayList<>();
+        long totalCents = 0;
+        int totalItems = 0;
+
+        for (Map.Entry<Long, Integer> entry : cart.getItems().entrySet()) {
+            Product product = productCache.get(entry.getKey())
+                    .map(cached -> Product.builder()
+                            .id(cached.getId())
+                            .name(cached.getName())
+                            .price(Money.of(cached.getPrice()))
+                            .imageUrl(cached.getImageUrl())
+                            .stockQuantity(cached.getStockQuantity())
+                            .build())
+                    // Prodotto disattivato: non è in cache
+                    .or(() -> productRepository.findById(entry.getKey()))
+                    .orElse(null);
+            if (product == null) {
+                continue;
+            }
+
+            Money totalPrice = product.getPrice().times(entry.getValue());
+            itemResponses.add(CartItemResponse.builder()
+                    .productId(product.getId())
+                    .productName(product.getName())
+                    .unitPrice(product.getPrice())
+                    .productImageUrl(product.getImageUrl())
+                    .quantity(entry.getValue())
+                    .totalPrice(totalPrice)
+                    .productInStock(product.isInStock())
+                    .build());
+            totalCents = Math.addExact(totalCents, totalPrice.cents());
+            totalItems += entry.getValue();
+        }
+
+        return CartResponse.builder()
+                .id(cart.getCartId())
+                .items(itemResponses)
+                .totalAmount(Money.ofCents(totalCents))
+                .totalItems(totalItems)
+                .updatedAt((cart.getUpdatedAt() != null ? cart.getUpdatedAt() : cart.getCreatedAt())
+                        .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .build();
+    }
+
     // Converte CartItem a CartItemResponse
     private CartItemResponse convertToItemResponse(CartItem item) {
         Product product = item.getProduct();
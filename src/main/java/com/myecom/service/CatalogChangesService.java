@@ -0,0 +1,102 @@
+package com.myecom.service;
+
+import com.myecom.dto.product.CatalogChangesResponse;
+import com.myecom.model.Category;
+import com.myecom.model.Product;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.service.mapper.ProductMapper;
+import com.myecom.service.pagination.ChangeWatermark;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Feed delle modifiche al catalogo per la sincronizzazione incrementale (client mobile, cache edge).
+ *
+ * Il client manda il watermark ricevuto l'ultima volta e riceve solo prodotti e categorie
+ * modificati dopo, disattivazioni incluse. La lettura è keyset su (updatedAt, id):
+ * ogni richiesta costa come la prima, a prescindere da quante modifiche ci sono state.
+ *
+ * Le modifiche degli ultimi "settle-time" non vengono ancora restituite: una transazione
+ * che committa in ritardo con un updatedAt più vecchio finirebbe altrimenti prima del
+ * watermark già inviato e il client non la vedrebbe mai.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogChangesService {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ProductMapper productMapper;
+
+    @Value("${catalog.changes.settle-time:5s}")
+    private Duration settleTime;
+
+    /**
+     * Le righe scritte prima che updatedAt venisse valorizzato all'inserimento
+     * non comparirebbero mai nel feed: si allineano una volta all'avvio.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillUpdatedAt() {
+        int products = productRepository.backfillUpdatedAt();
+        int categories = categoryRepository.backfillUpdatedAt();
+        if (products > 0 || categories > 0) {
+            log.info("Backfilled updatedAt on {} products and {} categories", products, categories);
+        }
+    }
+
+    /**
+     * Modifiche dopo il watermark, al massimo "limit" prodotti e "limit" categorie.
+     *
+     * @param since watermark della richiesta precedente (null o vuoto = sincronizzazione completa)
+     */
+    @Transactional(readOnly = true)
+    public CatalogChangesResponse getChanges(String since, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Il limite deve essere compreso tra 1 e " + MAX_LIMIT);
+        }
+
+        ChangeWatermark from = ChangeWatermark.decode(since);
+        LocalDateTime until = LocalDateTime.now().minus(settleTime);
+
+        // Un elemento in più per sapere se c'è altro da leggere
+        List<Product> products = productRepository.findChangedAfter(
+                from.getProductUpdatedAt(), from.getProductId(), until, PageRequest.of(0, limit + 1));
+        List<Category> categories = categoryRepository.findChangedAfter(
+                from.getCategoryUpdatedAt(), from.getCategoryId(), until, PageRequest.of(0, limit + 1));
+
+        boolean hasMore = products.size() > limit || categories.size() > limit;
+        List<Product> productPage = products.size() > limit ? products.subList(0, limit) : products;
+        List<Category> categoryPage = categories.size() > limit ? categories.subList(0, limit) : categories;
+
+        // Il watermark avanza solo sugli elementi effettivamente restituiti
+        Product lastProduct = productPage.isEmpty() ? null : productPage.get(productPage.size() - 1);
+        Category lastCategory = categoryPage.isEmpty() ? null : categoryPage.get(categoryPage.size() - 1);
+        ChangeWatermark next = ChangeWatermark.of(
+                lastProduct != null ? lastProduct.getUpdatedAt() : from.getProductUpdatedAt(),
+                lastProduct != null ? lastProduct.getId() : from.getProductId(),
+                lastCategory != null ? lastCategory.getUpdatedAt() : from.getCategoryUpdatedAt(),
+                lastCategory != null ? lastCategory.getId() : from.getCategoryId());
+
+        return CatalogChangesResponse.builder()
+                .products(productPage.stream().map(productMapper::toResponse).toList())
+                .categories(categoryPage.stream().map(productMapper::toCategoryResponse).toList())
+                .watermark(next.encode())
+                .hasMore(hasMore)
+                .build();
+    }
+}
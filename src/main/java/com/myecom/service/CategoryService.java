@@ -1,11 +1,19 @@
 package com.myecom.service;
 
+import com.myecom.dto.product.CategoryProductCount;
 import com.myecom.dto.product.CategoryRequest;
 import com.myecom.dto.product.CategoryResponse;
+import com.myecom.events.CategoryChangedEvent;
 import com.myecom.model.Category;
 import com.myecom.repository.CategoryRepository;
+import com.myecom.service.cache.CategorySnapshotCache;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -24,10 +32,17 @@ import java.util.Optional;
  */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
 
+    // Annuncia le modifiche alle categorie (es. per invalidare la cache prodotti)
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Categorie attive già mappate e serializzate, aggiornate a ogni modifica
+    private final CategorySnapshotCache categorySnapshotCache;
+
     /**
      * Crea una nuova categoria verificando che non esista già una con lo stesso nome.
      *
@@ -51,6 +66,7 @@ public class CategoryService {
 
         // Salva nel database
         Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory));
 
         // Converte l'entità salvata in DTO per la risposta
         return convertToResponse(savedCategory);
@@ -60,11 +76,17 @@ public class CategoryService {
      * Recupera tutte le categorie attive per il catalogo pubblico.
      *
      * Le categorie disattive non vengono mostrate ai clienti.
+     * Lista immutabile servita dalla fotografia in memoria (nessuna query).
      */
     public List<CategoryResponse> getActiveCategories() {
-        return categoryRepository.findByActiveTrue().stream()
-                .map(this::convertToResponse)
-                .toList();
+        return categorySnapshotCache.get().getCategories();
+    }
+
+    /**
+     * Categorie attive come JSON già serializzato, per l'endpoint pubblico.
+     */
+    public byte[] getActiveCategoriesJson() {
+        return categorySnapshotCache.get().getJson();
     }
 
     /**
@@ -76,6 +98,27 @@ public class CategoryService {
                 .toList();
     }
 
+    /**
+     * Tutte le categorie con il numero di prodotti attivi, per menu di navigazione e statistiche admin.
+     *
+     * I numeri vengono dai contatori mantenuti a ogni scrittura dei prodotti:
+     * una riga per categoria, senza contare i prodotti.
+     */
+    public List<CategoryProductCount> getProductCounts() {
+        return categoryRepository.findProductCounts();
+    }
+
+    /**
+     * Riallinea i contatori dei prodotti attivi all'avvio: copre le righe scritte
+     * prima che esistessero o modificate direttamente sul DB.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void recountActiveProducts() {
+        int categories = categoryRepository.recountActiveProducts();
+        log.info("Active product counters recomputed for {} categories", categories);
+    }
+
     /**
      * Trova una categoria specifica per ID.
      */
@@ -118,6 +161,7 @@ public class CategoryService {
         }
 
         Category updatedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(updatedCategory));
         return convertToResponse(updatedCategory);
     }
 
@@ -132,7 +176,8 @@ public class CategoryService {
                 .orElseThrow(() -> new IllegalArgumentException("Categoria non trovata"));
 
         category.setActive(false);
-        categoryRepository.save(category);
+        Category deactivatedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(deactivatedCategory));
     }
 
     /**
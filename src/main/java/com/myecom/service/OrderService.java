@@ -4,6 +4,7 @@ import com.myecom.dto.order.CreateOrderRequest;
 import com.myecom.dto.order.OrderResponse;
 import com.myecom.exception.BusinessException;
 import com.myecom.model.CartItem;
+import com.myecom.model.Money;
 import com.myecom.model.User;
 import com.myecom.repository.OrderRepository;
 import com.myecom.repository.UserRepository;
@@ -12,7 +13,6 @@ import com.myecom.service.mapper.OrderMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -66,10 +66,12 @@ public class OrderService {
     /**
      * Calcola il totale dell'ordine
      */
-    private BigDecimal calculateTotalAmount(List<CartItem> cartItems) {
-        return cartItems.stream()
-                .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private Money calculateTotalAmount(List<CartItem> cartItems) {
+        long cents = 0;
+        for (CartItem item : cartItems) {
+            cents = Math.addExact(cents, item.getProduct().getPrice().centsTimes(item.getQuantity()));
+        }
+        return Money.ofCents(cents);
     }
 
     /**
@@ -0,0 +1,70 @@
+package com.myecom.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myecom.dto.product.ProductProjection;
+import com.myecom.repository.ProductRepository;
+import com.myecom.service.mapper.ProductMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export del catalogo attivo in NDJSON (un ProductResponse JSON per riga).
+ *
+ * Memoria costante a prescindere dalla dimensione del catalogo:
+ * - le righe arrivano dal cursore JDBC a blocchi (fetch size sulla query)
+ * - si leggono proiezioni DTO, non entità: il persistence context resta vuoto
+ *   e non serve fare detach/clear
+ * - ogni prodotto viene scritto subito con il generatore streaming di Jackson
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductExportService {
+
+    // Ogni quanti prodotti svuotare il buffer verso il client
+    private static final int FLUSH_EVERY = 500;
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Scrive tutti i prodotti attivi sullo stream. Lo stream non viene chiuso.
+     *
+     * @return numero di prodotti esportati
+     */
+    @Transactional(readOnly = true)
+    public long exportActiveProducts(OutputStream output) {
+        long exported = 0;
+
+        try (Stream<ProductProjection> products = productRepository.streamActiveProjections();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<ProductProjection> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(productMapper.toResponse(iterator.next()));
+                generator.writeRaw('\n');
+
+                if (++exported % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Errore di scrittura durante l'export", e);
+        }
+
+        log.info("Product export completed: {} products", exported);
+        return exported;
+    }
+}
@@ -0,0 +1,344 @@
+package com.myecom.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myecom.dto.product.ProductImportResponse;
+import com.myecom.dto.product.ProductRequest;
+import com.myecom.events.CatalogImportedEvent;
+import com.myecom.repository.CategoryRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Import massivo di prodotti da NDJSON (un ProductRequest JSON per riga) o CSV con intestazione.
+ *
+ * Il file viene letto riga per riga dallo stream della richiesta, senza tenerlo in memoria:
+ * le righe valide vengono accumulate fino a "batch-size" e scritte con un batch JDBC
+ * in una transazione per blocco. Gli id IDENTITY impediscono a Hibernate di raggruppare
+ * gli insert, per questo qui si usa direttamente JdbcTemplate.
+ *
+ * Le righe non valide (JSON/CSV malformato, validazione, categoria inesistente) vengono
+ * scartate e riportate nella risposta con il numero di riga.
+ *
+ * Gli id generati delimitano l'intervallo pubblicato con CatalogImportedEvent:
+ * gli indici in memoria aggiungono solo quei prodotti, senza ricostruirsi.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductImportService {
+
+    public enum Format { NDJSON, CSV }
+
+    // Oltre questo numero gli errori vengono solo contati
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO products (name, description, price, stock_quantity, image_url, brand, active, created_at, updated_at, category_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String COUNT_SQL =
+            "UPDATE categories SET active_product_count = active_product_count + ? WHERE id = ?";
+
+    private static final List<String> CSV_COLUMNS = List.of(
+            "name", "description", "price", "stockquantity", "imageurl", "brand", "categoryid", "active");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${catalog.import.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Importa i prodotti letti dallo stream. Lo stream non viene chiuso.
+     */
+    public ProductImportResponse importProducts(InputStream input, Format format) {
+        ImportRun run = new ImportRun();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        try {
+            Map<String, Integer> csvHeader = null;
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                if (format == Format.CSV && csvHeader == null) {
+                    csvHeader = parseCsvHeader(line);
+                    continue;
+                }
+
+                run.totalRows++;
+                try {
+                    ProductRequest request = format == Format.CSV ? parseCsvRow(line, csvHeader) : parseJson(line);
+                    validate(request, run);
+                    run.add(lineNumber, request);
+                } catch (IllegalArgumentException e) {
+                    run.reject(lineNumber, e.getMessage());
+                }
+
+                if (run.pending.size() >= batchSize) {
+                    flush(run);
+                }
+            }
+            flush(run);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Errore di lettura durante l'import", e);
+        }
+
+        log.info("Product import completed: {} rows, {} imported, {} failed", run.totalRows, run.imported, run.failed);
+        if (run.imported > 0) {
+            eventPublisher.publishEvent(new CatalogImportedEvent(run.imported, run.firstId, run.lastId));
+        }
+
+        return ProductImportResponse.builder()
+                .totalRows(run.totalRows)
+                .imported(run.imported)
+                .failed(run.failed)
+                .errors(run.errors)
+                .build();
+    }
+
+    // Scrive il blocco corrente in una transazione con un solo batch JDBC
+    private void flush(ImportRun run) {
+        if (run.pending.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = run.pending.stream()
+                .map(request -> new Object[]{
+                        request.getName().trim(),
+                        request.getDescription(),
+                        request.getPrice(),
+                        request.getStockQuantity(),
+                        request.getImageUrl(),
+                        request.getBrand(),
+                        request.getActive() == null || request.getActive(),
+                        now,
+                        now,
+                        request.getCategoryId()})
+                .toList();
+
+        // Prodotti attivi del blocco per categoria: i contatori avanzano nella stessa transazione degli insert
+        List<Object[]> counts = run.pending.stream()
+                .filter(request -> request.getActive() == null || request.getActive())
+                .collect(Collectors.groupingBy(ProductRequest::getCategoryId, Collectors.counting()))
+                .entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList();
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                        rowSetter(rows), keys);
+                jdbcTemplate.batchUpdate(COUNT_SQL, counts);
+            });
+            run.imported += rows.size();
+            for (Map<String, Object> key : keys.getKeyList()) {
+                run.addId(((Number) key.values().iterator().next()).longValue());
+            }
+        } catch (DataAccessException e) {
+            // Il blocco è stato annullato per intero: tutte le sue righe risultano fallite
+            log.warn("Product import batch failed: {}", e.getMessage());
+            for (Long lineNumber : run.pendingLines) {
+                run.reject(lineNumber, "Errore di scrittura del blocco: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+
+        run.pending.clear();
+        run.pendingLines.clear();
+    }
+
+    // Stessi parametri di batchUpdate(sql, rows), su uno statement che restituisce gli id generati
+    private BatchPreparedStatementSetter rowSetter(List<Object[]> rows) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                new ArgumentPreparedStatementSetter(rows.get(i)).setValues(ps);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        };
+    }
+
+    private ProductRequest parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, ProductRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON non valido: " + e.getOriginalMessage());
+        }
+    }
+
+    // Mappa il nome della colonna (senza distinzione di maiuscole, "_" ignorati) alla sua posizione
+    private Map<String, Integer> parseCsvHeader(String line) {
+        List<String> names = splitCsv(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String column = names.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT);
+            if (CSV_COLUMNS.contains(column)) {
+                header.put(column, i);
+            }
+        }
+        if (!header.containsKey("name") || !header.containsKey("price")
+                || !header.containsKey("stockquantity") || !header.containsKey("categoryid")) {
+            throw new IllegalArgumentException(
+                    "Intestazione CSV non valida: servono almeno le colonne name, price, stockQuantity, categoryId");
+        }
+        return header;
+    }
+
+    private ProductRequest parseCsvRow(String line, Map<String, Integer> header) {
+        List<String> values = splitCsv(line);
+        try {
+            String active = csvValue(values, header, "active");
+            return ProductRequest.builder()
+                    .name(csvValue(values, header, "name"))
+                    .description(csvValue(values, header, "description"))
+                    .price(parseOrNull(csvValue(values, header, "price"), BigDecimal::new))
+                    .stockQuantity(parseOrNull(csvValue(values, header, "stockquantity"), Integer::valueOf))
+                    .imageUrl(csvValue(values, header, "imageurl"))
+                    .brand(csvValue(values, header, "brand"))
+                    .categoryId(parseOrNull(csvValue(values, header, "categoryid"), Long::valueOf))
+                    .active(active == null || Boolean.parseBoolean(active))
+                    .build();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valore numerico non valido");
+        }
+    }
+
+    private String csvValue(List<String> values, Map<String, Integer> header, String column) {
+        Integer index = header.get(column);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private <T> T parseOrNull(String value, Function<String, T> parser) {
+        return value == null ? null : parser.apply(value);
+    }
+
+    // Divide una riga CSV (RFC 4180, su una sola riga): virgolette per i campi con virgole, "" per le virgolette
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Virgolette non chiuse");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Bean validation di ProductRequest + esistenza della categoria (risolta una volta per import)
+    private void validate(ProductRequest request, ImportRun run) {
+        Set<ConstraintViolation<ProductRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+
+        boolean categoryExists = run.categories.computeIfAbsent(request.getCategoryId(), categoryRepository::existsById);
+        if (!categoryExists) {
+            throw new IllegalArgumentException("Categoria non trovata: " + request.getCategoryId());
+        }
+    }
+
+    // Stato di un singolo import: contatori, blocco in attesa di scrittura, categorie già risolte
+    private static class ImportRun {
+        private long totalRows;
+        private long imported;
+        private long failed;
+        private long firstId = Long.MAX_VALUE;
+        private long lastId = Long.MIN_VALUE;
+        private final List<ProductImportResponse.RowError> errors = new ArrayList<>();
+        private final List<ProductRequest> pending = new ArrayList<>();
+        private final List<Long> pendingLines = new ArrayList<>();
+        private final Map<Long, Boolean> categories = new HashMap<>();
+
+        private void add(long lineNumber, ProductRequest request) {
+            pending.add(request);
+            pendingLines.add(lineNumber);
+        }
+
+        private void addId(long id) {
+            firstId = Math.min(firstId, id);
+            lastId = Math.max(lastId, id);
+        }
+
+        private void reject(long lineNumber, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportResponse.RowError(lineNumber, message));
+            }
+        }
+    }
+}
@@ -1,28 +1,57 @@
 package com.myecom.service;
 
 import com.myecom.dto.product.*;
+import com.myecom.events.ProductChangedEvent;
 import com.myecom.model.Category;
+import com.myecom.model.Money;
 import com.myecom.model.Product;
 import com.myecom.repository.CategoryRepository;
 import com.myecom.repository.ProductRepository;
+import com.myecom.service.cache.ProductCache;
+import com.myecom.service.mapper.ProductMapper;
+import com.myecom.service.pagination.ProductCursor;
+import com.myecom.service.ranking.ProductRankings;
+import com.myecom.service.search.ProductFacetIndex;
+import com.myecom.service.search.ProductFilter;
+import com.myecom.service.search.ProductSearchIndex;
+import com.myecom.service.search.ProductSuggestIndex;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
+    private static final int MAX_RANKING_LIMIT = 100;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductCache productCache;
+    private final ProductRankings productRankings;
+    private final ProductMapper productMapper;
+
+    // Annuncia le modifiche al catalogo (indice di ricerca, ecc.)
+    private final ApplicationEventPublisher eventPublisher;
 
-    // Crea nuovo prodotto
+    // Crea nuovo prodotto (e aggiorna il contatore dei prodotti attivi della categoria nella stessa transazione)
+    @Transactional
     public ProductResponse createProduct(ProductRequest request) {
         Category category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new IllegalArgumentException("Categoria non trovata"));
@@ -30,7 +59,7 @@ public class ProductService {
         Product product = Product.builder()
                 .name(request.getName())
                 .description(request.getDescription())
-                .price(request.getPrice())
+                .price(Money.of(request.getPrice()))
                 .stockQuantity(request.getStockQuantity())
                 .imageUrl(request.getImageUrl())
                 .brand(request.getBrand())
@@ -39,24 +68,80 @@ public class ProductService {
                 .build();
 
         Product savedProduct = productRepository.save(product);
-        return convertToResponse(savedProduct);
+        categoryRepository.adjustActiveProductCount(category.getId(), 1);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct));
+        return productMapper.toResponse(savedProduct);
     }
 
-    // Trova prodotto per ID
+    // Aggiorna prodotto esistente (attivazione, disattivazione e cambio categoria spostano i contatori)
+    @Transactional
+    public ProductResponse updateProduct(Long id, ProductRequest request) {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Prodotto non trovato"));
+
+        Long previousCategoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        boolean wasActive = product.isActive();
+
+        Category category = categoryRepository.findById(request.getCategoryId())
+                .orElseThrow(() -> new IllegalArgumentException("Categoria non trovata"));
+
+        product.setName(request.getName());
+        product.setDescription(request.getDescription());
+        product.setPrice(Money.of(request.getPrice()));
+        product.setStockQuantity(request.getStockQuantity());
+        product.setImageUrl(request.getImageUrl());
+        product.setBrand(request.getBrand());
+        product.setCategory(category);
+        if (request.getActive() != null) {
+            product.setActive(request.getActive());
+        }
+
+        Product updatedProduct = productRepository.save(product);
+        adjustActiveProductCounts(previousCategoryId, wasActive, category.getId(), updatedProduct.isActive());
+        eventPublisher.publishEvent(new ProductChangedEvent(updatedProduct));
+        return productMapper.toResponse(updatedProduct);
+    }
+
+    // Toglie il prodotto dal contatore della vecchia categoria e lo aggiunge alla nuova, se era/è attivo
+    private void adjustActiveProductCounts(Long previousCategoryId, boolean wasActive, Long categoryId, boolean active) {
+        if (wasActive && active && Objects.equals(previousCategoryId, categoryId)) {
+            return;
+        }
+        if (wasActive && previousCategoryId != null) {
+            categoryRepository.adjustActiveProductCount(previousCategoryId, -1);
+        }
+        if (active) {
+            categoryRepository.adjustActiveProductCount(categoryId, 1);
+        }
+    }
+
+    // Trova prodotto per ID (read-through sulla cache dei prodotti attivi)
     public Optional<ProductResponse> findById(Long id) {
-        return productRepository.findById(id)
-                .filter(Product::isActive)
-                .map(this::convertToResponse);
+        return productCache.get(id);
     }
 
-    // Lista prodotti con paginazione
+    // Lista prodotti con paginazione (prodotto + categoria in una sola query)
     public PageResponse<ProductResponse> getProducts(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> productPage = productRepository.findByActiveTrue(pageable);
+        Page<ProductProjection> productPage = productRepository.findActiveProjections(pageable);
 
-        List<ProductResponse> products = productPage.getContent().stream()
-                .map(this::convertToResponse)
-                .toList();
+        return toPageResponse(productPage);
+    }
+
+    // Lista prodotti attivi di una categoria con paginazione
+    public PageResponse<ProductResponse> getProductsByCategory(Long categoryId, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        Page<ProductProjection> productPage = productRepository.findActiveProjectionsByCategory(categoryId, pageable);
+
+        return toPageResponse(productPage);
+    }
+
+    // Cerca prodotti tramite l'indice invertito in memoria, poi carica solo la pagina richiesta
+    public PageResponse<ProductResponse> searchProducts(String search, int page, int size) {
+        ProductSearchIndex.SearchHits hits = productSearchIndex.search(search, page, size);
+        List<ProductResponse> products = loadInRankOrder(hits.getProductIds());
+
+        Page<ProductResponse> productPage = new PageImpl<>(products, PageRequest.of(page, size), hits.getTotalHits());
 
         return PageResponse.<ProductResponse>builder()
                 .content(products)
@@ -68,13 +153,134 @@ public class ProductService {
                 .build();
     }
 
-    // Cerca prodotti
-    public PageResponse<ProductResponse> searchProducts(String search, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Product> productPage = productRepository.searchByNameOrDescription(search, pageable);
+    // Filtra il catalogo con l'indice a bitmap (marca, categoria, fascia di prezzo, disponibilità)
+    // e restituisce anche i conteggi delle faccette; il DB viene letto solo per la pagina richiesta
+    public ProductFilterResponse filterProducts(ProductFilter filter, int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("Parametri di paginazione non validi");
+        }
+
+        ProductFacetIndex.FacetResult result = productFacetIndex.filter(filter, page, size);
+        List<ProductResponse> products = loadInRankOrder(result.getProductIds());
+
+        Page<ProductResponse> productPage = new PageImpl<>(products, PageRequest.of(page, size), result.getTotalHits());
+
+        PageResponse<ProductResponse> pageResponse = PageResponse.<ProductResponse>builder()
+                .content(products)
+                .currentPage(productPage.getNumber())
+                .totalPages(productPage.getTotalPages())
+                .totalElements(productPage.getTotalElements())
+                .hasNext(productPage.hasNext())
+                .hasPrevious(productPage.hasPrevious())
+                .build();
 
+        return ProductFilterResponse.builder()
+                .products(pageResponse)
+                .brands(result.getBrands())
+                .categories(result.getCategories())
+                .priceBands(result.getPriceBands())
+                .inStock(result.getInStock())
+                .build();
+    }
+
+    // Autocompletamento dal trie in memoria: nessuna query sul DB
+    public List<ProductSuggestionResponse> suggest(String prefix, int limit) {
+        if (limit < 1 || limit > ProductSuggestIndex.MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("Il limite deve essere compreso tra 1 e " + ProductSuggestIndex.MAX_SUGGESTIONS);
+        }
+
+        return productSuggestIndex.suggest(prefix, limit).stream()
+                .map(suggestion -> ProductSuggestionResponse.builder()
+                        .text(suggestion.getText())
+                        .type(suggestion.getType())
+                        .productId(suggestion.getProductId())
+                        .build())
+                .toList();
+    }
+
+    // Prodotti più venduti, dalla classifica in memoria (niente GROUP BY sulle righe d'ordine)
+    public List<ProductResponse> getBestSellers(int limit) {
+        validateRankingLimit(limit);
+        return loadInRankOrder(productRankings.topSelling(limit));
+    }
+
+    // Prodotti più aggiunti ai carrelli, dalla classifica in memoria
+    public List<ProductResponse> getMostCarted(int limit) {
+        validateRankingLimit(limit);
+        return loadInRankOrder(productRankings.topCarted(limit));
+    }
+
+    // Lista prodotti in modalità keyset: niente OFFSET né COUNT, ogni pagina costa come la prima
+    public PageResponse<ProductResponse> getProductsAfter(String cursor, int size) {
+        size = cursorPageSize(size);
+
+        // Un elemento in più per sapere se esiste una pagina successiva
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<ProductProjection> products;
+        if (cursor == null || cursor.isBlank()) {
+            products = productRepository.findActiveProjectionsNewestFirst(limit);
+        } else {
+            ProductCursor position = ProductCursor.decode(cursor);
+            if (!position.isCreatedAtCursor()) {
+                throw new IllegalArgumentException("Cursore non valido");
+            }
+            products = productRepository.findActiveProjectionsAfter(position.getCreatedAt(), position.getId(), limit);
+        }
+
+        boolean hasNext = products.size() > size;
+        List<ProductProjection> pageContent = hasNext ? products.subList(0, size) : products;
+
+        String nextCursor = null;
+        if (hasNext) {
+            ProductProjection last = pageContent.get(pageContent.size() - 1);
+            nextCursor = ProductCursor.encode(last.getCreatedAt(), last.getId());
+        }
+
+        return PageResponse.<ProductResponse>builder()
+                .content(pageContent.stream().map(productMapper::toResponse).toList())
+                .hasNext(hasNext)
+                .hasPrevious(cursor != null && !cursor.isBlank())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // Cerca prodotti in modalità keyset: il cursore è la coppia (score, id) dell'ultimo risultato
+    public PageResponse<ProductResponse> searchProductsAfter(String search, String cursor, int size) {
+        size = cursorPageSize(size);
+
+        ProductSearchIndex.SearchHits hits;
+        if (cursor == null || cursor.isBlank()) {
+            hits = productSearchIndex.search(search, 0, size + 1);
+        } else {
+            ProductCursor position = ProductCursor.decode(cursor);
+            if (!position.isScoreCursor()) {
+                throw new IllegalArgumentException("Cursore non valido");
+            }
+            hits = productSearchIndex.searchAfter(search, position.getScore(), position.getId(), size + 1);
+        }
+
+        boolean hasNext = hits.getProductIds().size() > size;
+        List<Long> pageIds = hasNext ? hits.getProductIds().subList(0, size) : hits.getProductIds();
+
+        String nextCursor = null;
+        if (hasNext) {
+            int last = pageIds.size() - 1;
+            nextCursor = ProductCursor.encode(hits.getScores().get(last), pageIds.get(last));
+        }
+
+        return PageResponse.<ProductResponse>builder()
+                .content(loadInRankOrder(pageIds))
+                .totalElements(hits.getTotalHits())
+                .hasNext(hasNext)
+                .hasPrevious(cursor != null && !cursor.isBlank())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // Converte una pagina di proiezioni nel formato di risposta paginato
+    private PageResponse<ProductResponse> toPageResponse(Page<ProductProjection> productPage) {
         List<ProductResponse> products = productPage.getContent().stream()
-                .map(this::convertToResponse)
+                .map(productMapper::toResponse)
                 .toList();
 
         return PageResponse.<ProductResponse>builder()
@@ -87,30 +293,34 @@ public class ProductService {
                 .build();
     }
 
-    // Converte Product a ProductResponse
-    private ProductResponse convertToResponse(Product product) {
-        return ProductResponse.builder()
-                .id(product.getId())
-                .name(product.getName())
-                .description(product.getDescription())
-                .price(product.getPrice())
-                .stockQuantity(product.getStockQuantity())
-                .imageUrl(product.getImageUrl())
-                .brand(product.getBrand())
-                .active(product.isActive())
-                .inStock(product.isInStock())
-                .createdAt(product.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
-                .category(convertCategoryToResponse(product.getCategory()))
-                .build();
+    // Carica i prodotti indicati (una sola query) mantenendo l'ordine di rilevanza restituito dall'indice
+    private List<ProductResponse> loadInRankOrder(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, ProductProjection> productsById = productRepository.findProjectionsByIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductProjection::getId, Function.identity()));
+
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .filter(product -> Boolean.TRUE.equals(product.getActive()))
+                .map(productMapper::toResponse)
+                .toList();
     }
 
-    // Converte Category a CategoryResponse
-    private CategoryResponse convertCategoryToResponse(Category category) {
-        return CategoryResponse.builder()
-                .id(category.getId())
-                .name(category.getName())
-                .description(category.getDescription())
-                .active(category.isActive())
-                .build();
+    private void validateRankingLimit(int limit) {
+        if (limit < 1 || limit > MAX_RANKING_LIMIT) {
+            throw new IllegalArgumentException("Il limite deve essere compreso tra 1 e " + MAX_RANKING_LIMIT);
+        }
+    }
+
+    // Le pagine a cursore hanno un tetto: size + 1 non va in overflow e ogni pagina resta piccola
+    private int cursorPageSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("La dimensione della pagina deve essere almeno 1");
+        }
+        return Math.min(size, MAX_CURSOR_PAGE_SIZE);
     }
 }
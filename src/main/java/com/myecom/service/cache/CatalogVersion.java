@@ -0,0 +1,58 @@
+package com.myecom.service.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generazione del catalogo: un contatore che avanza a ogni modifica di prodotti o categorie.
+ * Le vendite cambiano solo lo stock e fanno avanzare un contatore separato.
+ *
+ * Finché non cambiano, ogni lettura del catalogo restituisce gli stessi dati: i valori
+ * diventano l'ETag delle risposte GET e una richiesta con If-None-Match uguale riceve 304
+ * senza toccare DB né serializzazione (vedi CatalogCacheInterceptor).
+ * Le risposte con i prodotti riportano lo stock e usano entrambi i contatori (stockEtag);
+ * quelle con le sole categorie non cambiano con le vendite e usano solo il primo (etag).
+ *
+ * L'ETag contiene anche l'istante di avvio, così dopo un riavvio (o su un'altra istanza)
+ * la stessa generazione non viene scambiata per gli stessi dati.
+ */
+@Component
+public class CatalogVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong stockGeneration = new AtomicLong();
+
+    /**
+     * Segnala che il catalogo è cambiato (chiamato dopo il commit).
+     */
+    public void bump() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Segnala che è cambiato solo lo stock di un prodotto (una vendita, dopo il commit).
+     */
+    public void bumpStock() {
+        stockGeneration.incrementAndGet();
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * ETag forte della generazione corrente, già tra virgolette.
+     */
+    public String etag() {
+        return "\"" + epoch + "-" + generation.get() + "\"";
+    }
+
+    /**
+     * ETag forte per le risposte che riportano lo stock: cambia anche a ogni vendita.
+     */
+    public String stockEtag() {
+        return "\"" + epoch + "-" + generation.get() + "-" + stockGeneration.get() + "\"";
+    }
+}
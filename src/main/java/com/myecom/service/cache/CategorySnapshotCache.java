@@ -0,0 +1,79 @@
+package com.myecom.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myecom.dto.product.CategoryResponse;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.service.mapper.ProductMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fotografia immutabile delle categorie attive, con il JSON della risposta già pronto.
+ *
+ * Le categorie cambiano poche volte a settimana ma vengono lette quasi a ogni pagina:
+ * la lettura è un solo accesso volatile, senza DB, mapping o serializzazione.
+ * A ogni modifica (dopo il commit, vedi CatalogChangeListener) viene costruita una nuova
+ * fotografia e sostituita in blocco: chi legge vede sempre la vecchia o la nuova, mai un misto.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CategorySnapshotCache {
+
+    private final CategoryRepository categoryRepository;
+    private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    /**
+     * Fotografia corrente (costruita alla prima richiesta se non ancora caricata).
+     */
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Rilegge le categorie attive e sostituisce la fotografia.
+     *
+     * Sincronizzato: due modifiche ravvicinate non possono sostituire una lettura
+     * più recente con una più vecchia.
+     */
+    public synchronized Snapshot refresh() {
+        List<CategoryResponse> categories = categoryRepository.findByActiveTrue().stream()
+                .map(productMapper::toCategoryResponse)
+                .toList();
+        try {
+            Snapshot refreshed = new Snapshot(categories, objectMapper.writeValueAsBytes(categories));
+            snapshot = refreshed;
+            log.debug("Active category snapshot refreshed: {} categories", categories.size());
+            return refreshed;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Serializzazione delle categorie attive fallita", e);
+        }
+    }
+
+    /**
+     * Categorie attive e relativo JSON. Da non modificare: è condivisa tra tutte le richieste.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+        private final List<CategoryResponse> categories;
+        private final byte[] json;
+    }
+}
@@ -0,0 +1,106 @@
+package com.myecom.service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.myecom.dto.product.ProductResponse;
+import com.myecom.model.Product;
+import com.myecom.repository.ProductRepository;
+import com.myecom.service.mapper.ProductMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Cache read-through dei ProductResponse già costruiti per GET /api/products/{id}.
+ *
+ * - Eviction W-TinyLFU limitata per numero di elementi (Caffeine)
+ * - TTL assoluto + refresh-ahead: dopo refresh-after il valore viene ricaricato
+ *   in background alla prima lettura, senza far attendere il client
+ * - Invalidazione esplicita quando cambia un prodotto o la sua categoria
+ * - Contatori hit/miss/eviction esposti su Micrometer come cache "products"
+ *
+ * Contiene solo prodotti attivi: un prodotto inesistente o disattivato non viene messo in cache.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCache {
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${catalog.product-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${catalog.product-cache.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${catalog.product-cache.refresh-after:5m}")
+    private Duration refreshAfter;
+
+    private LoadingCache<Long, ProductResponse> cache;
+
+    @PostConstruct
+    void init() {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats();
+
+        // Il refresh ha senso solo se avviene prima della scadenza
+        if (refreshAfter != null && !refreshAfter.isZero() && refreshAfter.compareTo(ttl) < 0) {
+            builder.refreshAfterWrite(refreshAfter);
+        }
+
+        cache = builder.build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+
+        log.info("Product cache configured: maxSize={}, ttl={}, refreshAfter={}", maxSize, ttl, refreshAfter);
+    }
+
+    /**
+     * Restituisce il prodotto attivo, caricandolo dal DB (una sola query con la categoria) se non è in cache.
+     */
+    public Optional<ProductResponse> get(Long productId) {
+        return Optional.ofNullable(cache.get(productId));
+    }
+
+    /**
+     * Rimuove un prodotto dalla cache (dopo creazione, modifica o variazione di stock).
+     */
+    public void invalidate(Long productId) {
+        cache.invalidate(productId);
+    }
+
+    /**
+     * Rimuove tutti i prodotti di una categoria (dopo modifica o disattivazione della categoria).
+     */
+    public void invalidateCategory(Long categoryId) {
+        cache.asMap().values().removeIf(product ->
+                product.getCategory() != null && categoryId.equals(product.getCategory().getId()));
+    }
+
+    /**
+     * Statistiche correnti (hit, miss, eviction, tempi di caricamento).
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // Loader della cache: null = prodotto non disponibile, non viene memorizzato
+    private ProductResponse load(Long productId) {
+        return productRepository.findWithCategoryById(productId)
+                .filter(Product::isActive)
+                .map(productMapper::toResponse)
+                .orElse(null);
+    }
+}
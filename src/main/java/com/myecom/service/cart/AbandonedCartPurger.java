@@ -0,0 +1,157 @@
+package com.myecom.service.cart;
+
+import com.myecom.repository.CartItemRepository;
+import com.myecom.repository.CartRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cancella periodicamente i carrelli abbandonati e le loro righe.
+ *
+ * - I carrelli vengono letti per id crescente (keyset: id > ultimo id visto), batch-size
+ *   alla volta, e cancellati con due DELETE ... WHERE id IN (...) in una transazione per blocco;
+ *   le DELETE ricontrollano il cutoff, così un carrello usato nel frattempo non viene toccato
+ * - Tra un blocco e l'altro il job si ferma quanto serve a restare entro max-db-load,
+ *   cioè la frazione di tempo che può passare sul DB (0.2 = al massimo 200 ms ogni secondo)
+ * - I carrelli tenuti in memoria da WriteBehindCartStore non vengono toccati
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AbandonedCartPurger {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final WriteBehindCartStore cartStore;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cart.purge.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cart.purge.abandoned-after:30d}")
+    private Duration abandonedAfter;
+
+    @Value("${cart.purge.batch-size:500}")
+    private int batchSize;
+
+    @Value("${cart.purge.max-db-load:0.2}")
+    private double maxDbLoad;
+
+    @Scheduled(fixedDelayString = "${cart.purge.interval:1h}", initialDelayString = "${cart.purge.interval:1h}")
+    public void scheduledPurge() {
+        if (enabled) {
+            purge();
+        }
+    }
+
+    /**
+     * Cancella i carrelli non modificati da abandoned-after.
+     */
+    public CartPurgeResult purge() {
+        if (maxDbLoad <= 0 || maxDbLoad > 1) {
+            throw new IllegalArgumentException("cart.purge.max-db-load deve essere tra 0 (escluso) e 1");
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(abandonedAfter);
+        long started = System.nanoTime();
+        long dbNanos = 0;
+        long afterId = 0;
+        int deletedCarts = 0;
+        int deletedItems = 0;
+        int batches = 0;
+
+        while (true) {
+            long batchStarted = System.nanoTime();
+            Batch batch = deleteBatch(afterId, cutoff);
+            long batchNanos = System.nanoTime() - batchStarted;
+            dbNanos += batchNanos;
+
+            if (batch.scanned == 0) {
+                break;
+            }
+            batches++;
+            afterId = batch.lastId;
+            deletedCarts += batch.carts;
+            deletedItems += batch.items;
+
+            if (batch.scanned < batchSize || !throttle(batchNanos)) {
+                break;
+            }
+        }
+
+        CartPurgeResult result = new CartPurgeResult(deletedCarts, deletedItems, batches,
+                Duration.ofNanos(dbNanos), Duration.ofNanos(System.nanoTime() - started));
+
+        meterRegistry.counter("cart.purge.deleted", "table", "carts").increment(deletedCarts);
+        meterRegistry.counter("cart.purge.deleted", "table", "cart_items").increment(deletedItems);
+        if (deletedCarts > 0) {
+            log.info("Purged {} abandoned carts and {} cart items in {} batches ({} ms on DB, {} ms total)",
+                    deletedCarts, deletedItems, batches, result.getDbTime().toMillis(), result.getElapsed().toMillis());
+        } else {
+            log.debug("No abandoned carts older than {}", cutoff);
+        }
+        return result;
+    }
+
+    // Un blocco: legge i prossimi id e cancella righe e carrelli nella stessa transazione
+    private Batch deleteBatch(long afterId, LocalDateTime cutoff) {
+        return transactionTemplate.execute(status -> {
+            List<Object[]> rows = cartRepository.findAbandonedCartIds(afterId, cutoff, PageRequest.of(0, batchSize));
+            Batch batch = new Batch();
+            batch.scanned = rows.size();
+            if (rows.isEmpty()) {
+                return batch;
+            }
+            batch.lastId = (Long) rows.get(rows.size() - 1)[0];
+
+            List<Long> cartIds = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                // Usato di recente ma non ancora salvato: il DB non lo sa ancora
+                if (!cartStore.isHeld((Long) row[1])) {
+                    cartIds.add((Long) row[0]);
+                }
+            }
+            if (!cartIds.isEmpty()) {
+                // Le DELETE ripetono il criterio di abbandono: tra la lettura e qui il carrello può essere stato usato
+                batch.items = cartItemRepository.deleteAbandonedByCartIdIn(cartIds, cutoff);
+                batch.carts = cartRepository.deleteAbandonedByIdIn(cartIds, cutoff);
+            }
+            return batch;
+        });
+    }
+
+    // Pausa proporzionale al tempo appena passato sul DB; false se il thread è stato interrotto
+    private boolean throttle(long batchNanos) {
+        long pauseMillis = (long) (batchNanos * (1 - maxDbLoad) / maxDbLoad / 1_000_000);
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Abandoned cart purge interrupted");
+            return false;
+        }
+    }
+
+    private static final class Batch {
+        private int scanned;
+        private long lastId;
+        private int carts;
+        private int items;
+    }
+}
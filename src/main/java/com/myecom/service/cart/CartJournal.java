@@ -0,0 +1,274 @@
+package com.myecom.service.cart;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Journal append-only delle modifiche ai carrelli in memoria (vedi WriteBehindCartStore).
+ *
+ * Ogni modifica è una riga con lo stato risultante (non la differenza), quindi
+ * riapplicare più volte la stessa riga dà lo stesso risultato:
+ * - "S|userId|productId|quantità": quantità del prodotto nel carrello (0 = rimosso)
+ * - "C|userId": carrello svuotato
+ *
+ * Ogni riga è su disco prima di rispondere al client, con un group commit: la scrittura
+ * avviene con un lock breve, poi chi scrive aspetta il thread "cart-journal-sync", che con
+ * un solo force rende durevoli tutte le righe accodate nel frattempo e sveglia chi le aspetta.
+ * Carrelli diversi non si mettono in fila dietro l'fsync l'uno dell'altro.
+ *
+ * A ogni salvataggio sul DB il journal corrente viene spostato in un file ".flushing"
+ * e ne riparte uno vuoto: il ".flushing" viene cancellato solo a salvataggio riuscito.
+ * Al riavvio vanno rilette entrambe le parti, nell'ordine ".flushing" → corrente.
+ */
+public class CartJournal implements AutoCloseable {
+
+    private final Path path;
+    private final Path flushingPath;
+    private FileChannel channel;
+
+    // Il force del thread di sync (read) non deve vedere il canale chiuso da rotate/close (write)
+    private final ReadWriteLock channelLock = new ReentrantReadWriteLock();
+
+    // Numero progressivo dell'ultima riga scritta (con il lock dell'oggetto)
+    private long appended;
+
+    // Stato del group commit, con il lock syncLock
+    private final Object syncLock = new Object();
+    private long requested;
+    private long synced;
+    private long failedUpTo;
+    private IOException syncFailure;
+    private boolean closed;
+    private Thread syncThread;
+
+    public CartJournal(Path path) {
+        this.path = path;
+        this.flushingPath = path.resolveSibling(path.getFileName() + ".flushing");
+    }
+
+    public synchronized void open() {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossibile aprire il journal dei carrelli: " + path, e);
+        }
+        if (syncThread == null) {
+            syncThread = new Thread(this::syncLoop, "cart-journal-sync");
+            syncThread.setDaemon(true);
+            syncThread.start();
+        }
+    }
+
+    public void recordQuantity(Long userId, Long productId, int quantity) {
+        append("S|" + userId + "|" + productId + "|" + quantity);
+    }
+
+    /**
+     * Più quantità dello stesso carrello con una sola scrittura su disco (modifiche in batch).
+     */
+    public void recordQuantities(Long userId, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        StringBuilder records = new StringBuilder();
+        quantities.forEach((productId, quantity) -> {
+            if (records.length() > 0) {
+                records.append('\n');
+            }
+            records.append("S|").append(userId).append('|').append(productId).append('|').append(quantity);
+        });
+        append(records.toString());
+    }
+
+    public void recordClear(Long userId) {
+        append("C|" + userId);
+    }
+
+    /**
+     * Sposta le righe scritte finora nel file ".flushing" e riparte con un journal vuoto.
+     * Se un salvataggio precedente è fallito, le righe vengono accodate a quelle ancora in attesa.
+     */
+    public synchronized void rotate() {
+        channelLock.writeLock().lock();
+        try {
+            // Le righe ruotate sono su disco anche se il thread di sync non le ha ancora confermate
+            channel.force(true);
+            if (channel.size() == 0) {
+                return;
+            }
+            channel.close();
+            if (Files.exists(flushingPath)) {
+                Files.write(flushingPath, Files.readAllBytes(path), StandardOpenOption.APPEND);
+                Files.delete(path);
+            } else {
+                Files.move(path, flushingPath);
+            }
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Rotazione del journal dei carrelli fallita", e);
+        } finally {
+            channelLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Le righe ruotate sono state salvate sul DB: non servono più.
+     */
+    public synchronized void commitRotated() {
+        try {
+            Files.deleteIfExists(flushingPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossibile cancellare " + flushingPath, e);
+        }
+    }
+
+    /**
+     * Tutte le righe non ancora salvate sul DB, dalla più vecchia.
+     */
+    public synchronized List<String> readAll() {
+        List<String> lines = new ArrayList<>();
+        try {
+            for (Path file : List.of(flushingPath, path)) {
+                if (Files.exists(file)) {
+                    Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+                            .filter(line -> !line.isBlank())
+                            .forEach(lines::add);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lettura del journal dei carrelli fallita", e);
+        }
+        return lines;
+    }
+
+    /**
+     * Ferma il thread di sync (dopo aver confermato le righe in attesa) e chiude il file.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (syncLock) {
+            closed = true;
+            syncLock.notifyAll();
+            thread = syncThread;
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            if (channel == null) {
+                return;
+            }
+            channelLock.writeLock().lock();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Chiusura del journal dei carrelli fallita", e);
+            } finally {
+                channelLock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Scrive la riga con il lock breve, poi aspetta che il thread di sync la porti su disco
+    private void append(String record) {
+        ByteBuffer buffer = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+        long sequence;
+        synchronized (this) {
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Scrittura sul journal dei carrelli fallita", e);
+            }
+            sequence = ++appended;
+        }
+        awaitSynced(sequence);
+    }
+
+    private void awaitSynced(long sequence) {
+        synchronized (syncLock) {
+            if (sequence > requested) {
+                requested = sequence;
+                syncLock.notifyAll();
+            }
+            while (synced < sequence) {
+                if (sequence <= failedUpTo) {
+                    throw new UncheckedIOException("Scrittura sul journal dei carrelli fallita", syncFailure);
+                }
+                if (closed && syncThread == null) {
+                    throw new IllegalStateException("Journal dei carrelli chiuso");
+                }
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrotto in attesa del journal dei carrelli", e);
+                }
+            }
+        }
+    }
+
+    // Un force (solo dati, non metadati) per tutte le righe scritte fino a quel momento
+    private void syncLoop() {
+        while (true) {
+            long target;
+            synchronized (syncLock) {
+                while (requested <= Math.max(synced, failedUpTo) && !closed) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        // Come una chiusura: conferma le righe in attesa ed esce
+                        closed = true;
+                    }
+                }
+                if (requested <= Math.max(synced, failedUpTo)) {
+                    syncThread = null;
+                    syncLock.notifyAll();
+                    return;
+                }
+                target = requested;
+            }
+
+            IOException failure = null;
+            channelLock.readLock().lock();
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                channelLock.readLock().unlock();
+            }
+
+            synchronized (syncLock) {
+                if (failure == null) {
+                    synced = target;
+                } else {
+                    failedUpTo = target;
+                    syncFailure = failure;
+                }
+                syncLock.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.myecom.service.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Esito di un giro di pulizia dei carrelli abbandonati (vedi AbandonedCartPurger).
+ */
+@Getter
+@AllArgsConstructor
+public class CartPurgeResult {
+
+    private final int deletedCarts;
+    private final int deletedItems;
+    private final int batches;
+
+    // Tempo passato nelle transazioni di cancellazione, senza le pause
+    private final Duration dbTime;
+    private final Duration elapsed;
+}
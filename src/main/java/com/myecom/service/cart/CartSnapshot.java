@@ -0,0 +1,26 @@
+package com.myecom.service.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Copia immutabile di un carrello in memoria (vedi WriteBehindCartStore).
+ *
+ * cartId è null finché il carrello non è stato salvato la prima volta sul DB.
+ */
+@Getter
+@AllArgsConstructor
+public class CartSnapshot {
+
+    private final Long userId;
+    private final Long cartId;
+
+    // productId → quantità, nell'ordine di inserimento
+    private final Map<Long, Integer> items;
+
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+}
@@ -0,0 +1,448 @@
+package com.myecom.service.cart;
+
+import com.myecom.model.Cart;
+import com.myecom.model.CartItem;
+import com.myecom.repository.CartItemRepository;
+import com.myecom.repository.CartRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Carrelli attivi tenuti in memoria, con salvataggio differito (write-behind) su carts/cart_items.
+ *
+ * Attivo solo con cart.write-behind.enabled=true, altrimenti CartService lavora direttamente sul DB.
+ *
+ * - Le modifiche vengono applicate alla mappa userId → carrello e scritte sul CartJournal
+ *   prima di rispondere: nessuna query per aggiungere, togliere o leggere un carrello già caricato
+ * - I carrelli modificati vengono salvati a intervalli regolari, in blocchi di flush-batch-size
+ *   carrelli per transazione, e subito prima del checkout (flush(userId))
+ * - Al riavvio il journal viene riapplicato sopra lo stato del DB e salvato
+ * - I carrelli già salvati e non usati da idle-eviction vengono tolti dalla memoria
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WriteBehindCartStore {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${cart.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cart.write-behind.journal-path:data/cart-journal.log}")
+    private String journalPath;
+
+    @Value("${cart.write-behind.flush-batch-size:100}")
+    private int flushBatchSize;
+
+    @Value("${cart.write-behind.idle-eviction:30m}")
+    private Duration idleEviction;
+
+    private final Map<Long, CartState> carts = new ConcurrentHashMap<>();
+
+    private CartJournal journal;
+    private TransactionTemplate flushTransaction;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * true se il carrello dell'utente è in memoria (usato di recente o con modifiche da salvare).
+     */
+    public boolean isHeld(Long userId) {
+        return enabled && carts.containsKey(userId);
+    }
+
+    /**
+     * Apre il journal e riapplica le modifiche non ancora salvate prima dell'ultimo arresto.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!enabled) {
+            return;
+        }
+
+        // Transazione separata: il salvataggio resta valido anche se il checkout che lo chiede fallisce
+        flushTransaction = new TransactionTemplate(transactionManager);
+        flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        journal = new CartJournal(Path.of(journalPath));
+        journal.open();
+
+        List<String> records = journal.readAll();
+        for (String record : records) {
+            replay(record);
+        }
+        flush();
+
+        log.info("Write-behind cart store ready: journal={}, {} records recovered", journalPath, records.size());
+    }
+
+    /**
+     * Carrello dell'utente (caricato dal DB al primo accesso).
+     */
+    public CartSnapshot get(Long userId) {
+        return withCart(userId, false, CartState::snapshot);
+    }
+
+    /**
+     * Toglie il prodotto dal carrello.
+     */
+    public CartSnapshot remove(Long userId, Long productId) {
+        return withCart(userId, false, state -> {
+            if (!state.items.containsKey(productId)) {
+                throw new IllegalArgumentException("Prodotto non nel carrello");
+            }
+            journal.recordQuantity(userId, productId, 0);
+            state.items.remove(productId);
+            state.touch();
+            return state.snapshot();
+        });
+    }
+
+    /**
+     * Sostituisce le quantità del carrello con quelle calcolate da change, creando il carrello se non esiste.
+     * change riceve una copia delle quantità correnti: se lancia un'eccezione il carrello resta invariato.
+     */
+    public CartSnapshot update(Long userId, UnaryOperator<Map<Long, Integer>> change) {
+        return withCart(userId, true, state -> {
+            Map<Long, Integer> updated = change.apply(new LinkedHashMap<>(state.items));
+
+            // Sul journal solo le quantità cambiate, 0 per i prodotti tolti
+            Map<Long, Integer> changed = new LinkedHashMap<>();
+            for (Long productId : state.items.keySet()) {
+                if (!updated.containsKey(productId)) {
+                    changed.put(productId, 0);
+                }
+            }
+            updated.forEach((productId, quantity) -> {
+                if (!quantity.equals(state.items.get(productId))) {
+                    changed.put(productId, quantity);
+                }
+            });
+            journal.recordQuantities(userId, changed);
+
+            state.items.clear();
+            state.items.putAll(updated);
+            state.touch();
+            return state.snapshot();
+        });
+    }
+
+    public void clear(Long userId) {
+        withCart(userId, false, state -> {
+            journal.recordClear(userId);
+            state.items.clear();
+            state.touch();
+            return null;
+        });
+    }
+
+    /**
+     * Salva subito il carrello dell'utente, se ha modifiche in sospeso (es. prima del checkout).
+     * Le righe del journal restano fino al prossimo flush completo: riapplicarle non cambia nulla.
+     *
+     * Prende solo il lock di salvataggio di questo carrello: i checkout di utenti diversi
+     * non si aspettano tra loro né aspettano il flush periodico degli altri carrelli.
+     */
+    public void flush(Long userId) {
+        if (!enabled || journal == null) {
+            return;
+        }
+        CartState state = carts.get(userId);
+        if (state == null) {
+            return;
+        }
+        state.flushLock.lock();
+        try {
+            CartSnapshot snapshot = state.takeDirty();
+            if (snapshot == null) {
+                return;
+            }
+            try {
+                persist(List.of(snapshot));
+            } catch (RuntimeException e) {
+                state.markDirty();
+                throw e;
+            }
+        } finally {
+            state.flushLock.unlock();
+        }
+    }
+
+    /**
+     * Salva tutti i carrelli modificati dall'ultimo flush.
+     *
+     * Il journal viene ruotato prima di raccogliere i carrelli modificati: una modifica
+     * concorrente finisce nel journal nuovo e rimette il carrello in coda per il giro successivo.
+     * La parte ruotata viene cancellata solo se tutti i blocchi sono stati salvati.
+     *
+     * Ogni blocco tiene i lock di salvataggio solo dei propri carrelli, dalla copia al commit:
+     * un flush(userId) concorrente non può salvare una versione più nuova che questo poi sovrascrive.
+     */
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-interval:5s}")
+    public synchronized void flush() {
+        if (!enabled || journal == null) {
+            return;
+        }
+
+        journal.rotate();
+
+        List<CartState> states = new ArrayList<>(carts.values());
+        int flushed = 0;
+        int failed = 0;
+        for (int from = 0; from < states.size() && failed == 0; from += flushBatchSize) {
+            List<CartState> batch = states.subList(from, Math.min(from + flushBatchSize, states.size()));
+            batch.forEach(state -> state.flushLock.lock());
+            List<CartState> taken = new ArrayList<>();
+            List<CartSnapshot> pending = new ArrayList<>();
+            try {
+                for (CartState state : batch) {
+                    CartSnapshot snapshot = state.takeDirty();
+                    if (snapshot != null) {
+                        taken.add(state);
+                        pending.add(snapshot);
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    persist(pending);
+                    flushed += pending.size();
+                }
+            } catch (RuntimeException e) {
+                // Riprova al prossimo flush; il journal ruotato resta su disco
+                taken.forEach(CartState::markDirty);
+                failed = taken.size();
+                log.warn("Flush carts failed, {} carts will be retried: {}", failed, e.getMessage());
+            } finally {
+                batch.forEach(state -> state.flushLock.unlock());
+            }
+        }
+
+        if (failed == 0) {
+            journal.commitRotated();
+            if (flushed > 0) {
+                log.debug("Flushed {} carts", flushed);
+            }
+        }
+
+        evictIdle();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        if (journal == null) {
+            return;
+        }
+        flush();
+        journal.close();
+    }
+
+    // Esegue l'azione con il lock del carrello, caricandolo dal DB se non è in memoria
+    private <T> T withCart(Long userId, boolean create, Function<CartState, T> action) {
+        while (true) {
+            CartState state = carts.get(userId);
+            if (state == null) {
+                CartState loaded = load(userId, create);
+                CartState existing = carts.putIfAbsent(userId, loaded);
+                state = existing != null ? existing : loaded;
+            }
+            synchronized (state) {
+                if (state.evicted) {
+                    continue; // Tolto dalla memoria nel frattempo: si ricarica
+                }
+                state.lastAccess = System.nanoTime();
+                return action.apply(state);
+            }
+        }
+    }
+
+    private CartState load(Long userId, boolean create) {
+        Cart cart = cartRepository.findWithItemsByUserId(userId).orElse(null);
+        if (cart == null) {
+            if (!userRepository.existsById(userId)) {
+                throw new IllegalArgumentException("Utente non trovato");
+            }
+            if (!create) {
+                throw new IllegalArgumentException("Carrello non trovato");
+            }
+            return new CartState(userId, null, LocalDateTime.now());
+        }
+
+        CartState state = new CartState(userId, cart.getId(), cart.getCreatedAt());
+        state.updatedAt = cart.getUpdatedAt();
+        for (CartItem item : cart.getCartItems()) {
+            state.items.put(item.getProduct().getId(), item.getQuantity());
+        }
+        return state;
+    }
+
+    // Riapplica una riga del journal sopra lo stato caricato dal DB
+    private void replay(String record) {
+        String[] fields = record.split("\\|");
+        try {
+            Long userId = Long.valueOf(fields[1]);
+            withCart(userId, true, state -> {
+                if ("C".equals(fields[0])) {
+                    state.items.clear();
+                } else {
+                    Long productId = Long.valueOf(fields[2]);
+                    int quantity = Integer.parseInt(fields[3]);
+                    if (quantity > 0) {
+                        state.items.put(productId, quantity);
+                    } else {
+                        state.items.remove(productId);
+                    }
+                }
+                state.touch();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Riga troncata o utente nel frattempo cancellato
+            log.warn("Skipping cart journal record '{}': {}", record, e.getMessage());
+        }
+    }
+
+    // Un blocco di carrelli in una transazione; aggiorna solo le righe cambiate
+    private void persist(List<CartSnapshot> snapshots) {
+        Map<Long, Long> createdCartIds = flushTransaction.execute(status -> {
+            Map<Long, Long> created = new HashMap<>();
+            for (CartSnapshot snapshot : snapshots) {
+                Cart cart = (snapshot.getCartId() != null
+                        ? cartRepository.findById(snapshot.getCartId())
+                        : cartRepository.findByUserId(snapshot.getUserId()))
+                        .orElse(null);
+                if (cart == null) {
+                    cart = cartRepository.save(Cart.builder()
+                            .user(userRepository.getReferenceById(snapshot.getUserId()))
+                            .createdAt(snapshot.getCreatedAt())
+                            .build());
+                }
+                if (!cart.getId().equals(snapshot.getCartId())) {
+                    created.put(snapshot.getUserId(), cart.getId());
+                }
+
+                Map<Long, Integer> wanted = new LinkedHashMap<>(snapshot.getItems());
+                for (CartItem item : cartItemRepository.findByCart(cart)) {
+                    Integer quantity = wanted.remove(item.getProduct().getId());
+                    if (quantity == null) {
+                        cartItemRepository.delete(item);
+                    } else if (!quantity.equals(item.getQuantity())) {
+                        item.setQuantity(quantity);
+                    }
+                }
+                for (Map.Entry<Long, Integer> entry : wanted.entrySet()) {
+                    cartItemRepository.save(CartItem.builder()
+                            .cart(cart)
+                            .product(productRepository.getReferenceById(entry.getKey()))
+                            .quantity(entry.getValue())
+                            .build());
+                }
+
+                // Segna il carrello come modificato anche se sono cambiate solo le righe
+                cart.setUpdatedAt(snapshot.getUpdatedAt());
+            }
+            return created;
+        });
+
+        if (createdCartIds != null) {
+            createdCartIds.forEach((userId, cartId) -> {
+                CartState state = carts.get(userId);
+                if (state != null) {
+                    synchronized (state) {
+                        state.cartId = cartId;
+                    }
+                }
+            });
+        }
+    }
+
+    // Toglie dalla memoria i carrelli salvati e non usati da idleEviction
+    private void evictIdle() {
+        long cutoff = System.nanoTime() - idleEviction.toNanos();
+        carts.values().removeIf(state -> {
+            synchronized (state) {
+                if (state.dirty || state.lastAccess - cutoff > 0) {
+                    return false;
+                }
+                state.evicted = true;
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Stato mutabile di un carrello: si legge e si modifica solo con il lock sull'oggetto.
+     */
+    private static final class CartState {
+
+        private final Long userId;
+        private final LocalDateTime createdAt;
+        private final Map<Long, Integer> items = new LinkedHashMap<>();
+        // Dalla copia da salvare al commit: due flush dello stesso carrello non si sovrappongono
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private Long cartId;
+        private LocalDateTime updatedAt;
+        private boolean dirty;
+        private boolean evicted;
+        private long lastAccess = System.nanoTime();
+
+        private CartState(Long userId, Long cartId, LocalDateTime createdAt) {
+            this.userId = userId;
+            this.cartId = cartId;
+            this.createdAt = createdAt;
+        }
+
+        private void touch() {
+            updatedAt = LocalDateTime.now();
+            dirty = true;
+        }
+
+        private synchronized void markDirty() {
+            dirty = true;
+        }
+
+        // Copia da salvare, o null se non ci sono modifiche
+        private synchronized CartSnapshot takeDirty() {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+            return snapshot();
+        }
+
+        private CartSnapshot snapshot() {
+            return new CartSnapshot(userId, cartId, Collections.unmodifiableMap(new LinkedHashMap<>(items)),
+                    createdAt, updatedAt);
+        }
+    }
+}
@@ -7,9 +7,12 @@ package com.myecom.service.command;
 import com.myecom.dto.order.CreateOrderRequest;
 import com.myecom.dto.order.OrderResponse;
 import com.myecom.events.OrderCreatedEvent;
+import com.myecom.events.ProductChangedEvent;
+import com.myecom.events.ProductSoldEvent;
 import com.myecom.exception.BusinessException;
 import com.myecom.model.Cart;
 import com.myecom.model.CartItem;
+import com.myecom.model.Money;
 import com.myecom.model.Order;
 import com.myecom.model.OrderItem;
 import com.myecom.model.Product;
@@ -17,66 +20,142 @@ import com.myecom.model.User;
 import com.myecom.repository.CartItemRepository;
 import com.myecom.repository.CartRepository;
 import com.myecom.repository.OrderRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.repository.ProductStockRepository.StockDecrease;
 import com.myecom.repository.UserRepository;
 import com.myecom.service.CartService;
 import com.myecom.service.mapper.OrderMapper;
-import com.myecom.service.validation.OrderValidator;
+import com.myecom.service.validation.DailyOrderCounter;
+import com.myecom.service.validation.ValidatorChain;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
-import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class CreateOrderCommand implements OrderCommand<OrderResponse>{
+public class CreateOrderCommand {
 
     // Dipendenze necessarie per creare ordini
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
     private final CartService cartService;
     private final OrderMapper orderMapper;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final OrderGroupCommit orderGroupCommit;
+    private final DailyOrderCounter dailyOrderCounter;
 
     // Il "megafono" per annunciare eventi
     private final ApplicationEventPublisher eventPublisher;
 
     // ========== STRATEGY PATTERN IMPLEMENTATION ==========
-    // Spring inietta automaticamente TUTTE le implementazioni di OrderValidator
-    private final List<OrderValidator> validators;
+    // Catena con TUTTE le implementazioni di OrderValidator, ordinate e con le loro metriche
+    private final ValidatorChain validatorChain;
 
-    // Parametri del comando - si impostano prima dell'execute
-    private Long userId;
-    private CreateOrderRequest request;
-    private Order createdOrder; // Per rollback se serve
+    /**
+     * Prepara il comando con i dati necessari.
+     *
+     * Restituisce un comando nuovo a ogni chiamata, con i suoi parametri e il suo stato:
+     * questo bean è un singleton senza stato, quindi più checkout possono girare in parallelo.
+     */
+    public OrderCommand<OrderResponse> init(Long userId, CreateOrderRequest request) {
+        return new Invocation(userId, request);
+    }
 
     /**
-     * Prepara il comando con i dati necessari
-     * Si chiama prima di execute()
+     * Un checkout: solo parametri immutabili.
+     *
+     * Nessun rollback() dedicato: tutto il checkout gira in una transazione,
+     * se qualcosa va storto il rollback della transazione annulla anche l'ordine.
      */
-    public CreateOrderCommand init(Long userId, CreateOrderRequest request) {
-        this.userId = userId;
-        this.request = request;
-        this.createdOrder = null; // Reset per riuso
-        return this;
+    private final class Invocation implements OrderCommand<OrderResponse> {
+
+        private final Long userId;
+        private final CreateOrderRequest request;
+
+        private Invocation(Long userId, CreateOrderRequest request) {
+            this.userId = userId;
+            this.request = request;
+        }
+
+        /**
+         * Esegue la creazione dell'ordine in una transazione (quella del chiamante, se c'è).
+         * Con il group commit, e senza transazione del chiamante, le scritture le fa OrderGroupCommit.
+         */
+        @Override
+        public OrderResponse execute() {
+            if (orderGroupCommit.isEnabled() && !TransactionSynchronizationManager.isActualTransactionActive()) {
+                return createOrderInGroup(userId, request);
+            }
+            return new TransactionTemplate(transactionManager)
+                    .execute(status -> createOrder(userId, request));
+        }
     }
 
     /**
-     * Esegue la creazione dell'ordine
+     * Crea l'ordine dal carrello dell'utente.
      * Tutta la logica che prima era in OrderService ora è qui
      */
-    @Override
-    @Transactional
-    public OrderResponse execute() {
+    private OrderResponse createOrder(Long userId, CreateOrderRequest request) {
+        Checkout checkout = prepare(userId, request);
+
+        // Scala lo stock di tutte le righe con un batch di UPDATE condizionali, prima di salvare l'ordine
+        decreaseStock(checkout);
+
+        // Le righe vengono salvate insieme all'ordine (cascade)
+        Order savedOrder = orderRepository.save(checkout.order);
+
+        // Svuota carrello
+        cartService.clearCart(userId);
+
+        return completed(userId, checkout, savedOrder);
+    }
+
+    /**
+     * Checkout con group commit: lettura e validazioni in una transazione senza scritture,
+     * poi stock, ordine e carrello vengono scritti dallo scrittore insieme ad altri checkout.
+     * Mentre aspetta, questo thread non tiene né transazioni né lock.
+     */
+    private OrderResponse createOrderInGroup(Long userId, CreateOrderRequest request) {
+        Checkout checkout = new TransactionTemplate(transactionManager)
+                .execute(status -> prepare(userId, request));
+
+        List<Long> cartItemIds = checkout.cartItems.stream().map(CartItem::getId).toList();
+        StockDecrease stock = orderGroupCommit.checkout(checkout.order, checkout.quantities, cartItemIds);
+        if (!stock.isApplied()) {
+            throw insufficientStock(checkout, stock.getInsufficient().get(0));
+        }
+        // Lo stock vero dopo il checkout: quello letto in prepare può essere già cambiato da altri
+        checkout.products.forEach((productId, product) ->
+                product.setStockQuantity(stock.getRemaining().get(productId)));
+
+        cartService.clearAfterCheckout(userId);
+
+        return completed(userId, checkout, checkout.order);
+    }
+
+    // Carica e valida il carrello, e prepara l'ordine con le sue righe (non ancora salvato)
+    private Checkout prepare(Long userId, CreateOrderRequest request) {
         log.debug("Creating order for user: {}", userId);
 
+        // 0. Con i carrelli in memoria, salva prima le modifiche in sospeso
+        cartService.flushCart(userId);
+
         // 1. Carica dati necessari
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Utente non trovato"));
@@ -90,68 +169,88 @@ public class CreateOrderCommand implements OrderCommand<OrderResponse>{
         runValidations(userId, cartItems); // viene fatta qui la validazione
 
         // 3. Calcola totale e crea ordine
-        BigDecimal totalAmount = cartItems.stream()
-                .map(CartItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long totalCents = 0;
+        for (CartItem cartItem : cartItems) {
+            totalCents = Math.addExact(totalCents, cartItem.getProduct().getPrice().centsTimes(cartItem.getQuantity()));
+        }
+        Money totalAmount = Money.ofCents(totalCents);
 
         // Crea ordine
         Order order = Order.builder()
                 .orderNumber(generateOrderNumber())
                 .user(user)
                 .status(Order.OrderStatus.PENDING)
-                .totalAmount(totalAmount)
+                .totalAmount(totalAmount.toBigDecimal())
                 .shippingAddress(request.getShippingAddress())
                 .notes(request.getNotes())
                 .build();
 
-        Order savedOrder = orderRepository.save(order);
-        this.createdOrder = savedOrder; // Salva per rollback
+        List<OrderItem> orderItems = cartItems.stream()
+                .map(cartItem -> OrderItem.builder()
+                        .order(order)
+                        .product(cartItem.getProduct())
+                        .quantity(cartItem.getQuantity())
+                        .unitPrice(cartItem.getProduct().getPrice())
+                        .totalPrice(cartItem.getProduct().getPrice().times(cartItem.getQuantity()))
+                        .build())
+                .toList();
+        order.setOrderItems(orderItems);
+
+        return new Checkout(user, cartItems, order);
+    }
+
+    // Ordine salvato: contatori, eventi e risposta
+    private OrderResponse completed(Long userId, Checkout checkout, Order savedOrder) {
+        dailyOrderCounter.recordOrder(userId); // Conta per il limite giornaliero solo dopo il commit
 
         // 4. Annuncia "Ordine creato!" a tutti gli interessati
         // Spring troverà automaticamente tutti i @EventListener che ascoltano OrderCreatedEvent
         eventPublisher.publishEvent(new OrderCreatedEvent(
                 savedOrder.getId(),
-                user.getEmail(),
+                checkout.user.getEmail(),
                 savedOrder.getOrderNumber()
         ));
 
-        // 5. Crea order items e aggiorna stock
-        List<OrderItem> orderItems = cartItems.stream()
-                .map(cartItem -> {
-                    // Aggiorna stock
-                    Product product = cartItem.getProduct();
-                    product.decreaseStock(cartItem.getQuantity());
-
-                    return OrderItem.builder()
-                            .order(savedOrder)
-                            .product(product)
-                            .quantity(cartItem.getQuantity())
-                            .unitPrice(product.getPrice())
-                            .build();
-                })
-                .toList();
-
-        // 6. Svuota carrello
-        cartService.clearCart(userId);
+        // 5. Annuncia le vendite dei prodotti
+        for (CartItem cartItem : checkout.cartItems) {
+            Product product = cartItem.getProduct();
+            // Prima la vendita, così chi reindicizza il prodotto vede già la popolarità aggiornata
+            eventPublisher.publishEvent(new ProductSoldEvent(product.getId(), cartItem.getQuantity())); // Classifica vendite
+            eventPublisher.publishEvent(new ProductChangedEvent(product, true)); // Stock cambiato
+        }
 
         log.info("Order created: {}", savedOrder.getOrderNumber());
-        return orderMapper.toResponse(savedOrder, orderItems);
+        return orderMapper.toResponse(savedOrder, checkout.order.getOrderItems());
     }
 
     /**
-     * Annulla la creazione se qualcosa va storto dopo il salvataggio
+     * Scala lo stock sul DB senza passare dalle entità (niente read-modify-write).
+     * Se anche un solo prodotto non basta, BusinessException annulla l'intera transazione.
      */
-    @Override
-    public void rollback() {
-        if (createdOrder != null) {
-            log.warn("Rolling back order: {}", createdOrder.getOrderNumber());
-            try {
-                orderRepository.delete(createdOrder);
-                log.info("Order rolled back: {}", createdOrder.getOrderNumber());
-            } catch (Exception e) {
-                log.error("Rollback failed for order: {}", createdOrder.getOrderNumber(), e);
-            }
+    private void decreaseStock(Checkout checkout) {
+        StockDecrease stock = productRepository.decreaseStock(checkout.quantities);
+        if (!stock.isApplied()) {
+            throw insufficientStock(checkout, stock.getInsufficient().get(0));
         }
+
+        // Allinea le entità in memoria per gli eventi allo stock riletto dopo l'UPDATE
+        // (non a quello letto prima, che un checkout concorrente può aver cambiato),
+        // senza che Hibernate riscriva la riga
+        Session session = entityManager.unwrap(Session.class);
+        checkout.products.forEach((productId, product) -> {
+            if (session.contains(product)) {
+                session.setReadOnly(product, true);
+            }
+            product.setStockQuantity(stock.getRemaining().get(productId));
+        });
+    }
+
+    private BusinessException insufficientStock(Checkout checkout, Long productId) {
+        Product product = checkout.products.get(productId);
+        log.warn("Concurrent checkout left insufficient stock for product: {} (ID: {})",
+                product.getName(), product.getId());
+        return new BusinessException(
+                String.format("Prodotto '%s': stock esaurito durante la conferma dell'ordine", product.getName()));
     }
 
     // Genera numero ordine
@@ -164,7 +263,7 @@ public class CreateOrderCommand implements OrderCommand<OrderResponse>{
      * Esegue tutte le strategie di validazione attive.
      * <p>
      * QUESTO È IL CUORE DEL PATTERN:
-     * - Ordina le strategie per ordine di esecuzione
+     * - Le strategie girano in ordine di esecuzione (ordinate una volta sola da ValidatorChain)
      * - Esegue ogni strategia indipendentemente
      * - Se una strategia fallisce, ferma tutto
      * - NON devi mai modificare questo metodo!
@@ -173,29 +272,28 @@ public class CreateOrderCommand implements OrderCommand<OrderResponse>{
      * che implementano OrderValidator. Spring le troverà automaticamente!
      */
     private void runValidations(Long userId, List<CartItem> cartItems) {
-        // Filtra solo validazioni abilitate e ordina per priorità
-        List<OrderValidator> enabledValidators = validators.stream()
-                .filter(OrderValidator::isEnabled)
-                .sorted(Comparator.comparing(OrderValidator::getOrder))
-                .toList();
-
-        if (enabledValidators.isEmpty()) {
-            return;
-        }
-
-        // Esegui ogni strategia in ordine
-        for (OrderValidator validator : enabledValidators) {
-            try {
+        validatorChain.validate(userId, cartItems);
+    }
 
-                validator.validate(userId, cartItems);
+    /**
+     * Un checkout preparato: carrello letto, ordine da salvare e quantità da scalare per prodotto
+     */
+    private static final class Checkout {
+        private final User user;
+        private final List<CartItem> cartItems;
+        private final Order order;
+        private final Map<Long, Integer> quantities = new LinkedHashMap<>();
+        private final Map<Long, Product> products = new LinkedHashMap<>();
 
-            } catch (BusinessException e) {
-                throw e; // Ferma tutto se una validazione fallisce
-            } catch (Exception e) {
-                throw new BusinessException(
-                        "Errore interno durante la validazione dell'ordine: " + validator.getName());
+        private Checkout(User user, List<CartItem> cartItems, Order order) {
+            this.user = user;
+            this.cartItems = cartItems;
+            this.order = order;
+            for (CartItem cartItem : cartItems) {
+                Product product = cartItem.getProduct();
+                quantities.merge(product.getId(), cartItem.getQuantity(), Integer::sum);
+                products.put(product.getId(), product);
             }
         }
-
     }
 }
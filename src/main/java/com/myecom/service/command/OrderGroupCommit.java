@@ -0,0 +1,356 @@
+package com.myecom.service.command;
+
+import com.myecom.model.Order;
+import com.myecom.model.OrderItem;
+import com.myecom.repository.ProductRepository;
+import com.myecom.repository.ProductStockRepository.StockDecrease;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group commit dei checkout (order.group-commit.enabled=true).
+ *
+ * Il checkout legge e valida il carrello, poi passa a questo componente tutte le sue scritture:
+ * stock da scalare, ordine con le righe, righe del carrello da cancellare. Un thread scrittore
+ * raccoglie i checkout arrivati entro max-wait (al massimo max-batch) e li scrive in un'unica
+ * transazione, con un solo commit: ogni checkout è atomico, perché tutte le sue scritture
+ * stanno nella stessa transazione.
+ *
+ * - Lo stock di ogni checkout viene scalato dentro un savepoint: se un prodotto non basta
+ *   si torna al savepoint e fallisce solo quel checkout, gli altri del gruppo proseguono
+ * - Ordini, righe e cancellazione del carrello dei checkout riusciti vanno in batch JDBC
+ * - Se il gruppo fallisce per altri motivi, i checkout vengono riscritti uno per transazione
+ * - Il chiamante non tiene transazioni né lock mentre aspetta: i lock sulle righe dei prodotti
+ *   li tiene solo la transazione dello scrittore, per la durata del gruppo
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderGroupCommit {
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (order_number, user_id, status, total_amount, shipping_address, notes, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (order_id, product_id, quantity, unit_price, total_price) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String DELETE_CART_ITEM_SQL = "DELETE FROM cart_items WHERE id = ?";
+
+    // Stati di un checkout in coda: chi fa per primo il compare-and-set decide
+    private static final int WAITING = 0;   // In coda, nessuno l'ha ancora preso
+    private static final int CLAIMED = 1;   // Preso dallo scrittore: verrà scritto e completato
+    private static final int ABANDONED = 2; // Il chiamante ha rinunciato (timeout): lo scrittore lo salta
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${order.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.group-commit.max-batch:64}")
+    private int maxBatch;
+
+    @Value("${order.group-commit.max-wait:2ms}")
+    private Duration maxWait;
+
+    @Value("${order.group-commit.timeout:10s}")
+    private Duration timeout;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    private TransactionTemplate writeTransaction;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+
+        // Transazione propria: lo scrittore non partecipa a quella di nessun checkout
+        writeTransaction = new TransactionTemplate(transactionManager);
+        writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        running = true;
+        writer = new Thread(this::writeLoop, "order-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+
+        log.info("Order group commit enabled: maxBatch={}, maxWait={}", maxBatch, maxWait);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Scrive il checkout nel prossimo gruppo: scala lo stock (quantità per prodotto), salva l'ordine
+     * con le sue righe (order.getOrderItems()) impostandone l'id e cancella le righe del carrello.
+     * Blocca finché il gruppo non è committato.
+     *
+     * @return esito dello stock: prodotti con stock insufficiente (e allora non è stato scritto nulla)
+     *         oppure lo stock rimasto di ogni prodotto dopo il checkout
+     * @throws IllegalStateException se il checkout non viene preso dallo scrittore entro timeout
+     */
+    public StockDecrease checkout(Order order, Map<Long, Integer> quantities, List<Long> cartItemIds) {
+        if (order.getCreatedAt() == null) {
+            order.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        }
+
+        Pending pending = new Pending(order, quantities, cartItemIds);
+        queue.add(pending);
+        try {
+            try {
+                return pending.done.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pending.state.compareAndSet(WAITING, ABANDONED)) {
+                    // Lo scrittore non l'ha ancora preso e ora non lo prenderà più: niente è stato scritto
+                    throw new IllegalStateException("Timeout nel salvataggio dell'ordine " + order.getOrderNumber());
+                }
+                // Già preso dallo scrittore: l'esito arriva di sicuro, va aspettato
+                return pending.done.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Salvataggio ordine fallito", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pending.state.compareAndSet(WAITING, ABANDONED)) {
+                throw new IllegalStateException("Salvataggio ordine interrotto");
+            }
+            return pending.done.join();
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Aspetta al massimo maxWait i checkout che arrivano subito dopo il primo
+                long deadline = System.nanoTime() + maxWait.toNanos();
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                // Da qui in poi ogni checkout preso va completato, in un modo o nell'altro
+                batch.removeIf(pending -> !pending.state.compareAndSet(WAITING, CLAIMED));
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException | Error e) {
+                log.error("Order group commit writer failed", e);
+                batch.forEach(pending -> pending.done.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Tutto il gruppo in una transazione; se fallisce, un checkout per transazione
+    private void write(List<Pending> batch) {
+        try {
+            writeTransaction.executeWithoutResult(status -> writeAll(batch));
+            batch.forEach(pending -> pending.done.complete(pending.stock));
+            log.debug("Group-committed {} checkouts", batch.size());
+        } catch (RuntimeException batchFailure) {
+            if (batch.size() == 1) {
+                batch.get(0).done.completeExceptionally(batchFailure);
+                return;
+            }
+            log.warn("Checkout group of {} failed, retrying one by one: {}", batch.size(), batchFailure.getMessage());
+            for (Pending pending : batch) {
+                try {
+                    writeTransaction.executeWithoutResult(status -> writeAll(List.of(pending)));
+                    pending.done.complete(pending.stock);
+                } catch (RuntimeException e) {
+                    pending.done.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void writeAll(List<Pending> batch) {
+        List<Pending> accepted = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            pending.stock = decreaseStock(pending);
+            if (pending.stock.isApplied()) {
+                accepted.add(pending);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            insertOrders(connection, accepted);
+            insertItems(connection, accepted);
+            deleteCartItems(connection, accepted);
+            return null;
+        });
+    }
+
+    // UPDATE condizionali dello stock del checkout; se un prodotto non basta annulla anche le altre righe
+    private StockDecrease decreaseStock(Pending pending) {
+        if (pending.quantities.size() == 1) {
+            return productRepository.decreaseStock(pending.quantities); // Un solo UPDATE: passa o non cambia nulla
+        }
+        // Savepoint JDBC sulla connessione della transazione (la stessa usata da decreaseStock)
+        return jdbcTemplate.execute((ConnectionCallback<StockDecrease>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            StockDecrease stock = productRepository.decreaseStock(pending.quantities);
+            if (stock.isApplied()) {
+                connection.releaseSavepoint(savepoint);
+            } else {
+                connection.rollback(savepoint);
+            }
+            return stock;
+        });
+    }
+
+    private void insertOrders(Connection connection, List<Pending> batch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_ORDER_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (Pending pending : batch) {
+                Order order = pending.order;
+                statement.setString(1, order.getOrderNumber());
+                statement.setLong(2, order.getUser().getId());
+                statement.setString(3, order.getStatus().name());
+                statement.setBigDecimal(4, order.getTotalAmount());
+                statement.setString(5, order.getShippingAddress());
+                statement.setString(6, order.getNotes());
+                statement.setTimestamp(7, Timestamp.valueOf(order.getCreatedAt()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+
+            // Le chiavi generate arrivano nello stesso ordine delle righe del batch
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                for (Pending pending : batch) {
+                    if (!keys.next()) {
+                        throw new SQLException("Id non restituito per l'ordine " + pending.order.getOrderNumber());
+                    }
+                    pending.order.setId(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    private void insertItems(Connection connection, List<Pending> batch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_ITEM_SQL)) {
+            int rows = 0;
+            for (Pending pending : batch) {
+                if (pending.order.getOrderItems() == null) {
+                    continue;
+                }
+                for (OrderItem item : pending.order.getOrderItems()) {
+                    statement.setLong(1, pending.order.getId());
+                    statement.setLong(2, item.getProduct().getId());
+                    statement.setInt(3, item.getQuantity());
+                    statement.setBigDecimal(4, item.getUnitPrice().toBigDecimal());
+                    statement.setBigDecimal(5, item.getTotalPrice().toBigDecimal());
+                    statement.addBatch();
+                    rows++;
+                }
+            }
+            if (rows > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    // Solo le righe lette dal checkout: una riga aggiunta nel frattempo resta nel carrello
+    private void deleteCartItems(Connection connection, List<Pending> batch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(DELETE_CART_ITEM_SQL)) {
+            int rows = 0;
+            for (Pending pending : batch) {
+                for (Long cartItemId : pending.cartItemIds) {
+                    statement.setLong(1, cartItemId);
+                    statement.addBatch();
+                    rows++;
+                }
+            }
+            if (rows > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Alla chiusura scrive i checkout ancora in coda prima di fermare lo scrittore.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(timeout.toMillis());
+    }
+
+    private static final class Pending {
+        private final Order order;
+        private final Map<Long, Integer> quantities;
+        private final List<Long> cartItemIds;
+        private final CompletableFuture<StockDecrease> done = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private StockDecrease stock; // Scritto e letto solo dallo scrittore
+
+        private Pending(Order order, Map<Long, Integer> quantities, List<Long> cartItemIds) {
+            this.order = order;
+            this.quantities = quantities;
+            this.cartItemIds = cartItemIds;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.myecom.service.intake;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.myecom.dto.order.CreateOrderRequest;
+import com.myecom.dto.order.OrderIntakeResponse;
+import com.myecom.dto.order.OrderResponse;
+import com.myecom.exception.BusinessException;
+import com.myecom.exception.TooManyRequestsException;
+import com.myecom.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accettazione asincrona degli ordini (order.intake.async=true).
+ *
+ * POST /api/orders/{userId} mette la richiesta in una coda limitata e risponde subito 202
+ * con un tracking id; un pool di worker crea gli ordini con OrderService, al massimo
+ * workers alla volta, così le connessioni al DB usate dal checkout restano limitate.
+ *
+ * - Coda piena: TooManyRequestsException (429), invece di accumulare richieste senza limite
+ * - Un solo ordine in corso per utente: un secondo invio restituisce il tracking id già in coda
+ * - Lo stato (GET /api/orders/intake/{trackingId}) resta disponibile per status-ttl dopo l'ultimo cambiamento
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderIntake {
+
+    private final OrderService orderService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${order.intake.async:false}")
+    private boolean enabled;
+
+    @Value("${order.intake.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${order.intake.workers:4}")
+    private int workers;
+
+    @Value("${order.intake.status-ttl:1h}")
+    private Duration statusTtl;
+
+    @Value("${order.intake.retry-after:5s}")
+    private Duration retryAfter;
+
+    private ThreadPoolExecutor executor;
+    private Cache<String, OrderIntakeResponse> statuses;
+
+    // userId → tracking id dell'ordine in coda o in elaborazione
+    private final Map<Long, String> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "order-intake-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        statuses = Caffeine.newBuilder()
+                .expireAfterWrite(statusTtl)
+                .build();
+
+        meterRegistry.gauge("orders.intake.queue", executor, pool -> pool.getQueue().size());
+        meterRegistry.gauge("orders.intake.active", executor, ThreadPoolExecutor::getActiveCount);
+
+        log.info("Async order intake enabled: workers={}, queueCapacity={}", workers, queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Mette in coda la creazione dell'ordine e restituisce lo stato iniziale (QUEUED).
+     *
+     * @throws TooManyRequestsException se la coda è piena
+     */
+    public OrderIntakeResponse submit(Long userId, CreateOrderRequest request) {
+        String trackingId = UUID.randomUUID().toString();
+        OrderIntakeResponse[] current = new OrderIntakeResponse[1];
+
+        // Un solo compute per utente: lo stato QUEUED esiste prima che il tracking id sia visibile in inFlight
+        inFlight.compute(userId, (id, existing) -> {
+            // Doppio invio (es. doppio click): lo stesso carrello non deve diventare due ordini
+            OrderIntakeResponse status = existing != null ? statuses.getIfPresent(existing) : null;
+            if (status != null) {
+                current[0] = status;
+                return existing;
+            }
+            // Nessun ordine in corso, o stato già scaduto: si riparte con il nuovo
+            current[0] = OrderIntakeResponse.builder()
+                    .trackingId(trackingId)
+                    .userId(userId)
+                    .status(OrderIntakeResponse.Status.QUEUED)
+                    .acceptedAt(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .build();
+            statuses.put(trackingId, current[0]);
+            return trackingId;
+        });
+
+        OrderIntakeResponse queued = current[0];
+        if (!queued.getTrackingId().equals(trackingId)) {
+            return queued;
+        }
+
+        try {
+            executor.execute(() -> process(queued, request));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(userId, trackingId);
+            statuses.invalidate(trackingId);
+            meterRegistry.counter("orders.intake.rejected").increment();
+            log.warn("Order intake queue full, rejecting order for user: {}", userId);
+            throw new TooManyRequestsException("Troppi ordini in coda, riprova tra poco", retryAfter.toSeconds());
+        }
+        return queued;
+    }
+
+    /**
+     * Stato di un ordine accettato in modalità asincrona.
+     */
+    public Optional<OrderIntakeResponse> getStatus(String trackingId) {
+        return statuses == null ? Optional.empty() : Optional.ofNullable(statuses.getIfPresent(trackingId));
+    }
+
+    // Eseguito da un worker: crea l'ordine e registra l'esito
+    private void process(OrderIntakeResponse queued, CreateOrderRequest request) {
+        statuses.put(queued.getTrackingId(), queued.toBuilder()
+                .status(OrderIntakeResponse.Status.PROCESSING)
+                .build());
+        try {
+            OrderResponse order = orderService.createOrder(queued.getUserId(), request);
+            statuses.put(queued.getTrackingId(), queued.toBuilder()
+                    .status(OrderIntakeResponse.Status.COMPLETED)
+                    .order(order)
+                    .build());
+        } catch (BusinessException | IllegalArgumentException e) {
+            statuses.put(queued.getTrackingId(), failed(queued, e.getMessage()));
+        } catch (RuntimeException e) {
+            log.error("Async order creation failed for user: {}", queued.getUserId(), e);
+            statuses.put(queued.getTrackingId(), failed(queued, "Errore interno durante la creazione dell'ordine"));
+        } finally {
+            inFlight.remove(queued.getUserId(), queued.getTrackingId());
+        }
+    }
+
+    private OrderIntakeResponse failed(OrderIntakeResponse queued, String error) {
+        return queued.toBuilder()
+                .status(OrderIntakeResponse.Status.FAILED)
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Alla chiusura smette di accettare ordini e lascia finire quelli già in coda.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Order intake stopped with {} orders still queued", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+}
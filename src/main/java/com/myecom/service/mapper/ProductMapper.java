@@ -0,0 +1,77 @@
+package com.myecom.service.mapper;
+
+import com.myecom.dto.product.CategoryResponse;
+import com.myecom.dto.product.ProductProjection;
+import com.myecom.dto.product.ProductResponse;
+import com.myecom.model.Category;
+import com.myecom.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Mapper per convertire entità Product/Category in DTO
+ * Condiviso tra ProductService e la cache dei prodotti
+ */
+@Component
+public class ProductMapper {
+
+    /**
+     * Converte Product in ProductResponse (categoria inclusa)
+     */
+    public ProductResponse toResponse(Product product) {
+        return ProductResponse.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice().toBigDecimal())
+                .stockQuantity(product.getStockQuantity())
+                .imageUrl(product.getImageUrl())
+                .brand(product.getBrand())
+                .active(product.isActive())
+                .inStock(product.isInStock())
+                .createdAt(product.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .updatedAt(product.getUpdatedAt() != null ? product.getUpdatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : null)
+                .category(toCategoryResponse(product.getCategory()))
+                .build();
+    }
+
+    /**
+     * Converte la proiezione piatta (prodotto + categoria da una sola query) in ProductResponse
+     */
+    public ProductResponse toResponse(ProductProjection projection) {
+        CategoryResponse category = projection.getCategoryId() == null ? null : CategoryResponse.builder()
+                .id(projection.getCategoryId())
+                .name(projection.getCategoryName())
+                .description(projection.getCategoryDescription())
+                .active(Boolean.TRUE.equals(projection.getCategoryActive()))
+                .build();
+
+        return ProductResponse.builder()
+                .id(projection.getId())
+                .name(projection.getName())
+                .description(projection.getDescription())
+                .price(projection.getPrice().toBigDecimal())
+                .stockQuantity(projection.getStockQuantity())
+                .imageUrl(projection.getImageUrl())
+                .brand(projection.getBrand())
+                .active(Boolean.TRUE.equals(projection.getActive()))
+                .inStock(projection.getStockQuantity() != null && projection.getStockQuantity() > 0)
+                .createdAt(projection.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .updatedAt(projection.getUpdatedAt() != null ? projection.getUpdatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : null)
+                .category(category)
+                .build();
+    }
+
+    /**
+     * Converte Category in CategoryResponse
+     */
+    public CategoryResponse toCategoryResponse(Category category) {
+        return CategoryResponse.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .description(category.getDescription())
+                .active(category.isActive())
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.myecom.service.pagination;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Watermark opaco del feed delle modifiche (/api/products/changes).
+ *
+ * Contiene la posizione keyset (updatedAt, id) dell'ultimo prodotto e dell'ultima
+ * categoria già inviati al client: la richiesta successiva riparte da lì.
+ * Come ProductCursor viaggia in Base64 URL-safe.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ChangeWatermark {
+
+    private static final String PREFIX = "w";
+    private static final String SEPARATOR = "|";
+
+    // Posizione iniziale: prima di qualsiasi modifica
+    public static final ChangeWatermark INITIAL = new ChangeWatermark(
+            LocalDateTime.of(1970, 1, 1, 0, 0), 0L, LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    private final LocalDateTime productUpdatedAt;
+    private final Long productId;
+    private final LocalDateTime categoryUpdatedAt;
+    private final Long categoryId;
+
+    public static ChangeWatermark of(LocalDateTime productUpdatedAt, Long productId,
+                                     LocalDateTime categoryUpdatedAt, Long categoryId) {
+        return new ChangeWatermark(productUpdatedAt, productId, categoryUpdatedAt, categoryId);
+    }
+
+    public String encode() {
+        String value = String.join(SEPARATOR, PREFIX,
+                productUpdatedAt.toString(), productId.toString(),
+                categoryUpdatedAt.toString(), categoryId.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica il watermark ricevuto dal client; null o vuoto = sincronizzazione completa.
+     *
+     * @throws IllegalArgumentException se il watermark è malformato o manomesso
+     */
+    public static ChangeWatermark decode(String watermark) {
+        if (watermark == null || watermark.isBlank()) {
+            return INITIAL;
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(watermark), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\" + SEPARATOR);
+            if (parts.length != 5 || !PREFIX.equals(parts[0])) {
+                throw new IllegalArgumentException("Watermark non valido");
+            }
+
+            return new ChangeWatermark(
+                    LocalDateTime.parse(parts[1]), Long.valueOf(parts[2]),
+                    LocalDateTime.parse(parts[3]), Long.valueOf(parts[4]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Watermark non valido");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.myecom.service.pagination;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursore opaco per la paginazione keyset (seek) del catalogo.
+ *
+ * Invece di OFFSET + COUNT, il client rimanda la posizione dell'ultimo elemento letto:
+ * - listing: (createdAt, id) → "WHERE (createdAt, id) < (:createdAt, :id)"
+ * - ricerca: (score, id) → risultati dopo quella coppia nel ranking dell'indice
+ *
+ * Il valore viaggia come Base64 URL-safe, il client non deve interpretarlo.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ProductCursor {
+
+    private static final String CREATED_AT_PREFIX = "c";
+    private static final String SCORE_PREFIX = "s";
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime createdAt;
+    private final Integer score;
+    private final Long id;
+
+    /**
+     * Cursore per il listing (ordinato per createdAt, id decrescenti).
+     */
+    public static String encode(LocalDateTime createdAt, Long id) {
+        return toBase64(CREATED_AT_PREFIX + SEPARATOR + createdAt + SEPARATOR + id);
+    }
+
+    /**
+     * Cursore per la ricerca (ordinata per punteggio decrescente, id crescente).
+     */
+    public static String encode(int score, Long id) {
+        return toBase64(SCORE_PREFIX + SEPARATOR + score + SEPARATOR + id);
+    }
+
+    /**
+     * Decodifica un cursore ricevuto dal client.
+     *
+     * @throws IllegalArgumentException se il cursore è malformato o manomesso
+     */
+    public static ProductCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\" + SEPARATOR);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Cursore non valido");
+            }
+
+            Long id = Long.valueOf(parts[2]);
+            return switch (parts[0]) {
+                case CREATED_AT_PREFIX -> new ProductCursor(LocalDateTime.parse(parts[1]), null, id);
+                case SCORE_PREFIX -> new ProductCursor(null, Integer.valueOf(parts[1]), id);
+                default -> throw new IllegalArgumentException("Cursore non valido");
+            };
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Base64, numeri o date malformati: per il client è sempre lo stesso errore
+            throw new IllegalArgumentException("Cursore non valido");
+        }
+    }
+
+    /**
+     * True se il cursore è stato generato dal listing (createdAt, id).
+     */
+    public boolean isCreatedAtCursor() {
+        return createdAt != null;
+    }
+
+    /**
+     * True se il cursore è stato generato dalla ricerca (score, id).
+     */
+    public boolean isScoreCursor() {
+        return score != null;
+    }
+
+    private static String toBase64(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
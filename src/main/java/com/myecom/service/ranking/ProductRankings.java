@@ -0,0 +1,151 @@
+package com.myecom.service.ranking;
+
+import com.myecom.model.ProductCounter;
+import com.myecom.repository.ProductCounterRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classifiche "più venduti" e "più aggiunti al carrello" mantenute in memoria.
+ *
+ * Invece di rifare GROUP BY/SUM su tutte le righe d'ordine e di carrello a ogni richiesta,
+ * i contatori vengono incrementati quando un ordine viene creato o un prodotto finisce
+ * nel carrello (vedi ProductRankingListener). Leggere i primi K costa O(K).
+ *
+ * I contatori modificati vengono scritti su product_counters a intervalli regolari
+ * (e alla chiusura dell'applicazione) e riletti all'avvio.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductRankings {
+
+    private final ProductCounterRepository productCounterRepository;
+
+    private final TopKCounter sales = new TopKCounter();
+    private final TopKCounter cartAdds = new TopKCounter();
+
+    // Id dei prodotti con contatori non ancora salvati
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Carica i contatori salvati. Al primo avvio (tabella vuota) li ricava una volta
+     * dalle righe d'ordine e dai carrelli esistenti.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE) // Prima degli indici che usano la popolarità (vedi ProductSuggestIndex)
+    public void load() {
+        sales.clear();
+        cartAdds.clear();
+        dirty.clear();
+
+        List<ProductCounter> counters = productCounterRepository.findAll();
+        if (counters.isEmpty()) {
+            for (Object[] row : productCounterRepository.sumSoldQuantityByProduct()) {
+                sales.set((Long) row[0], ((Number) row[1]).longValue());
+                dirty.add((Long) row[0]);
+            }
+            for (Object[] row : productCounterRepository.sumCartQuantityByProduct()) {
+                cartAdds.set((Long) row[0], ((Number) row[1]).longValue());
+                dirty.add((Long) row[0]);
+            }
+        } else {
+            for (ProductCounter counter : counters) {
+                sales.set(counter.getProductId(), counter.getSoldQuantity());
+                cartAdds.set(counter.getProductId(), counter.getCartAddQuantity());
+            }
+        }
+
+        log.info("Product rankings loaded: {} products sold, {} products carted", sales.size(), cartAdds.size());
+    }
+
+    public void recordSale(Long productId, int quantity) {
+        if (productId == null || quantity <= 0) {
+            return;
+        }
+        sales.increment(productId, quantity);
+        dirty.add(productId);
+    }
+
+    public void recordCartAdd(Long productId, int quantity) {
+        if (productId == null || quantity <= 0) {
+            return;
+        }
+        cartAdds.increment(productId, quantity);
+        dirty.add(productId);
+    }
+
+    /**
+     * Pezzi venduti del prodotto (0 se mai venduto).
+     */
+    public long soldQuantity(Long productId) {
+        return sales.get(productId);
+    }
+
+    /**
+     * Id dei prodotti più venduti, dal primo.
+     */
+    public List<Long> topSelling(int limit) {
+        return sales.top(limit);
+    }
+
+    /**
+     * Id dei prodotti più aggiunti ai carrelli, dal primo.
+     */
+    public List<Long> topCarted(int limit) {
+        return cartAdds.top(limit);
+    }
+
+    /**
+     * Salva i contatori modificati dall'ultimo flush.
+     *
+     * Gli id vengono tolti da "dirty" prima di leggere i valori: un incremento
+     * concorrente li rimette in coda e verrà salvato al giro successivo.
+     */
+    @Scheduled(fixedDelayString = "${catalog.rankings.flush-interval:30s}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        List<Long> productIds = new ArrayList<>(dirty);
+        dirty.removeAll(productIds);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ProductCounter> counters = productIds.stream()
+                .map(productId -> ProductCounter.builder()
+                        .productId(productId)
+                        .soldQuantity(sales.get(productId))
+                        .cartAddQuantity(cartAdds.get(productId))
+                        .updatedAt(now)
+                        .build())
+                .toList();
+
+        try {
+            productCounterRepository.saveAll(counters);
+            log.debug("Flushed {} product counters", counters.size());
+        } catch (RuntimeException e) {
+            // Riprova al prossimo flush
+            dirty.addAll(productIds);
+            log.warn("Flush product counters failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,88 @@
+package com.myecom.service.ranking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Contatore per id con classifica sempre ordinata.
+ *
+ * Ogni incremento costa O(log n) (rimozione e reinserimento nell'albero),
+ * leggere i primi K costa O(K): nessun ordinamento al momento della lettura.
+ * A parità di conteggio vince l'id più basso, così l'ordine è stabile.
+ */
+public class TopKCounter {
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingLong((Entry entry) -> entry.count).reversed()
+            .thenComparingLong(entry -> entry.id);
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(RANKING);
+
+    /**
+     * Aggiunge delta al conteggio dell'id e restituisce il nuovo valore.
+     */
+    public synchronized long increment(Long id, long delta) {
+        Entry current = entries.get(id);
+        long count = (current != null ? current.count : 0L) + delta;
+        set(id, count);
+        return count;
+    }
+
+    /**
+     * Imposta il conteggio dell'id (usato al caricamento dei valori persistiti).
+     */
+    public synchronized void set(Long id, long count) {
+        Entry current = entries.remove(id);
+        if (current != null) {
+            ranking.remove(current);
+        }
+        if (count > 0) {
+            Entry entry = new Entry(id, count);
+            entries.put(id, entry);
+            ranking.add(entry);
+        }
+    }
+
+    public synchronized long get(Long id) {
+        Entry entry = entries.get(id);
+        return entry != null ? entry.count : 0L;
+    }
+
+    /**
+     * I primi k id, dal conteggio più alto.
+     */
+    public synchronized List<Long> top(int k) {
+        List<Long> ids = new ArrayList<>(Math.min(k, ranking.size()));
+        Iterator<Entry> iterator = ranking.iterator();
+        while (iterator.hasNext() && ids.size() < k) {
+            ids.add(iterator.next().id);
+        }
+        return ids;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        ranking.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Elemento immutabile: per cambiare conteggio si rimuove e si reinserisce nell'albero
+    private static final class Entry {
+        private final long id;
+        private final long count;
+
+        private Entry(long id, long count) {
+            this.id = id;
+            this.count = count;
+        }
+    }
+}
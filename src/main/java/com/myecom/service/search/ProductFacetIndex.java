@@ -0,0 +1,430 @@
+package com.myecom.service.search;
+
+import com.myecom.model.Product;
+import com.myecom.repository.ProductRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice a bitmap in memoria per il filtraggio a faccette del catalogo.
+ *
+ * Per ogni valore di ogni dimensione (marca, categoria, fascia di prezzo, disponibilità)
+ * c'è una bitmap con un bit per prodotto attivo (posizione = id prodotto).
+ * Combinare i filtri diventa un AND/OR tra bitmap e i conteggi delle faccette
+ * sono cardinalità di intersezioni: nessuna query sul DB.
+ *
+ * Gli id IDENTITY sono densi, quindi un array di parole a 64 bit per valore resta compatto.
+ * Viene costruito all'avvio e aggiornato a ogni modifica prodotto (vedi CatalogChangeListener).
+ *
+ * Le letture lavorano direttamente sulle parole di ogni bitmap, che le scritture modificano
+ * sul posto con il write lock (un bit per valore toccato, nessuna copia): i conteggi delle
+ * faccette sono AND parola per parola + Long.bitCount.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductFacetIndex {
+
+    // Limiti superiori (esclusi) delle fasce di prezzo; l'ultima fascia è aperta
+    private static final List<BigDecimal> PRICE_BAND_LIMITS = List.of(
+            new BigDecimal("25"), new BigDecimal("50"), new BigDecimal("100"),
+            new BigDecimal("250"), new BigDecimal("500"), new BigDecimal("1000"));
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+
+    // Tutti i prodotti attivi indicizzati, divisi tra disponibili ed esauriti
+    private final Bitmap active = new Bitmap();
+    private final Bitmap inStock = new Bitmap();
+    private final Bitmap outOfStock = new Bitmap();
+
+    // Valore della dimensione → bitmap dei prodotti con quel valore
+    private final Map<String, Bitmap> byBrand = new HashMap<>();
+    private final Map<Long, Bitmap> byCategory = new HashMap<>();
+    private final Map<String, Bitmap> byPriceBand = new HashMap<>();
+
+    // Nome marca come appare nel catalogo (la chiave è in minuscolo)
+    private final Map<String, String> brandLabels = new HashMap<>();
+
+    // productId → valori indicizzati, per rimuovere il prodotto in modo mirato
+    private final Map<Integer, FacetValues> documents = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Costruisce l'indice all'avvio leggendo i prodotti attivi a blocchi (keyset sull'id).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            active.clear();
+            inStock.clear();
+            outOfStock.clear();
+            byBrand.clear();
+            byCategory.clear();
+            byPriceBand.clear();
+            brandLabels.clear();
+            documents.clear();
+
+            long lastId = 0L;
+            List<Product> batch;
+            do {
+                batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(
+                        lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Product product : batch) {
+                    addDocument(product);
+                    lastId = product.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            log.info("Product facet index built: {} products, {} brands, {} categories",
+                    documents.size(), byBrand.size(), byCategory.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indicizza (o reindicizza) un prodotto. I prodotti non attivi vengono rimossi.
+     */
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            if (product.isActive()) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applica i filtri e restituisce la pagina di id (dal più recente), il totale
+     * e i conteggi per ogni faccetta.
+     *
+     * I conteggi di una dimensione sono calcolati applicando i filtri di tutte le
+     * altre dimensioni ma non il suo: così il client vede quante alternative ha.
+     * inStock = true tiene solo i disponibili, inStock = false solo gli esauriti.
+     */
+    public FacetResult filter(ProductFilter filter, int page, int size) {
+        lock.readLock().lock();
+        try {
+            long[] brandMask = union(byBrand, normalizeBrands(filter.getBrands()));
+            long[] categoryMask = union(byCategory, filter.getCategoryIds());
+            long[] priceMask = union(byPriceBand, filter.getPriceBands());
+            long[] stockMask = filter.getInStock() == null ? null
+                    : filter.getInStock() ? inStock.words : outOfStock.words;
+
+            long[] matches = and(active.words, brandMask, categoryMask, priceMask, stockMask);
+
+            Map<String, Long> brandCounts = new LinkedHashMap<>();
+            long[] withoutBrand = and(active.words, categoryMask, priceMask, stockMask);
+            byBrand.forEach((brand, bits) ->
+                    putIfPositive(brandCounts, brandLabels.get(brand), intersectionSize(withoutBrand, bits.words)));
+
+            Map<Long, Long> categoryCounts = new LinkedHashMap<>();
+            long[] withoutCategory = and(active.words, brandMask, priceMask, stockMask);
+            byCategory.forEach((categoryId, bits) ->
+                    putIfPositive(categoryCounts, categoryId, intersectionSize(withoutCategory, bits.words)));
+
+            Map<String, Long> priceBandCounts = new LinkedHashMap<>();
+            long[] withoutPrice = and(active.words, brandMask, categoryMask, stockMask);
+            for (String band : priceBandLabels()) {
+                Bitmap bits = byPriceBand.get(band);
+                if (bits != null) {
+                    putIfPositive(priceBandCounts, band, intersectionSize(withoutPrice, bits.words));
+                }
+            }
+
+            long[] withoutStock = and(active.words, brandMask, categoryMask, priceMask);
+            long inStockCount = intersectionSize(withoutStock, inStock.words);
+
+            return new FacetResult(pageIds(matches, page, size), cardinality(matches),
+                    brandCounts, categoryCounts, priceBandCounts, inStockCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Etichetta della fascia di prezzo (es. "100-250", "1000+").
+     */
+    static String priceBand(BigDecimal price) {
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal limit : PRICE_BAND_LIMITS) {
+            if (price.compareTo(limit) < 0) {
+                return lower.toPlainString() + "-" + limit.toPlainString();
+            }
+            lower = limit;
+        }
+        return lower.toPlainString() + "+";
+    }
+
+    // Tutte le etichette delle fasce, in ordine di prezzo
+    private static List<String> priceBandLabels() {
+        List<String> labels = new ArrayList<>();
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal limit : PRICE_BAND_LIMITS) {
+            labels.add(lower.toPlainString() + "-" + limit.toPlainString());
+            lower = limit;
+        }
+        labels.add(lower.toPlainString() + "+");
+        return labels;
+    }
+
+    // Aggiunge un documento all'indice (da chiamare con il write lock acquisito)
+    private void addDocument(Product product) {
+        int position = toPosition(product.getId());
+
+        String brand = product.getBrand() != null && !product.getBrand().isBlank()
+                ? product.getBrand().trim().toLowerCase() : null;
+        // getId() sul proxy lazy non inizializza la categoria
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        String band = product.getPrice() != null ? priceBand(product.getPrice().toBigDecimal()) : null;
+        boolean available = product.getStockQuantity() != null && product.getStockQuantity() > 0;
+
+        active.set(position);
+        (available ? inStock : outOfStock).set(position);
+        if (brand != null) {
+            byBrand.computeIfAbsent(brand, b -> new Bitmap()).set(position);
+            brandLabels.putIfAbsent(brand, product.getBrand().trim());
+        }
+        if (categoryId != null) {
+            byCategory.computeIfAbsent(categoryId, c -> new Bitmap()).set(position);
+        }
+        if (band != null) {
+            byPriceBand.computeIfAbsent(band, b -> new Bitmap()).set(position);
+        }
+
+        documents.put(position, new FacetValues(brand, categoryId, band));
+    }
+
+    // Rimuove un documento dall'indice (da chiamare con il write lock acquisito)
+    private void removeDocument(Long productId) {
+        int position = toPosition(productId);
+        FacetValues values = documents.remove(position);
+        if (values == null) {
+            return;
+        }
+
+        active.clear(position);
+        inStock.clear(position);
+        outOfStock.clear(position);
+        clearBit(byBrand, values.brand, position);
+        clearBit(byCategory, values.categoryId, position);
+        clearBit(byPriceBand, values.priceBand, position);
+        if (values.brand != null && !byBrand.containsKey(values.brand)) {
+            brandLabels.remove(values.brand);
+        }
+    }
+
+    private <K> void clearBit(Map<K, Bitmap> dimension, K key, int position) {
+        if (key == null) {
+            return;
+        }
+        Bitmap bits = dimension.get(key);
+        if (bits != null) {
+            bits.clear(position);
+            if (bits.isEmpty()) {
+                dimension.remove(key);
+            }
+        }
+    }
+
+    // OR delle bitmap dei valori richiesti; null = dimensione non filtrata
+    private <K> long[] union(Map<K, Bitmap> dimension, Collection<K> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        long[] result = new long[0];
+        for (K value : values) {
+            Bitmap bits = dimension.get(value);
+            if (bits == null) {
+                continue;
+            }
+            if (bits.words.length > result.length) {
+                result = Arrays.copyOf(result, bits.words.length);
+            }
+            for (int i = 0; i < bits.words.length; i++) {
+                result[i] |= bits.words[i];
+            }
+        }
+        return result;
+    }
+
+    // AND delle bitmap (le null vengono ignorate); restituisce sempre un array nuovo
+    private long[] and(long[] base, long[]... masks) {
+        int length = base.length;
+        for (long[] mask : masks) {
+            if (mask != null) {
+                length = Math.min(length, mask.length);
+            }
+        }
+        long[] result = Arrays.copyOf(base, length);
+        for (long[] mask : masks) {
+            if (mask != null) {
+                for (int i = 0; i < length; i++) {
+                    result[i] &= mask[i];
+                }
+            }
+        }
+        return result;
+    }
+
+    // Cardinalità dell'intersezione, senza costruirla
+    private long intersectionSize(long[] left, long[] right) {
+        int length = Math.min(left.length, right.length);
+        long count = 0;
+        for (int i = 0; i < length; i++) {
+            count += Long.bitCount(left[i] & right[i]);
+        }
+        return count;
+    }
+
+    private long cardinality(long[] words) {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private <K> void putIfPositive(Map<K, Long> counts, K key, long count) {
+        if (count > 0) {
+            counts.put(key, count);
+        }
+    }
+
+    private List<String> normalizeBrands(List<String> brands) {
+        if (brands == null) {
+            return null;
+        }
+        return brands.stream()
+                .filter(brand -> brand != null && !brand.isBlank())
+                .map(brand -> brand.trim().toLowerCase())
+                .toList();
+    }
+
+    // Id della pagina richiesta, dal più alto (più recente) al più basso
+    private List<Long> pageIds(long[] matches, int page, int size) {
+        List<Long> ids = new ArrayList<>();
+        if (size <= 0 || page < 0) {
+            return ids;
+        }
+
+        long skip = (long) page * size;
+        for (int i = matches.length - 1; i >= 0 && ids.size() < size; i--) {
+            long word = matches[i];
+            int bits = Long.bitCount(word);
+            if (skip >= bits) {
+                // Parola intera saltata senza guardare i singoli bit
+                skip -= bits;
+                continue;
+            }
+            while (word != 0 && ids.size() < size) {
+                int bit = 63 - Long.numberOfLeadingZeros(word);
+                word &= ~(1L << bit);
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    ids.add((long) i * Long.SIZE + bit);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private int toPosition(Long productId) {
+        if (productId < 0 || productId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Id prodotto fuori dal range dell'indice a bitmap: " + productId);
+        }
+        return productId.intValue();
+    }
+
+    /**
+     * Bitmap come parole a 64 bit (bit i della parola w = posizione w * 64 + i).
+     * Le parole si modificano sul posto solo con il write lock e si leggono con il read lock;
+     * le parole oltre l'ultimo bit impostato possono restare a zero.
+     */
+    private static final class Bitmap {
+        private long[] words = new long[0];
+        private int cardinality;
+
+        private void set(int position) {
+            int index = position >>> 6;
+            if (index >= words.length) {
+                // Crescita geometrica: gli id nuovi arrivano in ordine, una copia ogni tanto
+                words = Arrays.copyOf(words, Math.max(index + 1, words.length * 2));
+            }
+            long mask = 1L << position;
+            if ((words[index] & mask) == 0) {
+                words[index] |= mask;
+                cardinality++;
+            }
+        }
+
+        private void clear(int position) {
+            int index = position >>> 6;
+            long mask = 1L << position;
+            if (index < words.length && (words[index] & mask) != 0) {
+                words[index] &= ~mask;
+                cardinality--;
+            }
+        }
+
+        private boolean isEmpty() {
+            return cardinality == 0;
+        }
+
+        private void clear() {
+            words = new long[0];
+            cardinality = 0;
+        }
+    }
+
+    // Valori indicizzati di un singolo prodotto
+    @AllArgsConstructor
+    private static class FacetValues {
+        private final String brand;
+        private final Long categoryId;
+        private final String priceBand;
+    }
+
+    /**
+     * Risultato del filtraggio: pagina di id, totale e conteggi per faccetta.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class FacetResult {
+        private final List<Long> productIds;
+        private final long totalHits;
+        private final Map<String, Long> brands;
+        private final Map<Long, Long> categories;
+        private final Map<String, Long> priceBands;
+        private final long inStock;
+    }
+}
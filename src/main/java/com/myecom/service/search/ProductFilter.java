@@ -0,0 +1,28 @@
+package com.myecom.service.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Filtri combinabili per il catalogo.
+ *
+ * Valori multipli nella stessa dimensione sono in OR (es. marca Dell O Apple),
+ * dimensioni diverse sono in AND (es. marca Dell E disponibile).
+ * Una dimensione vuota/null non filtra.
+ * inStock = true tiene solo i prodotti disponibili, inStock = false solo quelli esauriti.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilter {
+
+    private List<String> brands;
+    private List<Long> categoryIds;
+    private List<String> priceBands;
+    private Boolean inStock;
+}
@@ -0,0 +1,322 @@
+package com.myecom.service.search;
+
+import com.myecom.model.Product;
+import com.myecom.repository.ProductRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Indice invertito in memoria per la ricerca prodotti.
+ *
+ * Sostituisce la query LIKE '%q%' (full scan della tabella products) con:
+ * - tokenizzazione di nome, marca e descrizione
+ * - posting list per termine: termine → (productId → peso)
+ * - ranking per rilevanza (nome > marca > descrizione, match esatto > prefisso)
+ *
+ * L'indice contiene solo prodotti attivi. Viene costruito all'avvio e
+ * aggiornato a ogni creazione/modifica prodotto (vedi CatalogChangeListener).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    // Pesi per campo: un match nel nome conta più di uno nella descrizione
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Un termine che coincide esattamente vale il doppio di un match per prefisso
+    private static final int EXACT_MATCH_BONUS = 2;
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    // Ordine dei risultati: punteggio decrescente, a parità id crescente
+    private static final Comparator<Map.Entry<Long, Integer>> RANKING =
+            Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    private final ProductRepository productRepository;
+
+    // Termine → (productId → peso). Ordinato per supportare la ricerca per prefisso
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+
+    // productId → termini indicizzati (serve per rimuovere il documento in modo mirato)
+    private final Map<Long, Set<String>> documentTerms = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Costruisce l'indice all'avvio leggendo i prodotti attivi a blocchi,
+     * con iterazione keyset sull'id per non caricare tutto il catalogo in memoria.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTerms.clear();
+
+            long lastId = 0L;
+            List<Product> batch;
+            do {
+                batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(
+                        lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Product product : batch) {
+                    addDocument(product);
+                    lastId = product.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            log.info("Product search index built: {} products, {} terms", documentTerms.size(), postings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indicizza (o reindicizza) un prodotto. I prodotti non attivi vengono rimossi.
+     */
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            if (product.isActive()) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rimuove un prodotto dall'indice.
+     */
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cerca i prodotti che contengono tutti i termini della query (ogni termine
+     * può matchare anche come prefisso, es. "lap" → "laptop").
+     *
+     * Restituisce solo gli id della pagina richiesta, ordinati per rilevanza
+     * (a parità di punteggio per id), più il numero totale di risultati.
+     */
+    public SearchHits search(String query, int page, int size) {
+        if (size <= 0 || page < 0) {
+            return SearchHits.EMPTY;
+        }
+        // In long: page * size può superare Integer.MAX_VALUE; oltre quel limite
+        // non ci sono risultati (l'indice ne contiene meno), quindi la pagina resta vuota
+        long offset = (long) page * size;
+        return runQuery(query, hit -> true, (int) Math.min(offset, Integer.MAX_VALUE), size);
+    }
+
+    /**
+     * Come search, ma in modalità keyset: restituisce i primi "size" risultati
+     * che nel ranking vengono dopo la coppia (afterScore, afterId).
+     * Il costo non dipende da quante pagine sono già state lette.
+     */
+    public SearchHits searchAfter(String query, int afterScore, long afterId, int size) {
+        if (size <= 0) {
+            return SearchHits.EMPTY;
+        }
+        return runQuery(query, hit -> hit.getValue() < afterScore
+                || (hit.getValue() == afterScore && hit.getKey() > afterId), 0, size);
+    }
+
+    /**
+     * Numero di prodotti presenti nell'indice.
+     */
+    public int size() {
+        return documentTerms.size();
+    }
+
+    /**
+     * Tokenizza un testo: minuscolo, senza accenti, separato su tutto ciò
+     * che non è lettera o cifra.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD))
+                .replaceAll("");
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Aggiunge un documento all'indice (da chiamare con il write lock acquisito)
+    private void addDocument(Product product) {
+        Map<String, Integer> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getBrand(), BRAND_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        Long productId = product.getId();
+        weights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new ConcurrentHashMap<>()).put(productId, weight));
+        documentTerms.put(productId, weights.keySet());
+    }
+
+    private void addField(Map<String, Integer> weights, String value, int weight) {
+        for (String token : tokenize(value)) {
+            weights.merge(token, weight, Integer::sum);
+        }
+    }
+
+    // Rimuove un documento dall'indice (da chiamare con il write lock acquisito)
+    private void removeDocument(Long productId) {
+        Set<String> terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    // Punteggi per un singolo termine della query: match esatto + tutti i termini con quel prefisso
+    private Map<Long, Integer> matchTerm(String term) {
+        Map<Long, Integer> scores = new HashMap<>();
+        NavigableMap<String, Map<Long, Integer>> range = postings.subMap(term, true, term + Character.MAX_VALUE, false);
+
+        range.forEach((indexedTerm, posting) -> {
+            int multiplier = indexedTerm.equals(term) ? EXACT_MATCH_BONUS : 1;
+            posting.forEach((productId, weight) -> scores.merge(productId, weight * multiplier, Math::max));
+        });
+        return scores;
+    }
+
+    // Intersezione AND tra due insiemi di risultati, sommando i punteggi
+    private Map<Long, Integer> intersect(Map<Long, Integer> left, Map<Long, Integer> right) {
+        Map<Long, Integer> smaller = left.size() <= right.size() ? left : right;
+        Map<Long, Integer> larger = smaller == left ? right : left;
+
+        Map<Long, Integer> result = new HashMap<>();
+        smaller.forEach((productId, score) -> {
+            Integer other = larger.get(productId);
+            if (other != null) {
+                result.put(productId, score + other);
+            }
+        });
+        return result;
+    }
+
+    // Calcola i punteggi (AND tra i termini) e seleziona la finestra [offset, offset + size) del ranking
+    private SearchHits runQuery(String query, Predicate<Map.Entry<Long, Integer>> filter, int offset, int size) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return SearchHits.EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = null;
+            for (String term : queryTerms) {
+                Map<Long, Integer> termScores = matchTerm(term);
+                scores = scores == null ? termScores : intersect(scores, termScores);
+                if (scores.isEmpty()) {
+                    return SearchHits.EMPTY;
+                }
+            }
+
+            List<Map.Entry<Long, Integer>> window = topWindow(scores, filter, offset, size);
+            return new SearchHits(
+                    window.stream().map(Map.Entry::getKey).toList(),
+                    window.stream().map(Map.Entry::getValue).toList(),
+                    scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Seleziona la finestra richiesta con un heap limitato a offset + size elementi
+    private List<Map.Entry<Long, Integer>> topWindow(Map<Long, Integer> scores,
+                                                     Predicate<Map.Entry<Long, Integer>> filter,
+                                                     int offset, int size) {
+        long limit = (long) offset + size;
+        if (offset >= scores.size()) {
+            return List.of();
+        }
+
+        // Min-heap rispetto al ranking: in testa c'è il peggiore dei migliori
+        PriorityQueue<Map.Entry<Long, Integer>> heap = new PriorityQueue<>(RANKING.reversed());
+        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            if (!filter.test(entry)) {
+                continue;
+            }
+            heap.offer(entry);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(heap);
+        ranked.sort(RANKING);
+
+        return offset >= ranked.size() ? List.of() : ranked.subList(offset, ranked.size());
+    }
+
+    /**
+     * Risultato di una ricerca: id della pagina richiesta con i rispettivi punteggi
+     * (servono a costruire il cursore della pagina successiva) e totale dei match.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SearchHits {
+        static final SearchHits EMPTY = new SearchHits(List.of(), List.of(), 0);
+
+        private final List<Long> productIds;
+        private final List<Integer> scores;
+        private final long totalHits;
+    }
+}
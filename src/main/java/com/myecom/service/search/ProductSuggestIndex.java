@@ -0,0 +1,416 @@
+package com.myecom.service.search;
+
+import com.myecom.model.Product;
+import com.myecom.repository.ProductRepository;
+import com.myecom.service.ranking.ProductRankings;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trie dei prefissi per l'autocompletamento (GET /api/products/suggest).
+ *
+ * Contiene i nomi dei prodotti attivi e le marche, normalizzati come nell'indice di ricerca
+ * (minuscolo, senza accenti). Ogni nome è inserito anche a partire da ogni parola,
+ * così "xps" suggerisce "Laptop Dell XPS".
+ *
+ * Ogni nodo tiene già pronti i suggerimenti migliori del suo sottoalbero (ordinati per
+ * popolarità = pezzi venduti): una richiesta costa una discesa lunga quanto il prefisso,
+ * senza visitare il sottoalbero. Inserimenti e rimozioni aggiornano solo i nodi del percorso.
+ *
+ * Una vendita cambia solo la popolarità: il suggerimento viene sostituito nei nodi dove si trova
+ * già e i migliori vengono aggiornati lungo quei percorsi, senza togliere e reinserire il testo.
+ * La popolarità di una marca è un totale tenuto aggiornato, non una somma rifatta ogni volta.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSuggestIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    public static final String TYPE_PRODUCT = "PRODUCT";
+    public static final String TYPE_BRAND = "BRAND";
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    // Più popolare prima, poi testo più corto (più vicino al prefisso), poi alfabetico
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingLong(Suggestion::getScore).reversed()
+            .thenComparingInt((Suggestion suggestion) -> suggestion.getText().length())
+            .thenComparing(Suggestion::getText)
+            .thenComparing(Suggestion::getIdentity);
+
+    private final ProductRepository productRepository;
+    private final ProductRankings productRankings;
+
+    private final Node root = new Node();
+
+    // productId → suggerimento indicizzato (per rimuoverlo quando il prodotto cambia)
+    private final Map<Long, Suggestion> products = new HashMap<>();
+
+    // marca normalizzata → numero di prodotti e popolarità totale (somma di quella dei prodotti)
+    private final Map<String, Integer> brandSizes = new HashMap<>();
+    private final Map<String, Long> brandScores = new HashMap<>();
+    private final Map<String, Suggestion> brands = new HashMap<>();
+    private final Map<Long, String> productBrands = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Costruisce il trie all'avvio (dopo il caricamento delle classifiche) leggendo
+     * i prodotti attivi a blocchi.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            root.children.clear();
+            root.terminals.clear();
+            root.top = List.of();
+            products.clear();
+            brandSizes.clear();
+            brandScores.clear();
+            brands.clear();
+            productBrands.clear();
+
+            long lastId = 0L;
+            List<Product> batch;
+            do {
+                batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(
+                        lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Product product : batch) {
+                    addProduct(product);
+                    lastId = product.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            log.info("Product suggest index built: {} products, {} brands", products.size(), brands.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indicizza (o reindicizza) un prodotto con la popolarità attuale. I prodotti non attivi vengono rimossi.
+     * Se nome e marca non sono cambiati (es. dopo una vendita) aggiorna solo la popolarità.
+     */
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Suggestion current = products.get(product.getId());
+            if (current != null && product.isActive() && sameText(current, product)) {
+                rescore(current, productRankings.soldQuantity(product.getId()));
+                return;
+            }
+            removeProduct(product.getId());
+            if (product.isActive()) {
+                addProduct(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Suggerimenti per il prefisso, dal più popolare. Prefisso vuoto = nessun suggerimento.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            return node.top.size() <= limit ? node.top : node.top.subList(0, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Testo normalizzato come chiave del trie: token separati da uno spazio
+    static String normalize(String text) {
+        return String.join(" ", ProductSearchIndex.tokenize(text));
+    }
+
+    // Da chiamare con il write lock acquisito
+    private void addProduct(Product product) {
+        if (normalize(product.getName()).isEmpty()) {
+            return;
+        }
+
+        long score = productRankings.soldQuantity(product.getId());
+        Suggestion suggestion = new Suggestion(product.getName().trim(), TYPE_PRODUCT, product.getId(), score);
+        insertWords(suggestion.getKey(), suggestion);
+        products.put(product.getId(), suggestion);
+
+        String brand = normalize(product.getBrand());
+        if (!brand.isEmpty()) {
+            brandSizes.merge(brand, 1, Integer::sum);
+            brandScores.merge(brand, score, Long::sum);
+            productBrands.put(product.getId(), brand);
+            refreshBrand(brand, product.getBrand().trim());
+        }
+    }
+
+    // Da chiamare con il write lock acquisito
+    private void removeProduct(Long productId) {
+        Suggestion suggestion = products.remove(productId);
+        if (suggestion == null) {
+            return;
+        }
+        removeWords(suggestion.getKey(), suggestion);
+
+        String brand = productBrands.remove(productId);
+        if (brand != null) {
+            brandSizes.merge(brand, -1, Integer::sum);
+            brandScores.merge(brand, -suggestion.getScore(), Long::sum);
+            refreshBrand(brand, brands.get(brand).getText());
+        }
+    }
+
+    // Nome e marca indicizzati uguali a quelli del prodotto: cambia al più la popolarità
+    private boolean sameText(Suggestion current, Product product) {
+        String brand = normalize(product.getBrand());
+        return product.getName() != null
+                && current.getText().equals(product.getName().trim())
+                && Objects.equals(productBrands.get(product.getId()), brand.isEmpty() ? null : brand);
+    }
+
+    // Nuova popolarità del prodotto (e della sua marca), sostituita nei nodi dove il testo si trova già
+    private void rescore(Suggestion current, long score) {
+        long delta = score - current.getScore();
+        if (delta == 0) {
+            return;
+        }
+        Suggestion updated = new Suggestion(current.getText(), TYPE_PRODUCT, current.getProductId(), score);
+        replaceWords(current.getKey(), current, updated);
+        products.put(current.getProductId(), updated);
+
+        String brand = productBrands.get(current.getProductId());
+        if (brand != null) {
+            brandScores.merge(brand, delta, Long::sum);
+            refreshBrand(brand, brands.get(brand).getText());
+        }
+    }
+
+    // Aggiorna il suggerimento della marca con il totale corrente (o lo toglie se non ha più prodotti)
+    private void refreshBrand(String brand, String label) {
+        Suggestion previous = brands.get(brand);
+        if (brandSizes.getOrDefault(brand, 0) == 0) {
+            brandSizes.remove(brand);
+            brandScores.remove(brand);
+            if (brands.remove(brand) != null) {
+                removeWords(brand, previous);
+            }
+            return;
+        }
+
+        long score = brandScores.get(brand);
+        if (previous != null && previous.getScore() == score) {
+            return;
+        }
+        Suggestion suggestion = new Suggestion(previous != null ? previous.getText() : label, TYPE_BRAND, null, score);
+        if (previous == null) {
+            insertWords(brand, suggestion);
+        } else {
+            replaceWords(brand, previous, suggestion);
+        }
+        brands.put(brand, suggestion);
+    }
+
+    // Inserisce il testo a partire da ogni parola ("laptop dell xps", "dell xps", "xps")
+    private void insertWords(String key, Suggestion suggestion) {
+        for (String suffix : wordSuffixes(key)) {
+            insert(suffix, suggestion);
+        }
+    }
+
+    private void removeWords(String key, Suggestion suggestion) {
+        for (String suffix : wordSuffixes(key)) {
+            remove(suffix, suggestion);
+        }
+    }
+
+    private void replaceWords(String key, Suggestion previous, Suggestion updated) {
+        for (String suffix : wordSuffixes(key)) {
+            replace(suffix, previous, updated);
+        }
+    }
+
+    private List<String> wordSuffixes(String key) {
+        List<String> suffixes = new ArrayList<>();
+        suffixes.add(key);
+        for (int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+            suffixes.add(key.substring(i + 1));
+        }
+        return suffixes;
+    }
+
+    private void insert(String key, Suggestion suggestion) {
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        path.push(node);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+            path.push(node);
+        }
+        node.terminals.add(suggestion);
+
+        // Dal nodo più profondo alla radice
+        while (!path.isEmpty()) {
+            path.pop().recomputeTop();
+        }
+    }
+
+    private void remove(String key, Suggestion suggestion) {
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        path.push(node);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.get(key.charAt(i));
+            if (node == null) {
+                return;
+            }
+            path.push(node);
+        }
+        node.terminals.remove(suggestion);
+
+        // Risale ricalcolando i migliori e potando i nodi rimasti vuoti
+        int depth = key.length();
+        while (!path.isEmpty()) {
+            Node current = path.pop();
+            current.recomputeTop();
+            Node parent = path.peek();
+            if (parent != null && current.isEmpty()) {
+                parent.children.remove(key.charAt(depth - 1));
+            }
+            depth--;
+        }
+    }
+
+    // Sostituisce il suggerimento nel suo nodo e aggiorna i migliori risalendo lo stesso percorso
+    private void replace(String key, Suggestion previous, Suggestion updated) {
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        path.push(node);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.get(key.charAt(i));
+            if (node == null) {
+                return;
+            }
+            path.push(node);
+        }
+        int position = node.terminals.indexOf(previous);
+        if (position < 0) {
+            return;
+        }
+        node.terminals.set(position, updated);
+
+        boolean promoted = updated.getScore() >= previous.getScore();
+        while (!path.isEmpty()) {
+            Node current = path.pop();
+            if (promoted) {
+                current.promote(updated);
+            } else {
+                current.recomputeTop();
+            }
+        }
+    }
+
+    // Nodo del trie: figli per carattere, suggerimenti che finiscono qui, migliori del sottoalbero
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final List<Suggestion> terminals = new ArrayList<>(1);
+        private List<Suggestion> top = List.of();
+
+        // I migliori del sottoalbero sono tra i terminali del nodo e i migliori dei figli
+        private void recomputeTop() {
+            List<Suggestion> candidates = new ArrayList<>(terminals);
+            for (Node child : children.values()) {
+                candidates.addAll(child.top);
+            }
+            candidates.sort(RANKING);
+
+            // Lo stesso suggerimento può arrivare da più suffissi (es. "pro pro max")
+            Map<String, Suggestion> distinct = new LinkedHashMap<>();
+            for (Suggestion candidate : candidates) {
+                distinct.putIfAbsent(candidate.getIdentity(), candidate);
+                if (distinct.size() == MAX_SUGGESTIONS) {
+                    break;
+                }
+            }
+            top = List.copyOf(distinct.values());
+        }
+
+        // La popolarità del suggerimento è solo salita: i migliori restano quelli di prima,
+        // più al massimo questo, quindi basta riordinare la lista corrente
+        private void promote(Suggestion updated) {
+            List<Suggestion> candidates = new ArrayList<>(top.size() + 1);
+            for (Suggestion suggestion : top) {
+                if (!suggestion.getIdentity().equals(updated.getIdentity())) {
+                    candidates.add(suggestion);
+                }
+            }
+            candidates.add(updated);
+            candidates.sort(RANKING);
+            top = List.copyOf(candidates.size() > MAX_SUGGESTIONS ? candidates.subList(0, MAX_SUGGESTIONS) : candidates);
+        }
+
+        private boolean isEmpty() {
+            return children.isEmpty() && terminals.isEmpty();
+        }
+    }
+
+    /**
+     * Suggerimento: nome prodotto (con id) o marca, con la sua popolarità.
+     */
+    @Getter
+    public static class Suggestion {
+        private final String text;
+        private final String type;
+        private final Long productId;
+        private final long score;
+
+        // Chiave nel trie e identità (prodotto per id, marca per nome normalizzato)
+        private final String key;
+        private final String identity;
+
+        public Suggestion(String text, String type, Long productId, long score) {
+            this.text = text;
+            this.type = type;
+            this.productId = productId;
+            this.score = score;
+            this.key = normalize(text);
+            this.identity = TYPE_PRODUCT.equals(type) ? type + ":" + productId : type + ":" + key;
+        }
+    }
+}
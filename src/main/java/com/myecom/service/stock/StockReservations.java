@@ -0,0 +1,280 @@
+package com.myecom.service.stock;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Prenotazioni temporanee di stock per i prodotti nel carrello.
+ *
+ * Quando un utente mette un prodotto nel carrello i pezzi restano "tenuti" per ttl
+ * (rinnovato a ogni modifica del carrello), così chi arriva dopo vede lo stock
+ * disponibile meno quello già prenotato da altri, e StockValidator fa lo stesso al checkout.
+ *
+ * - Le prenotazioni sono divise per utente in stock.reservation.stripes mappe, ognuna con il suo lock:
+ *   utenti diversi sullo stesso prodotto non si bloccano a vicenda
+ * - Il totale prenotato per prodotto è un AtomicInteger aggiornato con compare-and-set:
+ *   la prenotazione passa solo se prenotato + richiesti ≤ stock
+ * - Le scadenze stanno in un TimingWheel avanzato ogni tick
+ *
+ * Le prenotazioni sono solo in memoria: dopo un riavvio si ricreano alla prossima modifica del carrello.
+ */
+@Component
+@Slf4j
+public class StockReservations {
+
+    @Value("${stock.reservation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stock.reservation.ttl:15m}")
+    private Duration ttl;
+
+    @Value("${stock.reservation.tick:1s}")
+    private Duration tick;
+
+    @Value("${stock.reservation.wheel-slots:1024}")
+    private int wheelSlots;
+
+    @Value("${stock.reservation.stripes:64}")
+    private int stripeCount;
+
+    private LongSupplier nanoClock = System::nanoTime;
+
+    private final Map<Long, AtomicInteger> reservedByProduct = new ConcurrentHashMap<>();
+
+    private Stripe[] stripes;
+    private TimingWheel<Hold> wheel;
+    private long startNanos;
+
+    @PostConstruct
+    void init() {
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("stock.reservation.stripes deve essere una potenza di 2");
+        }
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        startNanos = nanoClock.getAsLong();
+        wheel = new TimingWheel<>(wheelSlots, 0, hold -> hold.deadlineTick);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Porta la prenotazione dell'utente sul prodotto a quantity pezzi (0 = rilascia) e ne rinnova la scadenza.
+     *
+     * @return false se stock meno quanto prenotato dagli altri utenti non basta: la prenotazione resta com'era
+     */
+    public boolean hold(Long userId, Long productId, int quantity, int stock) {
+        if (!enabled) {
+            return quantity <= stock;
+        }
+
+        Stripe stripe = stripeFor(userId);
+        stripe.lock.lock();
+        try {
+            Map<Long, Hold> holds = stripe.holds.get(userId);
+            Hold current = holds != null ? holds.get(productId) : null;
+            int delta = quantity - (current != null ? current.quantity : 0);
+
+            AtomicInteger reserved = reservedByProduct.computeIfAbsent(productId, id -> new AtomicInteger());
+            if (delta > 0) {
+                int before;
+                do {
+                    before = reserved.get();
+                    if (before + delta > stock) {
+                        return false;
+                    }
+                } while (!reserved.compareAndSet(before, before + delta));
+            } else if (delta < 0) {
+                reserved.addAndGet(delta);
+            }
+
+            if (quantity == 0) {
+                removeHold(stripe, userId, productId);
+            } else if (current == null) {
+                Hold hold = new Hold(userId, productId, quantity, deadlineTick());
+                stripe.holds.computeIfAbsent(userId, id -> new HashMap<>()).put(productId, hold);
+                wheel.schedule(hold);
+            } else {
+                current.quantity = quantity;
+                current.deadlineTick = deadlineTick();
+            }
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Come hold, per più prodotti insieme: se uno non passa, le prenotazioni già cambiate tornano com'erano.
+     *
+     * @param quantities productId → quantità (0 = rilascia)
+     * @param stock      productId → stock attuale
+     * @return il primo prodotto senza stock sufficiente, o null se tutte le prenotazioni sono passate
+     */
+    public Long holdAll(Long userId, Map<Long, Integer> quantities, Map<Long, Integer> stock) {
+        Map<Long, Integer> previous = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Long productId = entry.getKey();
+            int before = heldBy(userId, productId);
+            if (!hold(userId, productId, entry.getValue(), stock.getOrDefault(productId, 0))) {
+                restore(userId, previous);
+                return productId;
+            }
+            previous.put(productId, before);
+        }
+        return null;
+    }
+
+    /**
+     * Riporta le prenotazioni dell'utente a quantità già ammesse in precedenza (es. la scrittura
+     * del carrello è fallita): lo stock non conta più.
+     *
+     * @param quantities productId → quantità prenotata prima della modifica (0 = nessuna)
+     */
+    public void restore(Long userId, Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> hold(userId, productId, quantity, Integer.MAX_VALUE));
+    }
+
+    public void release(Long userId, Long productId) {
+        hold(userId, productId, 0, 0);
+    }
+
+    // Rilascia tutte le prenotazioni dell'utente (carrello svuotato o diventato ordine)
+    public void releaseAll(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        Stripe stripe = stripeFor(userId);
+        stripe.lock.lock();
+        try {
+            Map<Long, Hold> holds = stripe.holds.remove(userId);
+            if (holds != null) {
+                holds.values().forEach(hold -> reservedByProduct.get(hold.productId).addAndGet(-hold.quantity));
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Pezzi del prodotto tenuti dall'utente
+    public int heldBy(Long userId, Long productId) {
+        if (!enabled) {
+            return 0;
+        }
+        Stripe stripe = stripeFor(userId);
+        stripe.lock.lock();
+        try {
+            Map<Long, Hold> holds = stripe.holds.get(userId);
+            Hold hold = holds != null ? holds.get(productId) : null;
+            return hold != null ? hold.quantity : 0;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Pezzi del prodotto prenotati da tutti gli utenti
+    public int reserved(Long productId) {
+        AtomicInteger reserved = reservedByProduct.get(productId);
+        return reserved != null ? reserved.get() : 0;
+    }
+
+    // Pezzi prenotati da utenti diversi da userId: al checkout sono quelli da togliere allo stock
+    public int reservedByOthers(Long productId, Long userId) {
+        return Math.max(0, reserved(productId) - heldBy(userId, productId));
+    }
+
+    /**
+     * Fa scadere le prenotazioni non rinnovate entro ttl.
+     */
+    @Scheduled(fixedDelayString = "${stock.reservation.tick:1s}")
+    public void expire() {
+        if (!enabled) {
+            return;
+        }
+        int expired = wheel.advance(currentTick(), this::expireHold);
+        if (expired > 0) {
+            log.debug("Expired {} stock reservations", expired);
+        }
+    }
+
+    // true se la prenotazione è scaduta o era già stata rilasciata; false se è stata rinnovata
+    private boolean expireHold(Hold hold) {
+        Stripe stripe = stripeFor(hold.userId);
+        stripe.lock.lock();
+        try {
+            Map<Long, Hold> holds = stripe.holds.get(hold.userId);
+            if (holds == null || holds.get(hold.productId) != hold) {
+                return true; // Rilasciata: in ruota era rimasto solo l'oggetto
+            }
+            if (hold.deadlineTick > currentTick()) {
+                return false;
+            }
+            reservedByProduct.get(hold.productId).addAndGet(-hold.quantity);
+            removeHold(stripe, hold.userId, hold.productId);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void removeHold(Stripe stripe, Long userId, Long productId) {
+        Map<Long, Hold> holds = stripe.holds.get(userId);
+        if (holds != null) {
+            holds.remove(productId);
+            if (holds.isEmpty()) {
+                stripe.holds.remove(userId);
+            }
+        }
+    }
+
+    private Stripe stripeFor(Long userId) {
+        return stripes[Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (stripes.length - 1)];
+    }
+
+    private long currentTick() {
+        return (nanoClock.getAsLong() - startNanos) / tick.toNanos();
+    }
+
+    private long deadlineTick() {
+        // Arrotondata per eccesso: la prenotazione dura almeno ttl
+        return currentTick() + (ttl.toNanos() + tick.toNanos() - 1) / tick.toNanos();
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        // userId → productId → prenotazione
+        private final Map<Long, Map<Long, Hold>> holds = new HashMap<>();
+    }
+
+    /**
+     * Pezzi tenuti da un utente su un prodotto; quantity e deadlineTick cambiano solo con il lock della stripe.
+     */
+    private static final class Hold {
+        private final Long userId;
+        private final Long productId;
+        private volatile int quantity;
+        private volatile long deadlineTick;
+
+        private Hold(Long userId, Long productId, int quantity, long deadlineTick) {
+            this.userId = userId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.myecom.service.stock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Timing wheel a slot hashati per scadenze con granularità di un tick.
+ *
+ * Ogni elemento sta in un solo slot: (tick di scadenza) mod (numero di slot).
+ * Inserire costa O(1); advance() visita solo gli slot dei tick trascorsi.
+ * La scadenza si rilegge quando lo slot viene visitato: un elemento rinnovato nel frattempo
+ * (o con più giri di ruota davanti) viene spostato nello slot giusto invece di scadere.
+ */
+final class TimingWheel<T> {
+
+    private final ConcurrentLinkedQueue<T>[] slots;
+    private final int mask;
+    private final ToLongFunction<T> deadlineTick;
+
+    // Ultimo tick già elaborato; lo avanza solo advance()
+    private volatile long cursor;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(int slotCount, long startTick, ToLongFunction<T> deadlineTick) {
+        if (slotCount <= 0 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Il numero di slot deve essere una potenza di 2");
+        }
+        this.slots = new ConcurrentLinkedQueue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = slotCount - 1;
+        this.cursor = startTick;
+        this.deadlineTick = deadlineTick;
+    }
+
+    void schedule(T item) {
+        // Mai in uno slot già passato: verrebbe visto solo al giro successivo
+        long tick = Math.max(deadlineTick.applyAsLong(item), cursor + 1);
+        slots[(int) (tick & mask)].add(item);
+    }
+
+    /**
+     * Elabora i tick fino a nowTick. expire riceve gli elementi scaduti e restituisce false
+     * se l'elemento va tenuto (es. rinnovato in concorrenza): viene rimesso in ruota.
+     *
+     * @return elementi scaduti
+     */
+    synchronized int advance(long nowTick, Predicate<T> expire) {
+        if (nowTick <= cursor) {
+            return 0;
+        }
+        // Dopo una pausa lunga basta un giro completo: ogni slot viene visitato una volta
+        long from = Math.max(cursor + 1, nowTick - mask);
+        cursor = nowTick;
+
+        int expired = 0;
+        List<T> drained = new ArrayList<>();
+        for (long tick = from; tick <= nowTick; tick++) {
+            ConcurrentLinkedQueue<T> slot = slots[(int) (tick & mask)];
+            for (T item = slot.poll(); item != null; item = slot.poll()) {
+                drained.add(item);
+            }
+            for (T item : drained) {
+                if (deadlineTick.applyAsLong(item) <= nowTick && expire.test(item)) {
+                    expired++;
+                } else {
+                    schedule(item);
+                }
+            }
+            drained.clear();
+        }
+        return expired;
+    }
+}
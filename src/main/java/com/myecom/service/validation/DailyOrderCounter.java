@@ -0,0 +1,112 @@
+package com.myecom.service.validation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.myecom.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ordini di oggi per utente, in memoria, per DailyLimitValidator.
+ *
+ * - Al primo uso (o dopo l'eviction) il contatore dell'utente parte da un COUNT sul DB
+ * - Ogni ordine committato lo incrementa: un checkout annullato non conta
+ * - A mezzanotte il contatore di ieri non vale più e viene riletto dal DB per il nuovo giorno
+ *
+ * I contatori stanno in una cache Caffeine (mappa concorrente con lock per segmento, non uno globale):
+ * al massimo max-users utenti, rimossi dopo idle-eviction senza ordini né controlli.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DailyOrderCounter {
+
+    private final OrderRepository orderRepository;
+
+    @Value("${order.daily-limit.counter.max-users:100000}")
+    private long maxUsers;
+
+    @Value("${order.daily-limit.counter.idle-eviction:1h}")
+    private Duration idleEviction;
+
+    private Supplier<LocalDate> today = LocalDate::now;
+
+    private Cache<Long, DayCount> counts;
+
+    @PostConstruct
+    void init() {
+        counts = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(idleEviction)
+                .build();
+    }
+
+    /**
+     * Ordini creati oggi dall'utente (compresi quelli già committati prima del primo uso)
+     */
+    public int countToday(Long userId) {
+        LocalDate day = today.get();
+        DayCount count = counts.getIfPresent(userId);
+        if (count == null || !count.day.equals(day)) {
+            // compute: un solo COUNT per utente anche con più checkout contemporanei
+            count = counts.asMap().compute(userId,
+                    (id, current) -> current != null && current.day.equals(day) ? current : seed(id, day));
+        }
+        return count.orders.get();
+    }
+
+    /**
+     * Conta l'ordine dell'utente quando la transazione corrente viene committata
+     * (subito, se non c'è una transazione).
+     */
+    public void recordOrder(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment(userId);
+            }
+        });
+    }
+
+    // Senza contatore (mai letto o già rimosso) non serve fare nulla: il prossimo COUNT vedrà l'ordine
+    private void increment(Long userId) {
+        LocalDate day = today.get();
+        counts.asMap().computeIfPresent(userId, (id, current) -> {
+            if (!current.day.equals(day)) {
+                return null; // Contatore di ieri: si rilegge dal DB al prossimo uso
+            }
+            current.orders.incrementAndGet();
+            return current;
+        });
+    }
+
+    private DayCount seed(Long userId, LocalDate day) {
+        long orders = orderRepository.countUserOrdersInPeriod(userId, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        log.debug("Seeded daily order counter for user: {} with {} orders on {}", userId, orders, day);
+        return new DayCount(day, (int) orders);
+    }
+
+    private static final class DayCount {
+        private final LocalDate day;
+        private final AtomicInteger orders;
+
+        private DayCount(LocalDate day, int orders) {
+            this.day = day;
+            this.orders = new AtomicInteger(orders);
+        }
+    }
+}
@@ -53,4 +53,17 @@ import java.util.List;
     default boolean isEnabled() {
         return true;
     }
+
+    /**
+     * Indica se questa validazione può girare in parallelo alle altre
+     * (order.validation.parallel.enabled=true), su un thread diverso da quello del checkout.
+     *
+     * Solo per validazioni che non usano la transazione del checkout né entità lazy
+     * del carrello: tipicamente controlli lenti per I/O con dati propri.
+     *
+     * @return true se la validazione è indipendente (default: false)
+     */
+    default boolean isIndependent() {
+        return false;
+    }
 }
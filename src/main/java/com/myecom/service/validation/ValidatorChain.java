@@ -0,0 +1,251 @@
+package com.myecom.service.validation;
+
+import com.myecom.exception.BusinessException;
+import com.myecom.model.CartItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Catena delle validazioni ordine, preparata una volta sola.
+ *
+ * All'avvio ordina i validator per getOrder() e prepara le metriche di ciascuno:
+ * - orders.validation.duration{validator}: istogramma dei tempi di validate()
+ * - orders.validation.result{validator, result=pass|fail|error}: esiti
+ *
+ * A ogni checkout controlla solo se isEnabled() è cambiato rispetto alla catena attuale:
+ * la catena (lista dei validator attivi) viene ricostruita solo in quel caso.
+ *
+ * Con order.validation.parallel.enabled=true i validator con isIndependent() partono subito su un
+ * pool di thread, mentre gli altri girano in ordine sul thread del checkout. Gli esiti vengono
+ * comunque letti in ordine: vince il primo validator (per getOrder) che fallisce, come in sequenza.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ValidatorChain {
+
+    private final List<OrderValidator> validators;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${order.validation.parallel.enabled:false}")
+    private boolean parallel;
+
+    @Value("${order.validation.parallel.threads:4}")
+    private int threads;
+
+    // Tutti i validator, ordinati una volta per getOrder()
+    private List<Step> steps;
+    private volatile Chain chain;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        steps = validators.stream()
+                .sorted(Comparator.comparingInt(OrderValidator::getOrder))
+                .map(this::step)
+                .toList();
+        chain = compile();
+
+        if (parallel && steps.stream().anyMatch(step -> step.validator.isIndependent())) {
+            AtomicInteger threadCount = new AtomicInteger();
+            // Pool pieno: il validator gira sul thread del checkout invece di aspettare
+            executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(threads * 16),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "order-validation-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            log.info("Parallel order validation enabled for independent validators, threads={}", threads);
+        }
+    }
+
+    /**
+     * Esegue le validazioni attive: la prima che fallisce ferma il checkout con BusinessException.
+     */
+    public void validate(Long userId, List<CartItem> cartItems) {
+        Chain current = current();
+        if (current.active.isEmpty()) {
+            return;
+        }
+        if (executor == null || current.independent == 0) {
+            for (Step step : current.active) {
+                step.run(userId, cartItems);
+            }
+            return;
+        }
+
+        // I validator indipendenti partono subito, gli altri girano qui in ordine
+        Future<?>[] started = new Future<?>[current.active.size()];
+        for (int i = 0; i < started.length; i++) {
+            Step step = current.active.get(i);
+            if (step.validator.isIndependent()) {
+                started[i] = executor.submit(() -> step.run(userId, cartItems));
+            }
+        }
+        try {
+            for (int i = 0; i < started.length; i++) {
+                if (started[i] == null) {
+                    current.active.get(i).run(userId, cartItems);
+                } else {
+                    await(started[i]);
+                }
+            }
+        } finally {
+            // Dopo il primo errore gli esiti rimasti non servono più
+            for (Future<?> future : started) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    // La catena attuale, ricostruita solo se qualche isEnabled() è cambiato
+    private Chain current() {
+        Chain current = chain;
+        for (int i = 0; i < steps.size(); i++) {
+            if (steps.get(i).validator.isEnabled() != current.enabled[i]) {
+                synchronized (this) {
+                    chain = compile();
+                    log.info("Order validator chain rebuilt: {}", chain.active.stream().map(Step::name).toList());
+                    return chain;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Chain compile() {
+        boolean[] enabled = new boolean[steps.size()];
+        List<Step> active = new ArrayList<>();
+        int independent = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            enabled[i] = step.validator.isEnabled();
+            if (enabled[i]) {
+                active.add(step);
+                if (step.validator.isIndependent()) {
+                    independent++;
+                }
+            }
+        }
+        return new Chain(enabled, List.copyOf(active), independent);
+    }
+
+    private void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime; // BusinessException del validator (step.run converte già gli altri errori)
+            }
+            throw new BusinessException("Errore interno durante la validazione dell'ordine");
+        } catch (CancellationException e) {
+            throw new BusinessException("Errore interno durante la validazione dell'ordine");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Validazione dell'ordine interrotta");
+        }
+    }
+
+    private Step step(OrderValidator validator) {
+        String name = validator.getName();
+        return new Step(validator,
+                Timer.builder("orders.validation.duration")
+                        .tag("validator", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                result(name, "pass"),
+                result(name, "fail"),
+                result(name, "error"));
+    }
+
+    private Counter result(String name, String result) {
+        return Counter.builder("orders.validation.result")
+                .tag("validator", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Validator attivi in ordine di esecuzione, con lo stato di isEnabled() da cui sono stati calcolati
+     */
+    private static final class Chain {
+        private final boolean[] enabled;
+        private final List<Step> active;
+        private final int independent;
+
+        private Chain(boolean[] enabled, List<Step> active, int independent) {
+            this.enabled = enabled;
+            this.active = active;
+            this.independent = independent;
+        }
+    }
+
+    /**
+     * Un validator con le sue metriche
+     */
+    private static final class Step {
+        private final OrderValidator validator;
+        private final Timer duration;
+        private final Counter passed;
+        private final Counter failed;
+        private final Counter errors;
+
+        private Step(OrderValidator validator, Timer duration, Counter passed, Counter failed, Counter errors) {
+            this.validator = validator;
+            this.duration = duration;
+            this.passed = passed;
+            this.failed = failed;
+            this.errors = errors;
+        }
+
+        private String name() {
+            return validator.getName();
+        }
+
+        private void run(Long userId, List<CartItem> cartItems) {
+            long start = System.nanoTime();
+            try {
+                validator.validate(userId, cartItems);
+                passed.increment();
+            } catch (BusinessException e) {
+                failed.increment();
+                throw e; // Ferma tutto se una validazione fallisce
+            } catch (Exception e) {
+                errors.increment();
+                throw new BusinessException(
+                        "Errore interno durante la validazione dell'ordine: " + validator.getName());
+            } finally {
+                duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
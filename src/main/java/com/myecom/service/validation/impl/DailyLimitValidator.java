@@ -1,18 +1,14 @@
 package com.myecom.service.validation.impl;
 
 import com.myecom.model.CartItem;
-import com.myecom.model.Order;
-import com.myecom.model.User;
+import com.myecom.service.validation.DailyOrderCounter;
 import com.myecom.service.validation.OrderValidator;
 import com.myecom.exception.BusinessException;
-import com.myecom.repository.OrderRepository;
-import com.myecom.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -22,6 +18,7 @@ import java.util.List;
  * che un utente può creare in un giorno.
  *
  * Il limite è configurabile tramite property: order.daily-limit
+ * Gli ordini di oggi vengono da DailyOrderCounter, in memoria: nessuna query a ogni checkout.
  *
  * Ordine di esecuzione: 30
  */
@@ -30,8 +27,7 @@ import java.util.List;
 @Slf4j
 public class DailyLimitValidator implements OrderValidator {
 
-    private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
+    private final DailyOrderCounter dailyOrderCounter;
 
     @Value("${order.daily-limit:10}")
     private int dailyOrderLimit;
@@ -41,24 +37,15 @@ public class DailyLimitValidator implements OrderValidator {
         log.debug("Validating daily limit for user: {}, limit: {}", userId, dailyOrderLimit);
 
         try {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new BusinessException("Utente non trovato"));
-
-            // Calcola inizio e fine giornata
-            LocalDateTime startOfDay = LocalDateTime.now()
-                    .withHour(0).withMinute(0).withSecond(0).withNano(0);
-            LocalDateTime endOfDay = LocalDateTime.now()
-                    .withHour(23).withMinute(59).withSecond(59).withNano(999999999);
-
             // Conta ordini di oggi
-            List<Order> todayOrders = orderRepository.findUserOrdersInPeriod(user, startOfDay, endOfDay);
+            int todayOrders = dailyOrderCounter.countToday(userId);
 
             log.debug("User: {} has {} orders today, limit: {}",
-                    userId, todayOrders.size(), dailyOrderLimit);
+                    userId, todayOrders, dailyOrderLimit);
 
-            if (todayOrders.size() >= dailyOrderLimit) {
+            if (todayOrders >= dailyOrderLimit) {
                 log.warn("Daily limit validation failed for user: {}. Orders today: {}, Limit: {}",
-                        userId, todayOrders.size(), dailyOrderLimit);
+                        userId, todayOrders, dailyOrderLimit);
 
                 throw new BusinessException(
                         String.format("Raggiunto il limite massimo di %d ordini al giorno. " +
@@ -68,7 +55,7 @@ public class DailyLimitValidator implements OrderValidator {
             }
 
             log.debug("Daily limit validation passed for user: {} ({}/{} orders today)",
-                    userId, todayOrders.size(), dailyOrderLimit);
+                    userId, todayOrders, dailyOrderLimit);
 
         } catch (BusinessException e) {
             // Re-lancia le BusinessException
@@ -89,4 +76,9 @@ public class DailyLimitValidator implements OrderValidator {
     public int getOrder() {
         return 30; // Dopo le validazioni base
     }
+
+    @Override
+    public boolean isIndependent() {
+        return true; // Usa solo DailyOrderCounter, che all'occorrenza fa la sua query
+    }
 }
\ No newline at end of file
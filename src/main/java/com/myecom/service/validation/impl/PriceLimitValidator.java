@@ -1,6 +1,7 @@
 package com.myecom.service.validation.impl;
 
 import com.myecom.model.CartItem;
+import com.myecom.model.Money;
 import com.myecom.service.validation.OrderValidator;
 import com.myecom.exception.BusinessException;
 import lombok.extern.slf4j.Slf4j;
@@ -31,19 +32,20 @@ public class PriceLimitValidator implements OrderValidator {
     public void validate(Long userId, List<CartItem> cartItems) throws BusinessException {
         log.debug("Validating price limit for user: {}", userId);
 
-        BigDecimal totalAmount = calculateTotalAmount(cartItems);
+        long totalCents = calculateTotalCents(cartItems);
+        Money totalAmount = Money.ofCents(totalCents);
 
         log.debug("Order total amount: €{} for user: {}, limit: €{}",
                 totalAmount, userId, maxOrderAmount);
 
-        if (totalAmount.compareTo(maxOrderAmount) > 0) {
+        if (totalCents > Money.toCents(maxOrderAmount)) {
             log.warn("Price limit validation failed for user: {}. Amount: €{}, Limit: €{}",
                     userId, totalAmount, maxOrderAmount);
 
             throw new BusinessException(
                     String.format("Ordine troppo grande (€%.2f). Il limite massimo è €%.2f. " +
                                     "Per ordini superiori contatta il supporto clienti.",
-                            totalAmount, maxOrderAmount)
+                            totalAmount.toBigDecimal(), maxOrderAmount)
             );
         }
 
@@ -61,11 +63,13 @@ public class PriceLimitValidator implements OrderValidator {
     }
 
     /**
-     * Calcola l'importo totale dell'ordine.
+     * Calcola l'importo totale dell'ordine in centesimi (nessun oggetto intermedio per riga).
      */
-    private BigDecimal calculateTotalAmount(List<CartItem> cartItems) {
-        return cartItems.stream()
-                .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private long calculateTotalCents(List<CartItem> cartItems) {
+        long cents = 0;
+        for (CartItem item : cartItems) {
+            cents = Math.addExact(cents, item.getProduct().getPrice().centsTimes(item.getQuantity()));
+        }
+        return cents;
     }
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import com.myecom.model.CartItem;
 import com.myecom.model.Product;
 import com.myecom.service.validation.OrderValidator;
 import com.myecom.exception.BusinessException;
+import com.myecom.service.stock.StockReservations;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -14,17 +16,21 @@ import java.util.List;
  *
  * Verifica che:
  * - I prodotti siano ancora attivi
- * - Ci sia stock sufficiente per la quantità richiesta
+ * - Ci sia stock sufficiente per la quantità richiesta, togliendo i pezzi
+ *   prenotati nei carrelli degli altri utenti (vedi StockReservations)
  * - La quantità richiesta sia ragionevole (max 99 per prodotto)
  *
  * Ordine di esecuzione: 20
  */
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class StockValidator implements OrderValidator {
 
     private static final int MAX_QUANTITY_PER_PRODUCT = 99;
 
+    private final StockReservations stockReservations;
+
     @Override
     public void validate(Long userId, List<CartItem> cartItems) throws BusinessException {
         log.debug("Validating stock for user: {} with {} items", userId, cartItems.size());
@@ -32,8 +38,10 @@ public class StockValidator implements OrderValidator {
         for (CartItem item : cartItems) {
             Product product = item.getProduct();
 
+            int available = product.getStockQuantity() - stockReservations.reservedByOthers(product.getId(), userId);
+
             log.debug("Checking stock for product: {} (ID: {}), requested: {}, available: {}",
-                    product.getName(), product.getId(), item.getQuantity(), product.getStockQuantity());
+                    product.getName(), product.getId(), item.getQuantity(), available);
 
             // Verifica che il prodotto sia attivo
             if (!product.isActive()) {
@@ -45,12 +53,12 @@ public class StockValidator implements OrderValidator {
             }
 
             // Verifica stock disponibile
-            if (product.getStockQuantity() < item.getQuantity()) {
+            if (available < item.getQuantity()) {
                 log.warn("Insufficient stock validation failed for user: {}, product: {}, requested: {}, available: {}",
-                        userId, product.getName(), item.getQuantity(), product.getStockQuantity());
+                        userId, product.getName(), item.getQuantity(), available);
                 throw new BusinessException(
                         String.format("Prodotto '%s': richiesti %d pezzi ma disponibili solo %d",
-                                product.getName(), item.getQuantity(), product.getStockQuantity())
+                                product.getName(), item.getQuantity(), Math.max(available, 0))
                 );
             }
 
@@ -0,0 +1,92 @@
+package com.myecom.benchmark;
+
+import com.myecom.model.Cart;
+import com.myecom.model.CartItem;
+import com.myecom.model.Money;
+import com.myecom.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totale del carrello: somma in centesimi (Money) contro la vecchia somma di BigDecimal.
+ *
+ * Non fa parte dei test: si lancia a mano dopo mvn test-compile, ad esempio
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) com.myecom.benchmark.CartTotalsBenchmark
+ * (cp.txt da mvn dependency:build-classpath -Dmdep.outputFile=cp.txt).
+ * Con -prof gc si vede l'allocazione per operazione (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartTotalsBenchmark {
+
+    @Param({"5", "50"})
+    private int items;
+
+    private Cart cart;
+
+    // Stessi prezzi come BigDecimal, per riprodurre il calcolo precedente
+    private BigDecimal[] bigDecimalPrices;
+    private int[] quantities;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<CartItem> cartItems = new ArrayList<>();
+        bigDecimalPrices = new BigDecimal[items];
+        quantities = new int[items];
+
+        for (int i = 0; i < items; i++) {
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(200_000), 2);
+            int quantity = 1 + random.nextInt(5);
+            bigDecimalPrices[i] = price;
+            quantities[i] = quantity;
+            cartItems.add(CartItem.builder()
+                    .product(Product.builder().id((long) i).price(Money.of(price)).build())
+                    .quantity(quantity)
+                    .build());
+        }
+        cart = Cart.builder().cartItems(cartItems).build();
+    }
+
+    @Benchmark
+    public Money moneyTotal() {
+        return cart.getTotalAmount();
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < bigDecimalPrices.length; i++) {
+            total = total.add(bigDecimalPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CartTotalsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -1,8 +1,11 @@
 package com.myecom.controller;
 
+import com.myecom.dto.cart.CartBatchRequest;
 import com.myecom.dto.cart.CartItemRequest;
 import com.myecom.dto.cart.CartItemResponse;
+import com.myecom.dto.cart.CartOperationRequest;
 import com.myecom.dto.cart.CartResponse;
+import com.myecom.model.Money;
 import com.myecom.service.CartService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,7 +19,6 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
-import java.math.BigDecimal;
 import java.util.Arrays;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -52,17 +54,17 @@ class CartControllerTest {
                 .id(1L)
                 .productId(1L)
                 .productName("iPhone 15")
-                .unitPrice(new BigDecimal("1299.99"))
+                .unitPrice(Money.of("1299.99"))
                 .productImageUrl("http://example.com/iphone.jpg")
                 .quantity(2)
-                .totalPrice(new BigDecimal("2599.98"))
+                .totalPrice(Money.of("2599.98"))
                 .productInStock(true)
                 .build();
 
         cartResponse = CartResponse.builder()
                 .id(1L)
                 .items(Arrays.asList(cartItem))
-                .totalAmount(new BigDecimal("2599.98"))
+                .totalAmount(Money.of("2599.98"))
                 .totalItems(2)
                 .updatedAt("2024-01-15T10:30:00")
                 .build();
@@ -102,13 +104,45 @@ class CartControllerTest {
                 .andExpect(jsonPath("$.totalAmount").value(2599.98));
     }
 
+    @Test
+    void shouldApplyBatch() throws Exception {
+        // Given
+        CartBatchRequest batchRequest = CartBatchRequest.builder()
+                .operations(Arrays.asList(
+                        CartOperationRequest.builder().type(CartOperationRequest.Type.ADD).productId(1L).quantity(2).build(),
+                        CartOperationRequest.builder().type(CartOperationRequest.Type.REMOVE).productId(2L).build()))
+                .build();
+        when(cartService.applyBatch(eq(1L), any(CartBatchRequest.class))).thenReturn(cartResponse);
+
+        // When & Then
+        mockMvc.perform(post("/api/cart/1/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].productId").value(1))
+                .andExpect(jsonPath("$.totalItems").value(2));
+
+        verify(cartService).applyBatch(eq(1L), any(CartBatchRequest.class));
+    }
+
+    @Test
+    void shouldRejectEmptyBatch() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/api/cart/1/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\": []}"))
+                .andExpect(status().isBadRequest());
+
+        verify(cartService, never()).applyBatch(any(), any());
+    }
+
     @Test
     void shouldRemoveFromCart() throws Exception {
         // Given - carrello vuoto dopo rimozione
         CartResponse emptyCart = CartResponse.builder()
                 .id(1L)
                 .items(Arrays.asList())
-                .totalAmount(BigDecimal.ZERO)
+                .totalAmount(Money.ZERO)
                 .totalItems(0)
                 .build();
 
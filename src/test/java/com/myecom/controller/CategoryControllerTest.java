@@ -100,7 +100,7 @@ class CategoryControllerTest {
                 .build();
 
         List<CategoryResponse> activeCategories = Arrays.asList(categoryResponse, clothing);
-        when(categoryService.getActiveCategories()).thenReturn(activeCategories);
+        when(categoryService.getActiveCategoriesJson()).thenReturn(objectMapper.writeValueAsBytes(activeCategories));
 
         // When & Then - testa endpoint GET
         mockMvc.perform(get("/api/categories"))
@@ -113,7 +113,7 @@ class CategoryControllerTest {
                 .andExpect(jsonPath("$[0].active").value(true))
                 .andExpect(jsonPath("$[1].active").value(true));
 
-        verify(categoryService).getActiveCategories();
+        verify(categoryService).getActiveCategoriesJson();
     }
 
     @Test
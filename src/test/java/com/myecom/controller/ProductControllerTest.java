@@ -2,8 +2,10 @@ package com.myecom.controller;
 
 import com.myecom.dto.product.CategoryResponse;
 import com.myecom.dto.product.PageResponse;
+import com.myecom.dto.product.ProductImportResponse;
 import com.myecom.dto.product.ProductRequest;
 import com.myecom.dto.product.ProductResponse;
+import com.myecom.service.ProductImportService;
 import com.myecom.service.ProductService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -35,6 +37,9 @@ class ProductControllerTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private ProductImportService productImportService;
+
     @InjectMocks
     private ProductController productController;
 
@@ -204,4 +209,18 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content").isArray());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldDispatchImportByContentType() throws Exception {
+        // Given
+        ProductImportResponse report = ProductImportResponse.builder().totalRows(1).imported(1).build();
+        when(productImportService.importProducts(any(), eq(ProductImportService.Format.CSV))).thenReturn(report);
+
+        // When & Then
+        mockMvc.perform(post("/api/products/import")
+                        .contentType("text/csv")
+                        .content("name,price,stockQuantity,categoryId\nWidget,1.00,1,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+    }
+}
@@ -0,0 +1,167 @@
+package com.myecom.integration;
+
+import com.myecom.model.Cart;
+import com.myecom.model.CartItem;
+import com.myecom.model.Category;
+import com.myecom.model.Money;
+import com.myecom.model.Product;
+import com.myecom.model.User;
+import com.myecom.repository.CartItemRepository;
+import com.myecom.repository.CartRepository;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.repository.UserRepository;
+import com.myecom.service.cart.AbandonedCartPurger;
+import com.myecom.service.cart.CartPurgeResult;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test di integrazione per la pulizia dei carrelli abbandonati
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class AbandonedCartPurgeIntegrationTest {
+
+    @Autowired private AbandonedCartPurger purger;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CartRepository cartRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Product product;
+    private Cart abandoned1;
+    private Cart abandoned2;
+    private Cart recentItem;
+    private Cart recent;
+
+    @BeforeEach
+    void setUp() {
+        // Blocchi da un carrello e nessuna pausa: la paginazione keyset lavora su più giri
+        ReflectionTestUtils.setField(purger, "batchSize", 1);
+        ReflectionTestUtils.setField(purger, "maxDbLoad", 1.0);
+
+        Category category = categoryRepository.save(Category.builder()
+                .name("Purge Category")
+                .description("Categoria per la pulizia dei carrelli")
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        product = productRepository.save(Product.builder()
+                .name("Purge Product")
+                .description("Prodotto per la pulizia dei carrelli")
+                .price(Money.of("10.00"))
+                .stockQuantity(10)
+                .brand("PurgeBrand")
+                .category(category)
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        LocalDateTime old = LocalDateTime.now().minusDays(60);
+        abandoned1 = cartWithItem("purge1@example.com", old, old);
+        abandoned2 = cartWithItem("purge2@example.com", old, old);
+        recentItem = cartWithItem("purge3@example.com", old, LocalDateTime.now().minusDays(1));
+        recent = cartWithItem("purge4@example.com", LocalDateTime.now(), LocalDateTime.now());
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(purger, "batchSize", 500);
+        ReflectionTestUtils.setField(purger, "maxDbLoad", 0.2);
+    }
+
+    @Test
+    void shouldDeleteOnlyAbandonedCartsInBatches() {
+        // When
+        CartPurgeResult result = purger.purge();
+
+        // Then
+        assertThat(result.getDeletedCarts()).isEqualTo(2);
+        assertThat(result.getDeletedItems()).isEqualTo(2);
+        assertThat(result.getBatches()).isEqualTo(2);
+
+        assertThat(cartRepository.existsById(abandoned1.getId())).isFalse();
+        assertThat(cartRepository.existsById(abandoned2.getId())).isFalse();
+        assertThat(cartItemRepository.findWithProductByCartId(abandoned1.getId())).isEmpty();
+
+        // Carrello vecchio ma con una riga aggiunta di recente: è ancora in uso
+        assertThat(cartRepository.existsById(recentItem.getId())).isTrue();
+        assertThat(cartRepository.existsById(recent.getId())).isTrue();
+        assertThat(cartItemRepository.findWithProductByCartId(recent.getId())).hasSize(1);
+    }
+
+    @Test
+    void shouldFindNothingOnSecondRun() {
+        purger.purge();
+
+        CartPurgeResult result = purger.purge();
+
+        assertThat(result.getDeletedCarts()).isZero();
+        assertThat(result.getBatches()).isZero();
+    }
+
+    @Test
+    void deletesShouldRecheckCutoffForCartsUsedAfterTheScan() {
+        // Given - id letti come abbandonati, ma nel frattempo carrello o righe sono stati usati
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+        List<Long> scanned = List.of(abandoned1.getId(), recentItem.getId(), recent.getId());
+
+        // When
+        int items = cartItemRepository.deleteAbandonedByCartIdIn(scanned, cutoff);
+        int carts = cartRepository.deleteAbandonedByIdIn(scanned, cutoff);
+
+        // Then - solo il carrello ancora abbandonato sparisce
+        assertThat(items).isEqualTo(1);
+        assertThat(carts).isEqualTo(1);
+        assertThat(cartRepository.existsById(abandoned1.getId())).isFalse();
+        assertThat(cartItemRepository.findWithProductByCartId(recentItem.getId())).hasSize(1);
+        assertThat(cartItemRepository.findWithProductByCartId(recent.getId())).hasSize(1);
+    }
+
+    private Cart cartWithItem(String email, LocalDateTime cartCreatedAt, LocalDateTime itemCreatedAt) {
+        User user = userRepository.save(User.builder()
+                .email(email)
+                .password("password123")
+                .firstName("Mario")
+                .lastName("Rossi")
+                .role(User.Role.USER)
+                .enabled(true)
+                .build());
+
+        Cart cart = cartRepository.save(Cart.builder()
+                .user(user)
+                .createdAt(cartCreatedAt)
+                .build());
+
+        cartItemRepository.save(CartItem.builder()
+                .cart(cart)
+                .product(product)
+                .quantity(1)
+                .createdAt(itemCreatedAt)
+                .build());
+        return cart;
+    }
+}
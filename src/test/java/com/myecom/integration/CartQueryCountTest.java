@@ -0,0 +1,160 @@
+package com.myecom.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myecom.dto.cart.CartBatchRequest;
+import com.myecom.dto.cart.CartOperationRequest;
+import com.myecom.model.Cart;
+import com.myecom.model.CartItem;
+import com.myecom.model.Category;
+import com.myecom.model.Money;
+import com.myecom.model.Product;
+import com.myecom.model.User;
+import com.myecom.repository.CartItemRepository;
+import com.myecom.repository.CartRepository;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifica quante istruzioni SQL esegue la lettura del carrello.
+ *
+ * Carrello, righe e prodotti arrivano con una sola query (fetch join),
+ * quindi il numero di statement non cresce con il numero di prodotti nel carrello.
+ * Le modifiche in batch leggono tutti i prodotti con una query sola.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class CartQueryCountTest {
+
+    @Autowired private WebApplicationContext webApplicationContext;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CartRepository cartRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private MockMvc mockMvc;
+    private Statistics statistics;
+    private User user;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        Category category = categoryRepository.save(Category.builder()
+                .name("Cart Query Category")
+                .description("Categoria per il conteggio delle query del carrello")
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        user = userRepository.save(User.builder()
+                .email("cartquery@example.com")
+                .password("password123")
+                .firstName("Mario")
+                .lastName("Rossi")
+                .role(User.Role.USER)
+                .enabled(true)
+                .build());
+
+        Cart cart = cartRepository.save(Cart.builder()
+                .user(user)
+                .build());
+
+        for (int i = 1; i <= 3; i++) {
+            Product product = productRepository.save(Product.builder()
+                    .name("Cart Query Product " + i)
+                    .description("Prodotto per il conteggio delle query del carrello")
+                    .price(Money.of("10.00"))
+                    .stockQuantity(5)
+                    .brand("CartBrand")
+                    .category(category)
+                    .active(true)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            products.add(product);
+            cartItemRepository.save(CartItem.builder()
+                    .cart(cart)
+                    .product(product)
+                    .quantity(i)
+                    .build());
+        }
+
+        // Niente entità già in memoria: la richiesta deve leggere tutto dal DB
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getCartShouldUseSingleStatement() throws Exception {
+        mockMvc.perform(get("/api/cart/" + user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(3))
+                .andExpect(jsonPath("$.items[2].productName").value("Cart Query Product 3"))
+                .andExpect(jsonPath("$.totalItems").value(6))
+                .andExpect(jsonPath("$.totalAmount").value(60.00));
+
+        // Utente → carrello → righe → prodotti con una sola SELECT
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void batchShouldPrefetchProductsAndRenderOnce() throws Exception {
+        CartBatchRequest request = CartBatchRequest.builder()
+                .operations(List.of(
+                        CartOperationRequest.builder().type(CartOperationRequest.Type.SET)
+                                .productId(products.get(0).getId()).quantity(4).build(),
+                        CartOperationRequest.builder().type(CartOperationRequest.Type.REMOVE)
+                                .productId(products.get(1).getId()).build(),
+                        CartOperationRequest.builder().type(CartOperationRequest.Type.ADD)
+                                .productId(products.get(2).getId()).quantity(1).build()))
+                .build();
+
+        mockMvc.perform(post("/api/cart/" + user.getId() + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.totalItems").value(8))
+                .andExpect(jsonPath("$.totalAmount").value(80.00));
+
+        // Prodotti (findAllById), carrello e righe con prodotto: tre query, nessun caricamento lazy
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(3);
+        assertThat(statistics.getEntityFetchCount()).isZero();
+    }
+}
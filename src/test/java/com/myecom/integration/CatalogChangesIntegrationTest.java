@@ -0,0 +1,129 @@
+package com.myecom.integration;
+
+import com.myecom.dto.product.CatalogChangesResponse;
+import com.myecom.dto.product.ProductResponse;
+import com.myecom.model.Category;
+import com.myecom.model.Money;
+import com.myecom.model.Product;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.service.CatalogChangesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Feed delle modifiche al catalogo su H2: watermark, keyset e disattivazioni.
+ *
+ * Il DB può contenere dati di altri test: ogni test parte dal watermark "attuale",
+ * ottenuto leggendo tutto il feed.
+ */
+@SpringBootTest(properties = "catalog.changes.settle-time=0s")
+@ActiveProfiles("test")
+@Transactional
+class CatalogChangesIntegrationTest {
+
+    @Autowired private CatalogChangesService catalogChangesService;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private ProductRepository productRepository;
+
+    private Category category;
+    private String watermark;
+
+    @BeforeEach
+    void setUp() {
+        watermark = drain(null);
+
+        category = categoryRepository.saveAndFlush(Category.builder()
+                .name("Changes Category")
+                .description("Categoria per il feed delle modifiche")
+                .active(true)
+                .build());
+    }
+
+    @Test
+    void shouldReturnOnlyChangesAfterWatermark() {
+        Product first = save("Changes Product 1");
+        Product second = save("Changes Product 2");
+
+        CatalogChangesResponse changes = catalogChangesService.getChanges(watermark, 100);
+
+        assertThat(changes.getProducts()).extracting(ProductResponse::getId)
+                .containsExactly(first.getId(), second.getId());
+        assertThat(changes.getCategories()).singleElement()
+                .satisfies(c -> assertThat(c.getName()).isEqualTo("Changes Category"));
+        assertThat(changes.isHasMore()).isFalse();
+
+        // Niente di nuovo dopo il watermark restituito
+        CatalogChangesResponse nothing = catalogChangesService.getChanges(changes.getWatermark(), 100);
+        assertThat(nothing.getProducts()).isEmpty();
+        assertThat(nothing.getCategories()).isEmpty();
+        assertThat(nothing.getWatermark()).isEqualTo(changes.getWatermark());
+    }
+
+    @Test
+    void shouldPageWithKeysetAndIncludeDeactivations() {
+        Product first = save("Changes Product A");
+        Product second = save("Changes Product B");
+        Product third = save("Changes Product C");
+
+        CatalogChangesResponse firstPage = catalogChangesService.getChanges(watermark, 2);
+        CatalogChangesResponse secondPage = catalogChangesService.getChanges(firstPage.getWatermark(), 2);
+
+        assertThat(firstPage.isHasMore()).isTrue();
+        assertThat(firstPage.getProducts()).extracting(ProductResponse::getId).containsExactly(first.getId(), second.getId());
+        assertThat(secondPage.getProducts()).extracting(ProductResponse::getId).containsExactly(third.getId());
+
+        // La disattivazione è una modifica come le altre
+        first.setActive(false);
+        productRepository.saveAndFlush(first);
+
+        CatalogChangesResponse afterDeactivation = catalogChangesService.getChanges(secondPage.getWatermark(), 2);
+        assertThat(afterDeactivation.getProducts()).singleElement().satisfies(product -> {
+            assertThat(product.getId()).isEqualTo(first.getId());
+            assertThat(product.isActive()).isFalse();
+            assertThat(product.getUpdatedAt()).isNotNull();
+        });
+    }
+
+    @Test
+    void shouldRejectInvalidWatermarkAndLimit() {
+        assertThatThrownBy(() -> catalogChangesService.getChanges("non-un-watermark", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Watermark non valido");
+        assertThatThrownBy(() -> catalogChangesService.getChanges(null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Legge tutto il feed e restituisce l'ultimo watermark
+    private String drain(String since) {
+        String current = since;
+        CatalogChangesResponse changes;
+        do {
+            changes = catalogChangesService.getChanges(current, 1000);
+            current = changes.getWatermark();
+        } while (changes.isHasMore());
+        return current;
+    }
+
+    private Product save(String name) {
+        return productRepository.saveAndFlush(Product.builder()
+                .name(name)
+                .description("Prodotto per il feed delle modifiche")
+                .price(Money.of("10.00"))
+                .stockQuantity(5)
+                .brand("ChangesBrand")
+                .category(category)
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+}
@@ -0,0 +1,126 @@
+package com.myecom.integration;
+
+import com.myecom.dto.product.CategoryRequest;
+import com.myecom.dto.product.CategoryResponse;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.service.CategoryService;
+import com.myecom.service.cache.CatalogVersion;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET condizionali sul catalogo: ETag dalla generazione, 304 senza query, nuovo ETag dopo una modifica.
+ *
+ * Non transazionale: la generazione avanza dopo il commit delle modifiche.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CatalogConditionalGetTest {
+
+    @Autowired private WebApplicationContext webApplicationContext;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private CategoryService categoryService;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private CatalogVersion catalogVersion;
+
+    private MockMvc mockMvc;
+    private Statistics statistics;
+    private CategoryResponse category;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        category = categoryService.createCategory(CategoryRequest.builder()
+                .name("ETag Category")
+                .description("Categoria per i GET condizionali")
+                .active(true)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        categoryRepository.deleteById(category.getId());
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutTouchingTheDatabase() throws Exception {
+        String etag = mockMvc.perform(get("/api/categories"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=30, must-revalidate, public"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        statistics.clear();
+
+        mockMvc.perform(get("/api/categories").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void shouldChangeEtagAfterCatalogChange() throws Exception {
+        String etag = mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        categoryService.updateCategory(category.getId(), CategoryRequest.builder()
+                .name("ETag Category rinominata")
+                .build());
+
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void saleShouldChangeProductEtagButNotCategoryEtag() throws Exception {
+        String productsEtag = mockMvc.perform(get("/api/products"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String categoriesEtag = mockMvc.perform(get("/api/categories"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When - una vendita: cambia solo lo stock
+        catalogVersion.bumpStock();
+
+        // Then - le risposte con lo stock cambiano, le categorie no
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, productsEtag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/categories").header(HttpHeaders.IF_NONE_MATCH, categoriesEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void shouldNotApplyToRankingsSuggestionsAndWrites() throws Exception {
+        mockMvc.perform(get("/api/products/most-carted"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+        mockMvc.perform(get("/api/products/best-sellers"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+        mockMvc.perform(get("/api/products/suggest").param("prefix", "lap"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+}
@@ -0,0 +1,177 @@
+package com.myecom.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myecom.model.Category;
+import com.myecom.model.Money;
+import com.myecom.model.Product;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.service.ProductExportService;
+import com.myecom.service.search.ProductSearchIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifica quante istruzioni SQL esegue ogni endpoint del catalogo.
+ *
+ * Le pagine del catalogo leggono prodotto + categoria con una sola query (proiezione),
+ * quindi il numero di statement non deve crescere con il numero di prodotti in pagina.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class CatalogQueryCountTest {
+
+    @Autowired private WebApplicationContext webApplicationContext;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ProductSearchIndex productSearchIndex;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private ProductExportService productExportService;
+
+    private MockMvc mockMvc;
+    private Statistics statistics;
+    private Category category;
+    private Product firstProduct;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        category = categoryRepository.saveAndFlush(Category.builder()
+                .name("Query Count Category")
+                .description("Categoria per il conteggio delle query")
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        for (int i = 1; i <= 3; i++) {
+            Product product = productRepository.saveAndFlush(Product.builder()
+                    .name("Querycount Product " + i)
+                    .description("Prodotto per il conteggio delle query")
+                    .price(Money.of("10.00"))
+                    .stockQuantity(5)
+                    .brand("QueryBrand")
+                    .category(category)
+                    .active(true)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            // Il test è transazionale: gli eventi after-commit non arrivano, indicizziamo a mano
+            productSearchIndex.index(product);
+            if (firstProduct == null) {
+                firstProduct = product;
+            }
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void categoryPageShouldUseSingleStatement() throws Exception {
+        mockMvc.perform(get("/api/products/category/" + category.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andExpect(jsonPath("$.content[0].category.name").value("Query Count Category"));
+
+        // Pagina non piena: Spring Data non ha bisogno del COUNT
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void productPageShouldUseSelectPlusCountOnly() throws Exception {
+        mockMvc.perform(get("/api/products").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2));
+
+        // Una SELECT con join sulla categoria + il COUNT, indipendentemente dal numero di prodotti
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void cursorPagesShouldUseOneStatementEach() throws Exception {
+        String body = mockMvc.perform(get("/api/products").param("cursor", "").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").exists())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        JsonNode firstPage = objectMapper.readTree(body);
+        statistics.clear();
+
+        mockMvc.perform(get("/api/products").param("cursor", firstPage.get("nextCursor").asText()).param("size", "2"))
+                .andExpect(status().isOk());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void searchShouldUseSingleStatement() throws Exception {
+        mockMvc.perform(get("/api/products/search").param("q", "querycount"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andExpect(jsonPath("$.content[0].category.name").value("Query Count Category"));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void productDetailShouldUseOneStatementThenCache() throws Exception {
+        mockMvc.perform(get("/api/products/" + firstProduct.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category.name").value("Query Count Category"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        mockMvc.perform(get("/api/products/" + firstProduct.getId()))
+                .andExpect(status().isOk());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void exportShouldStreamWholeCatalogWithSingleStatement() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = productExportService.exportActiveProducts(output);
+
+        List<String> lines = Arrays.asList(output.toString(StandardCharsets.UTF_8).split("\n"));
+        assertThat(lines).hasSize((int) exported);
+        List<JsonNode> ours = lines.stream()
+                .map(line -> {
+                    try {
+                        return objectMapper.readTree(line);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .filter(node -> node.get("name").asText().startsWith("Querycount Product"))
+                .toList();
+        assertThat(ours).hasSize(3);
+        assertThat(ours.get(0).get("category").get("name").asText()).isEqualTo("Query Count Category");
+
+        // Una sola query per tutto il catalogo e nessuna entità caricata nel persistence context
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
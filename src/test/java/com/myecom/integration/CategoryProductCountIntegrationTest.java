@@ -0,0 +1,93 @@
+package com.myecom.integration;
+
+import com.myecom.dto.product.CategoryProductCount;
+import com.myecom.dto.product.ProductRequest;
+import com.myecom.dto.product.ProductResponse;
+import com.myecom.model.Category;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.service.CategoryService;
+import com.myecom.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Contatori dei prodotti attivi per categoria, mantenuti dalle scritture dei prodotti.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class CategoryProductCountIntegrationTest {
+
+    @Autowired private ProductService productService;
+    @Autowired private CategoryService categoryService;
+    @Autowired private CategoryRepository categoryRepository;
+
+    private Category laptops;
+    private Category phones;
+
+    @BeforeEach
+    void setUp() {
+        laptops = categoryRepository.saveAndFlush(Category.builder().name("Counter Laptops").active(true).build());
+        phones = categoryRepository.saveAndFlush(Category.builder().name("Counter Phones").active(true).build());
+    }
+
+    @Test
+    void shouldCountCreatedProducts() {
+        productService.createProduct(request("Counter Laptop 1", laptops, null));
+        productService.createProduct(request("Counter Laptop 2", laptops, null));
+
+        assertThat(count(laptops)).isEqualTo(2);
+        assertThat(count(phones)).isZero();
+    }
+
+    @Test
+    void shouldFollowDeactivationReactivationAndMoves() {
+        ProductResponse product = productService.createProduct(request("Counter Device", laptops, null));
+
+        productService.updateProduct(product.getId(), request("Counter Device", laptops, false));
+        assertThat(count(laptops)).isZero();
+
+        // Spostato mentre è disattivo: nessun contatore cambia
+        productService.updateProduct(product.getId(), request("Counter Device", phones, false));
+        assertThat(count(phones)).isZero();
+
+        productService.updateProduct(product.getId(), request("Counter Device", phones, true));
+        assertThat(count(phones)).isEqualTo(1);
+
+        // Spostato mentre è attivo: passa da una categoria all'altra
+        productService.updateProduct(product.getId(), request("Counter Device", laptops, null));
+        assertThat(count(laptops)).isEqualTo(1);
+        assertThat(count(phones)).isZero();
+
+        // Aggiornamento senza cambi di stato/categoria
+        productService.updateProduct(product.getId(), request("Counter Device v2", laptops, true));
+        assertThat(count(laptops)).isEqualTo(1);
+    }
+
+    private long count(Category category) {
+        return categoryService.getProductCounts().stream()
+                .filter(row -> row.getId().equals(category.getId()))
+                .findFirst()
+                .map(CategoryProductCount::getActiveProductCount)
+                .orElseThrow();
+    }
+
+    private ProductRequest request(String name, Category category, Boolean active) {
+        return ProductRequest.builder()
+                .name(name)
+                .price(new BigDecimal("10.00"))
+                .stockQuantity(5)
+                .brand("Counter")
+                .categoryId(category.getId())
+                .active(active)
+                .build();
+    }
+}
@@ -0,0 +1,155 @@
+package com.myecom.integration;
+
+import com.myecom.dto.order.CreateOrderRequest;
+import com.myecom.dto.order.OrderResponse;
+import com.myecom.model.Cart;
+import com.myecom.model.CartItem;
+import com.myecom.model.Category;
+import com.myecom.model.Money;
+import com.myecom.model.Order;
+import com.myecom.model.Product;
+import com.myecom.model.User;
+import com.myecom.repository.CartItemRepository;
+import com.myecom.repository.CartRepository;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.repository.OrderRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.repository.UserRepository;
+import com.myecom.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checkout in parallelo dallo stesso bean CreateOrderCommand: ogni chiamata
+ * deve produrre l'ordine del proprio utente, con il totale del proprio carrello.
+ *
+ * Senza @Transactional: ogni checkout gira nella sua transazione, come con richieste HTTP parallele.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ConcurrentCheckoutIntegrationTest {
+
+    private static final int USERS = 24;
+    private static final int STOCK = 1000;
+
+    @Autowired private OrderService orderService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private CartRepository cartRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private OrderRepository orderRepository;
+
+    private final List<User> users = new ArrayList<>();
+    private Category category;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(Category.builder()
+                .name("Concurrent Checkout Category")
+                .description("Categoria per i checkout in parallelo")
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        product = productRepository.save(Product.builder()
+                .name("Concurrent Checkout Product")
+                .description("Prodotto comprato da tutti gli utenti")
+                .price(Money.of("10.00"))
+                .stockQuantity(STOCK)
+                .brand("CheckoutBrand")
+                .category(category)
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        // L'utente i ha i pezzi nel carrello: ogni ordine ha un totale diverso
+        for (int i = 1; i <= USERS; i++) {
+            User user = userRepository.save(User.builder()
+                    .email("checkout" + i + "@example.com")
+                    .password("password123")
+                    .firstName("Utente")
+                    .lastName("Checkout" + i)
+                    .role(User.Role.USER)
+                    .enabled(true)
+                    .build());
+            Cart cart = cartRepository.save(Cart.builder().user(user).build());
+            cartItemRepository.save(CartItem.builder().cart(cart).product(product).quantity(i).build());
+            users.add(user);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (User user : users) {
+            orderRepository.deleteAll(orderRepository.findByUserOrderByCreatedAtDesc(user));
+            cartRepository.findByUser(user).ifPresent(cartRepository::delete);
+        }
+        userRepository.deleteAll(users);
+        productRepository.deleteById(product.getId());
+        categoryRepository.deleteById(category.getId());
+    }
+
+    @Test
+    void parallelCheckoutsShouldEachCreateTheirOwnOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OrderResponse>> results = new ArrayList<>();
+
+        try {
+            for (User user : users) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    CreateOrderRequest request = new CreateOrderRequest();
+                    request.setShippingAddress("Via Parallela " + user.getId());
+                    return orderService.createOrder(user.getId(), request);
+                }));
+            }
+
+            // When
+            start.countDown();
+            List<OrderResponse> responses = new ArrayList<>();
+            for (Future<OrderResponse> result : results) {
+                responses.add(result.get(60, TimeUnit.SECONDS));
+            }
+
+            // Then - un ordine per utente, con indirizzo e totale del suo carrello
+            for (int i = 0; i < USERS; i++) {
+                User user = users.get(i);
+                OrderResponse response = responses.get(i);
+                assertThat(response.getShippingAddress()).isEqualTo("Via Parallela " + user.getId());
+                assertThat(response.getTotalAmount()).isEqualByComparingTo(new BigDecimal(10 * (i + 1)));
+
+                List<Order> orders = orderRepository.findByUserOrderByCreatedAtDesc(user);
+                assertThat(orders).hasSize(1);
+                assertThat(orders.get(0).getOrderNumber()).isEqualTo(response.getOrderNumber());
+                assertThat(cartItemRepository.findWithProductByCartId(
+                        cartRepository.findByUser(user).orElseThrow().getId())).isEmpty();
+            }
+            assertThat(responses).extracting(OrderResponse::getOrderNumber).doesNotHaveDuplicates();
+
+            int sold = USERS * (USERS + 1) / 2;
+            assertThat(productRepository.findById(product.getId()).orElseThrow().getStockQuantity())
+                    .isEqualTo(STOCK - sold);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.myecom.model.Product;
 import com.myecom.model.User;
 import com.myecom.model.Cart;
 import com.myecom.model.CartItem;
+import com.myecom.model.Money;
 import com.myecom.repository.CategoryRepository;
 import com.myecom.repository.ProductRepository;
 import com.myecom.repository.UserRepository;
@@ -21,7 +22,6 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.math.BigDecimal;
 
 /**
  * Test per creare dati di test e verificare che gli eventi funzionino.
@@ -65,7 +65,7 @@ public class EventTestDataSetup {
         Product product = Product.builder()
                 .name("iPhone 15")
                 .description("Latest iPhone model")
-                .price(new BigDecimal("999.99"))
+                .price(Money.of("999.99"))
                 .stockQuantity(50)
                 .brand("Apple")
                 .category(savedCategory)
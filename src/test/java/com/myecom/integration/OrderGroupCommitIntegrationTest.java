@@ -0,0 +1,172 @@
+package com.myecom.integration;
+
+import com.myecom.dto.order.CreateOrderRequest;
+import com.myecom.dto.order.OrderResponse;
+import com.myecom.exception.BusinessException;
+import com.myecom.model.Cart;
+import com.myecom.model.CartItem;
+import com.myecom.model.Category;
+import com.myecom.model.Money;
+import com.myecom.model.Order;
+import com.myecom.model.Product;
+import com.myecom.model.User;
+import com.myecom.repository.CartItemRepository;
+import com.myecom.repository.CartRepository;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.repository.OrderRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.repository.UserRepository;
+import com.myecom.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checkout con group commit: più checkout scritti nella stessa transazione,
+ * ma ognuno atomico e con il proprio esito.
+ *
+ * Senza @Transactional: con una transazione del chiamante il group commit non viene usato.
+ */
+@SpringBootTest(properties = "order.group-commit.enabled=true")
+@ActiveProfiles("test")
+class OrderGroupCommitIntegrationTest {
+
+    private static final int USERS = 20;
+    private static final int HOT_STOCK = 5;
+
+    @Autowired private OrderService orderService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private CartRepository cartRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+    private Category category;
+    private Product hot;
+    private Product other;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(Category.builder()
+                .name("Group Commit Category")
+                .description("Categoria per il test del group commit")
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+        hot = productRepository.save(product("Group Commit Hot", HOT_STOCK));
+        other = productRepository.save(product("Group Commit Other", USERS));
+
+        // Ogni utente compra un pezzo di entrambi: il prodotto conteso basta solo per HOT_STOCK ordini
+        for (int i = 1; i <= USERS; i++) {
+            User user = userRepository.save(User.builder()
+                    .email("groupcommit" + i + "@example.com")
+                    .password("password123")
+                    .firstName("Group")
+                    .lastName("Commit" + i)
+                    .role(User.Role.USER)
+                    .enabled(true)
+                    .build());
+            Cart cart = cartRepository.save(Cart.builder().user(user).build());
+            cartItemRepository.save(CartItem.builder().cart(cart).product(hot).quantity(1).build());
+            cartItemRepository.save(CartItem.builder().cart(cart).product(other).quantity(1).build());
+            users.add(user);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (User user : users) {
+            orderRepository.deleteAll(orderRepository.findByUserOrderByCreatedAtDesc(user));
+            cartRepository.findByUser(user).ifPresent(cart -> {
+                cartItemRepository.deleteAll(cartItemRepository.findByCart(cart));
+                cartRepository.delete(cart);
+            });
+        }
+        userRepository.deleteAll(users);
+        productRepository.deleteAllById(List.of(hot.getId(), other.getId()));
+        categoryRepository.deleteById(category.getId());
+    }
+
+    @Test
+    void eachCheckoutShouldBeAtomicInsideTheGroup() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OrderResponse>> results = new ArrayList<>();
+
+        try {
+            for (User user : users) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    CreateOrderRequest request = new CreateOrderRequest();
+                    request.setShippingAddress("Via Gruppo " + user.getId());
+                    return orderService.createOrder(user.getId(), request);
+                }));
+            }
+
+            // When
+            start.countDown();
+            int created = 0;
+            for (int i = 0; i < USERS; i++) {
+                User user = users.get(i);
+                Cart cart = cartRepository.findByUser(user).orElseThrow();
+                try {
+                    OrderResponse response = results.get(i).get(60, TimeUnit.SECONDS);
+                    created++;
+
+                    // Then - ordine con le sue righe, carrello svuotato
+                    List<Order> orders = orderRepository.findByUserOrderByCreatedAtDesc(user);
+                    assertThat(orders).singleElement()
+                            .satisfies(order -> assertThat(order.getId()).isEqualTo(response.getId()));
+                    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items WHERE order_id = ?",
+                            Integer.class, response.getId())).isEqualTo(2);
+                    assertThat(cartItemRepository.findByCart(cart)).isEmpty();
+                } catch (ExecutionException e) {
+                    // Then - checkout fallito: niente ordine, carrello intatto
+                    assertThat(e.getCause()).isInstanceOf(BusinessException.class);
+                    assertThat(orderRepository.findByUserOrderByCreatedAtDesc(user)).isEmpty();
+                    assertThat(cartItemRepository.findByCart(cart)).hasSize(2);
+                }
+            }
+
+            // Lo stock dell'altro prodotto è sceso solo per i checkout riusciti
+            assertThat(created).isEqualTo(HOT_STOCK);
+            assertThat(productRepository.findById(hot.getId()).orElseThrow().getStockQuantity()).isZero();
+            assertThat(productRepository.findById(other.getId()).orElseThrow().getStockQuantity())
+                    .isEqualTo(USERS - HOT_STOCK);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Product product(String name, int stock) {
+        return Product.builder()
+                .name(name)
+                .description("Prodotto dei checkout scritti a gruppi")
+                .price(Money.of("5.00"))
+                .stockQuantity(stock)
+                .brand("GroupBrand")
+                .category(category)
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,130 @@
+package com.myecom.integration;
+
+import com.myecom.dto.product.ProductImportResponse;
+import com.myecom.model.Category;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.service.ProductImportService;
+import com.myecom.service.search.ProductSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Import massivo end-to-end su H2: batch JDBC, errori per riga e ricostruzione degli indici.
+ *
+ * Non transazionale: l'import committa un blocco alla volta e gli indici vengono
+ * ricostruiti dopo il commit, i dati vengono rimossi a mano alla fine.
+ */
+@SpringBootTest(properties = "catalog.import.batch-size=2")
+@ActiveProfiles("test")
+class ProductImportIntegrationTest {
+
+    @Autowired private ProductImportService productImportService;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private ProductSearchIndex productSearchIndex;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(Category.builder()
+                .name("Import Category")
+                .description("Categoria per l'import massivo")
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM products WHERE category_id = ?", category.getId());
+        categoryRepository.delete(category);
+        productSearchIndex.rebuild();
+    }
+
+    @Test
+    void shouldImportNdjsonInBatchesAndReportInvalidRows() {
+        String ndjson = String.join("\n",
+                row("Importwidget Alpha", "10.50", 5),
+                row("Importwidget Beta", "20.00", 0),
+                "{non json",
+                row("Importwidget Gamma", "-1", 3),
+                "",
+                row("Importwidget Delta", "99.99", 7),
+                "{\"name\":\"Importwidget Orfano\",\"price\":5,\"stockQuantity\":1,\"categoryId\":999999}");
+
+        ProductImportResponse result = productImportService.importProducts(stream(ndjson), ProductImportService.Format.NDJSON);
+
+        assertThat(result.getTotalRows()).isEqualTo(6);
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting(ProductImportResponse.RowError::getLine).containsExactly(3L, 4L, 7L);
+        assertThat(result.getErrors().get(1).getMessage()).isEqualTo("Prezzo deve essere maggiore di 0");
+        assertThat(result.getErrors().get(2).getMessage()).startsWith("Categoria non trovata");
+
+        assertThat(countImported()).isEqualTo(3);
+        assertThat(activeProductCounter()).isEqualTo(3);
+        // L'indice di ricerca è stato ricostruito dopo l'import
+        assertThat(productSearchIndex.search("importwidget", 0, 10).getTotalHits()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldImportCsvWithQuotedFields() {
+        String csv = String.join("\n",
+                "name,description,price,stock_quantity,brand,categoryId,active",
+                "\"Importwidget, CSV\",\"Descrizione con \"\"virgolette\"\"\",15.00,4,Acme," + category.getId() + ",true",
+                "Importwidget Spento,,9.90,2,Acme," + category.getId() + ",false",
+                "Importwidget Rotto,,abc,2,Acme," + category.getId() + ",true");
+
+        ProductImportResponse result = productImportService.importProducts(stream(csv), ProductImportService.Format.CSV);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).singleElement()
+                .satisfies(error -> assertThat(error.getLine()).isEqualTo(4L));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT description FROM products WHERE name = 'Importwidget, CSV'", String.class))
+                .isEqualTo("Descrizione con \"virgolette\"");
+        // Il prodotto importato come non attivo non conta e non finisce nell'indice
+        assertThat(activeProductCounter()).isEqualTo(1);
+        assertThat(productSearchIndex.search("spento", 0, 10).getTotalHits()).isZero();
+    }
+
+    @Test
+    void shouldRejectCsvWithoutRequiredColumns() {
+        assertThatThrownBy(() -> productImportService.importProducts(
+                stream("name,brand\nWidget,Acme"), ProductImportService.Format.CSV))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Intestazione CSV non valida");
+    }
+
+    private String row(String name, String price, int stock) {
+        return "{\"name\":\"" + name + "\",\"price\":" + price + ",\"stockQuantity\":" + stock
+                + ",\"brand\":\"Acme\",\"categoryId\":" + category.getId() + "}";
+    }
+
+    private long countImported() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE category_id = ?", Long.class, category.getId());
+    }
+
+    private long activeProductCounter() {
+        return jdbcTemplate.queryForObject(
+                "SELECT active_product_count FROM categories WHERE id = ?", Long.class, category.getId());
+    }
+
+    private ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,128 @@
+package com.myecom.integration;
+
+import com.myecom.model.Category;
+import com.myecom.model.Money;
+import com.myecom.model.Product;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.repository.ProductStockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Molti checkout concorrenti sullo stesso prodotto: lo stock scalato con UPDATE condizionale
+ * non va mai sotto zero e non perde aggiornamenti.
+ *
+ * Senza @Transactional: ogni thread lavora in una sua transazione, che deve essere committata.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StockDecrementConcurrencyTest {
+
+    private static final int STOCK = 50;
+    private static final int ATTEMPTS = 200;
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private Category category;
+    private Product product;
+    private Product other;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(Category.builder()
+                .name("Stock Concurrency Category")
+                .description("Categoria per il test di concorrenza sullo stock")
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+        product = productRepository.save(product("Hot SKU", STOCK));
+        other = productRepository.save(product("Other SKU", ATTEMPTS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAllById(List.of(product.getId(), other.getId()));
+        categoryRepository.deleteById(category.getId());
+    }
+
+    @Test
+    void shouldNeverOversellUnderConcurrentCheckouts() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    // Un ordine con due righe: se il prodotto conteso non basta, anche l'altra riga va annullata
+                    // Esito: stock rimasto del prodotto conteso, o null se non bastava
+                    return transactionTemplate.execute(status -> {
+                        ProductStockRepository.StockDecrease stock =
+                                productRepository.decreaseStock(Map.of(other.getId(), 1, product.getId(), 1));
+                        if (!stock.isApplied()) {
+                            status.setRollbackOnly();
+                            return null;
+                        }
+                        return stock.getRemaining().get(product.getId());
+                    });
+                }));
+            }
+
+            start.countDown();
+            Set<Integer> remaining = new HashSet<>();
+            int sold = 0;
+            for (Future<Integer> result : results) {
+                Integer left = result.get(30, TimeUnit.SECONDS);
+                if (left != null) {
+                    sold++;
+                    remaining.add(left);
+                }
+            }
+
+            // Then - ogni vendita ha visto lo stock dopo il proprio UPDATE: valori tutti diversi, da STOCK - 1 a 0
+            assertThat(sold).isEqualTo(STOCK);
+            assertThat(remaining).hasSize(STOCK).allMatch(left -> left >= 0 && left < STOCK);
+            assertThat(productRepository.findById(product.getId()).orElseThrow().getStockQuantity()).isZero();
+            assertThat(productRepository.findById(other.getId()).orElseThrow().getStockQuantity())
+                    .isEqualTo(ATTEMPTS - STOCK);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Product product(String name, int stock) {
+        return Product.builder()
+                .name(name)
+                .description("Prodotto conteso da molti checkout")
+                .price(Money.of("10.00"))
+                .stockQuantity(stock)
+                .brand("StockBrand")
+                .category(category)
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
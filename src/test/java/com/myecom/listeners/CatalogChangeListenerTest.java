@@ -0,0 +1,108 @@
+package com.myecom.listeners;
+
+import com.myecom.events.CatalogImportedEvent;
+import com.myecom.events.ProductChangedEvent;
+import com.myecom.model.Money;
+import com.myecom.model.Product;
+import com.myecom.repository.ProductRepository;
+import com.myecom.service.cache.CatalogVersion;
+import com.myecom.service.cache.CategorySnapshotCache;
+import com.myecom.service.cache.ProductCache;
+import com.myecom.service.search.ProductFacetIndex;
+import com.myecom.service.search.ProductSearchIndex;
+import com.myecom.service.search.ProductSuggestIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test per CatalogChangeListener: quando una modifica prodotto fa avanzare la generazione del catalogo
+ */
+@ExtendWith(MockitoExtension.class)
+class CatalogChangeListenerTest {
+
+    @Mock private ProductRepository productRepository;
+    @Mock private ProductSearchIndex productSearchIndex;
+    @Mock private ProductFacetIndex productFacetIndex;
+    @Mock private ProductSuggestIndex productSuggestIndex;
+    @Mock private ProductCache productCache;
+    @Mock private CategorySnapshotCache categorySnapshotCache;
+    @Mock private CatalogVersion catalogVersion;
+
+    @InjectMocks
+    private CatalogChangeListener listener;
+
+    @Test
+    void shouldBumpVersionWhenProductIsEdited() {
+        Product product = product(5);
+
+        listener.handleProductChanged(new ProductChangedEvent(product));
+
+        verify(productSearchIndex).index(product);
+        verify(productCache).invalidate(1L);
+        verify(catalogVersion).bump();
+        verify(catalogVersion, never()).bumpStock();
+    }
+
+    @Test
+    void shouldBumpOnlyStockGenerationOnSale() {
+        // Given - una vendita: cambia solo lo stock
+        Product product = product(4);
+
+        // When
+        listener.handleProductChanged(new ProductChangedEvent(product, true));
+
+        // Then - faccette e cache aggiornate, testo non reindicizzato, ETag delle categorie invariato
+        verify(productFacetIndex).index(product);
+        verify(productSearchIndex, never()).index(any());
+        verify(productCache).invalidate(1L);
+        verify(catalogVersion).bumpStock();
+        verify(catalogVersion, never()).bump();
+    }
+
+    @Test
+    void shouldIndexOnlyImportedProductsWithoutRebuilding() {
+        // Given - import che ha generato gli id da 10 a 12
+        Product first = product(10L, 3);
+        Product last = product(12L, 3);
+        when(productRepository.findByActiveTrueAndIdBetweenOrderByIdAsc(eq(10L), eq(12L), any(Pageable.class)))
+                .thenReturn(List.of(first, last));
+
+        // When
+        listener.handleCatalogImported(new CatalogImportedEvent(3, 10L, 12L));
+
+        // Then
+        verify(productSearchIndex).index(first);
+        verify(productFacetIndex).index(last);
+        verify(productSuggestIndex).index(last);
+        verify(productSearchIndex, never()).rebuild();
+        verify(productFacetIndex, never()).rebuild();
+        verify(productSuggestIndex, never()).rebuild();
+        verify(catalogVersion).bump();
+    }
+
+    private Product product(int stock) {
+        return product(1L, stock);
+    }
+
+    private Product product(Long id, int stock) {
+        return Product.builder()
+                .id(id)
+                .name("Prodotto")
+                .price(Money.of("10.00"))
+                .stockQuantity(stock)
+                .active(true)
+                .build();
+    }
+}
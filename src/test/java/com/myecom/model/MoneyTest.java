@@ -0,0 +1,66 @@
+package com.myecom.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myecom.dto.cart.CartItemResponse;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit test per l'importo a virgola fissa in centesimi
+ */
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void shouldConvertFromAndToBigDecimal() {
+        assertThat(Money.of("1299.99").cents()).isEqualTo(129999);
+        assertThat(Money.of("10").toBigDecimal()).isEqualTo(new BigDecimal("10.00"));
+        assertThat(Money.of("0.005").cents()).isEqualTo(1); // HALF_UP
+        assertThat(Money.ofCents(-5).toString()).isEqualTo("-0.05");
+        assertThat(Money.of(BigDecimal.ZERO)).isSameAs(Money.ZERO);
+    }
+
+    @Test
+    void shouldMultiplyAndSumInCents() {
+        Money price = Money.of("1299.99");
+
+        assertThat(price.times(2)).isEqualTo(Money.of("2599.98"));
+        assertThat(price.centsTimes(3)).isEqualTo(389997);
+        assertThat(price.plus(Money.of("0.01"))).isEqualTo(Money.of("1300.00"));
+        assertThat(price.isGreaterThan(Money.of("1299.98"))).isTrue();
+    }
+
+    @Test
+    void shouldFailOnOverflowInsteadOfWrapping() {
+        assertThatThrownBy(() -> Money.ofCents(Long.MAX_VALUE).times(2))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void shouldKeepJsonFormatOfBigDecimal() throws Exception {
+        CartItemResponse item = CartItemResponse.builder()
+                .unitPrice(Money.of("1299.99"))
+                .totalPrice(Money.of("2599.98"))
+                .build();
+
+        String json = objectMapper.writeValueAsString(item);
+
+        assertThat(json).contains("\"unitPrice\":1299.99", "\"totalPrice\":2599.98");
+        assertThat(objectMapper.readValue(json, CartItemResponse.class).getTotalPrice())
+                .isEqualTo(Money.of("2599.98"));
+    }
+
+    @Test
+    void shouldConvertForJpa() {
+        MoneyConverter converter = new MoneyConverter();
+
+        assertThat(converter.convertToDatabaseColumn(Money.of("999.99"))).isEqualTo(new BigDecimal("999.99"));
+        assertThat(converter.convertToEntityAttribute(new BigDecimal("999.990"))).isEqualTo(Money.of("999.99"));
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+    }
+}
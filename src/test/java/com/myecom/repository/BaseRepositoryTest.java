@@ -7,7 +7,6 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 /**
@@ -82,7 +81,7 @@ public abstract class BaseRepositoryTest {
         laptop = Product.builder()
                 .name("Laptop Dell")
                 .description("High performance laptop")
-                .price(new BigDecimal("999.99"))
+                .price(Money.of("999.99"))
                 .stockQuantity(10)
                 .brand("Dell")
                 .category(electronics)
@@ -93,7 +92,7 @@ public abstract class BaseRepositoryTest {
         smartphone = Product.builder()
                 .name("iPhone 15")
                 .description("Latest iPhone")
-                .price(new BigDecimal("1299.99"))
+                .price(Money.of("1299.99"))
                 .stockQuantity(5)
                 .brand("Apple")
                 .category(electronics)
@@ -1,5 +1,7 @@
 package com.myecom.repository;
 
+import com.myecom.dto.product.ProductProjection;
+import com.myecom.model.Money;
 import com.myecom.model.Order;
 import com.myecom.model.OrderItem;
 import com.myecom.model.Product;
@@ -81,7 +83,7 @@ class ProductRepositoryTest extends BaseRepositoryTest {
         Product outOfStock = Product.builder()
                 .name("Out of Stock Product")
                 .description("This is out of stock")
-                .price(new BigDecimal("99.99"))
+                .price(Money.of("99.99"))
                 .stockQuantity(0)
                 .category(electronics)
                 .active(true)
@@ -146,9 +148,9 @@ class ProductRepositoryTest extends BaseRepositoryTest {
     void shouldFindProductsByPriceRange() {
         // When
         List<Product> cheapProducts = productRepository.findByActiveTrueAndPriceBetween(
-                new BigDecimal("0"), new BigDecimal("1000"));
+                Money.of("0"), Money.of("1000"));
         List<Product> expensiveProducts = productRepository.findByActiveTrueAndPriceBetween(
-                new BigDecimal("1200"), new BigDecimal("2000"));
+                Money.of("1200"), Money.of("2000"));
 
         // Then
         assertThat(cheapProducts).hasSize(1); // solo laptop (999.99)
@@ -215,7 +217,7 @@ class ProductRepositoryTest extends BaseRepositoryTest {
                         .product(laptop)
                         .quantity(2)
                         .unitPrice(laptop.getPrice())
-                        .totalPrice(laptop.getPrice().multiply(new BigDecimal("2")))
+                        .totalPrice(laptop.getPrice().times(2))
                         .build()
         );
 
@@ -239,4 +241,37 @@ class ProductRepositoryTest extends BaseRepositoryTest {
         // Il laptop dovrebbe essere primo (quantità venduta = 2)
         assertThat(bestSellers.get(0).getName()).isEqualTo("Laptop Dell");
     }
+
+    @Test
+    void shouldSeekActiveProductsByCreatedAtAndId() {
+        // Given - primo blocco dal più recente (createdAt, id decrescenti)
+        List<ProductProjection> firstPage = productRepository.findActiveProjectionsNewestFirst(PageRequest.of(0, 1));
+        ProductProjection last = firstPage.get(0);
+
+        // When - blocco successivo a partire dal cursore
+        List<ProductProjection> nextPage = productRepository.findActiveProjectionsAfter(
+                last.getCreatedAt(), last.getId(), PageRequest.of(0, 10));
+
+        // Then - nessun duplicato e nessun prodotto perso
+        assertThat(nextPage).hasSize(1);
+        assertThat(List.of(firstPage.get(0).getName(), nextPage.get(0).getName()))
+                .containsExactlyInAnyOrder("Laptop Dell", "iPhone 15");
+    }
+
+    @Test
+    void shouldProjectProductsWithCategoryInOneQuery() {
+        // When
+        Page<ProductProjection> page = productRepository.findActiveProjections(PageRequest.of(0, 10));
+        Page<ProductProjection> byCategory = productRepository.findActiveProjectionsByCategory(
+                electronics.getId(), PageRequest.of(0, 10));
+        Page<ProductProjection> search = productRepository.searchProjectionsByNameOrDescription(
+                "laptop", PageRequest.of(0, 10));
+
+        // Then
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getContent()).extracting(ProductProjection::getCategoryName)
+                .containsOnly("Electronics");
+        assertThat(byCategory.getTotalElements()).isEqualTo(2);
+        assertThat(search.getContent()).extracting(ProductProjection::getName).containsExactly("Laptop Dell");
+    }
 }
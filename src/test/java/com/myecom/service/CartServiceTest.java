@@ -0,0 +1,100 @@
+package com.myecom.service;
+
+import com.myecom.model.Cart;
+import com.myecom.model.User;
+import com.myecom.repository.CartItemRepository;
+import com.myecom.repository.CartRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.repository.UserRepository;
+import com.myecom.service.cache.ProductCache;
+import com.myecom.service.cart.WriteBehindCartStore;
+import com.myecom.service.stock.StockReservations;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test per CartService: lo stato in memoria si svuota solo dopo il commit del checkout
+ */
+@ExtendWith(MockitoExtension.class)
+class CartServiceTest {
+
+    @Mock private CartRepository cartRepository;
+    @Mock private CartItemRepository cartItemRepository;
+    @Mock private ProductRepository productRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private WriteBehindCartStore cartStore;
+    @Mock private ProductCache productCache;
+    @Mock private StockReservations stockReservations;
+
+    @InjectMocks
+    private CartService cartService;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldClearInMemoryCartAndHoldsOnlyAfterCommit() {
+        // Given - carrello write-behind svuotato dentro la transazione del checkout
+        when(cartStore.isEnabled()).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        cartService.clearCart(1L);
+
+        // Then - niente finché la transazione non fa commit
+        verify(cartStore, never()).clear(anyLong());
+        verify(stockReservations, never()).releaseAll(anyLong());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(cartStore).clear(1L);
+        verify(stockReservations).releaseAll(1L);
+    }
+
+    @Test
+    void shouldKeepHoldsWhenCheckoutRollsBack() {
+        // Given - carrello sul DB: le righe si cancellano nella transazione, le prenotazioni no
+        User user = User.builder().id(1L).build();
+        Cart cart = Cart.builder().id(10L).user(user).build();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When - rollback: nessun afterCommit
+        cartService.clearCart(1L);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then
+        verify(cartItemRepository).deleteByCart(cart);
+        verify(stockReservations, never()).releaseAll(anyLong());
+    }
+
+    @Test
+    void shouldClearImmediatelyWithoutTransaction() {
+        when(cartStore.isEnabled()).thenReturn(true);
+
+        cartService.clearCart(1L);
+
+        verify(cartStore).clear(1L);
+        verify(stockReservations).releaseAll(1L);
+    }
+}
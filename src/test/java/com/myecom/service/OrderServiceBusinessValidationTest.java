@@ -10,7 +10,6 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -115,7 +114,7 @@ class OrderServiceBusinessValidationTest {
         Product expensiveProduct = productRepository.save(
                 Product.builder()
                         .name("Prodotto Costoso")
-                        .price(new BigDecimal("6000.00")) // Sopra limite €5000
+                        .price(Money.of("6000.00")) // Sopra limite €5000
                         .stockQuantity(10)
                         .category(category)
                         .active(true)
@@ -143,7 +142,7 @@ class OrderServiceBusinessValidationTest {
         Product lowStockProduct = productRepository.save(
                 Product.builder()
                         .name("Prodotto Limitato")
-                        .price(new BigDecimal("100.00"))
+                        .price(Money.of("100.00"))
                         .stockQuantity(2) // Solo 2 disponibili
                         .category(category)
                         .active(true)
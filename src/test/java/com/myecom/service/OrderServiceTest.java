@@ -7,6 +7,7 @@ import com.myecom.model.User;
 import com.myecom.repository.OrderRepository;
 import com.myecom.repository.UserRepository;
 import com.myecom.service.command.CreateOrderCommand;
+import com.myecom.service.command.OrderCommand;
 import com.myecom.service.mapper.OrderMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -35,6 +36,7 @@ class OrderServiceTest {
     @Mock private UserRepository userRepository;
     @Mock private OrderMapper orderMapper;
     @Mock private CreateOrderCommand createOrderCommand;
+    @Mock private OrderCommand<OrderResponse> command;
 
     @InjectMocks
     private OrderService orderService;
@@ -78,8 +80,8 @@ class OrderServiceTest {
     @Test
     void shouldDelegateOrderCreationToCommand() {
         // Given - Command configurato per restituire risposta
-        when(createOrderCommand.init(anyLong(), any(CreateOrderRequest.class))).thenReturn(createOrderCommand);
-        when(createOrderCommand.execute()).thenReturn(orderResponse);
+        when(createOrderCommand.init(anyLong(), any(CreateOrderRequest.class))).thenReturn(command);
+        when(command.execute()).thenReturn(orderResponse);
 
         // When
         OrderResponse result = orderService.createOrder(1L, createOrderRequest);
@@ -91,7 +93,7 @@ class OrderServiceTest {
 
         // Verifica delegazione al comando
         verify(createOrderCommand).init(1L, createOrderRequest);
-        verify(createOrderCommand).execute();
+        verify(command).execute();
     }
 
     @Test
@@ -4,6 +4,7 @@ import com.myecom.dto.order.CreateOrderRequest;
 import com.myecom.model.Cart;
 import com.myecom.model.CartItem;
 import com.myecom.model.Category;
+import com.myecom.model.Money;
 import com.myecom.model.Order;
 import com.myecom.model.Product;
 import com.myecom.model.User;
@@ -91,7 +92,7 @@ class OrderValidationIntegrationTest {
         normalProduct = Product.builder()
                 .name("Normal Product")
                 .description("Product with normal price and stock")
-                .price(new BigDecimal("100.00"))
+                .price(Money.of("100.00"))
                 .stockQuantity(20)
                 .brand("TestBrand")
                 .category(testCategory)
@@ -104,7 +105,7 @@ class OrderValidationIntegrationTest {
         expensiveProduct = Product.builder()
                 .name("Expensive Product")
                 .description("Very expensive product")
-                .price(new BigDecimal("6000.00")) // Sopra il limite di €5000
+                .price(Money.of("6000.00")) // Sopra il limite di €5000
                 .stockQuantity(10)
                 .brand("LuxuryBrand")
                 .category(testCategory)
@@ -117,7 +118,7 @@ class OrderValidationIntegrationTest {
         lowStockProduct = Product.builder()
                 .name("Low Stock Product")
                 .description("Product with limited availability")
-                .price(new BigDecimal("50.00"))
+                .price(Money.of("50.00"))
                 .stockQuantity(2) // Solo 2 pezzi disponibili
                 .brand("TestBrand")
                 .category(testCategory)
@@ -130,7 +131,7 @@ class OrderValidationIntegrationTest {
         inactiveProduct = Product.builder()
                 .name("Inactive Product")
                 .description("This product is not active")
-                .price(new BigDecimal("75.00"))
+                .price(Money.of("75.00"))
                 .stockQuantity(5)
                 .brand("TestBrand")
                 .category(testCategory)
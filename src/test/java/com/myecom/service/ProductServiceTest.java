@@ -1,18 +1,33 @@
 package com.myecom.service;
 
 import com.myecom.dto.product.PageResponse;
+import com.myecom.dto.product.ProductFilterResponse;
+import com.myecom.dto.product.ProductProjection;
 import com.myecom.dto.product.ProductRequest;
 import com.myecom.dto.product.ProductResponse;
+import com.myecom.dto.product.ProductSuggestionResponse;
+import com.myecom.events.ProductChangedEvent;
 import com.myecom.model.Category;
+import com.myecom.model.Money;
 import com.myecom.model.Product;
 import com.myecom.repository.CategoryRepository;
 import com.myecom.repository.ProductRepository;
+import com.myecom.service.cache.ProductCache;
+import com.myecom.service.mapper.ProductMapper;
+import com.myecom.service.pagination.ProductCursor;
+import com.myecom.service.ranking.ProductRankings;
+import com.myecom.service.search.ProductFacetIndex;
+import com.myecom.service.search.ProductFilter;
+import com.myecom.service.search.ProductSearchIndex;
+import com.myecom.service.search.ProductSuggestIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -23,12 +38,15 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -43,6 +61,27 @@ class ProductServiceTest {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+
+    @Mock
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Mock
+    private ProductCache productCache;
+
+    @Mock
+    private ProductRankings productRankings;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ProductMapper productMapper = new ProductMapper();
+
     @InjectMocks
     private ProductService productService;
 
@@ -67,7 +106,7 @@ class ProductServiceTest {
                 .id(1L)
                 .name("Laptop Dell")
                 .description("High performance laptop")
-                .price(new BigDecimal("999.99"))
+                .price(Money.of("999.99"))
                 .stockQuantity(10)
                 .brand("Dell")
                 .category(electronics)
@@ -79,7 +118,7 @@ class ProductServiceTest {
                 .id(2L)
                 .name("iPhone 15")
                 .description("Latest iPhone")
-                .price(new BigDecimal("1299.99"))
+                .price(Money.of("1299.99"))
                 .stockQuantity(5)
                 .brand("Apple")
                 .category(electronics)
@@ -109,7 +148,7 @@ class ProductServiceTest {
                 .id(3L)
                 .name("Nuovo Prodotto")
                 .description("Descrizione del nuovo prodotto")
-                .price(new BigDecimal("199.99"))
+                .price(Money.of("199.99"))
                 .stockQuantity(20)
                 .imageUrl("http://example.com/image.jpg")
                 .brand("TestBrand")
@@ -133,6 +172,37 @@ class ProductServiceTest {
         assertThat(response.isInStock()).isTrue();
         assertThat(response.getCategory()).isNotNull();
         assertThat(response.getCategory().getName()).isEqualTo("Electronics");
+
+        // Il nuovo prodotto viene annunciato per aggiornare l'indice di ricerca
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void shouldUpdateProduct() {
+        // Given
+        when(productRepository.findById(1L)).thenReturn(Optional.of(laptop));
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(electronics));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        ProductResponse response = productService.updateProduct(1L, productRequest);
+
+        // Then
+        assertThat(response.getName()).isEqualTo("Nuovo Prodotto");
+        assertThat(response.getPrice()).isEqualTo(new BigDecimal("199.99"));
+        assertThat(response.getBrand()).isEqualTo("TestBrand");
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void shouldNotUpdateNonExistentProduct() {
+        // Given
+        when(productRepository.findById(999L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThatThrownBy(() -> productService.updateProduct(999L, productRequest))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Prodotto non trovato");
     }
 
     @Test
@@ -154,9 +224,10 @@ class ProductServiceTest {
     }
 
     @Test
-    void shouldFindProductById() {
+    void shouldFindProductByIdThroughCache() {
         // Given
-        when(productRepository.findById(1L)).thenReturn(Optional.of(laptop));
+        ProductResponse cached = productMapper.toResponse(laptop);
+        when(productCache.get(1L)).thenReturn(Optional.of(cached));
 
         // When
         Optional<ProductResponse> found = productService.findById(1L);
@@ -169,15 +240,9 @@ class ProductServiceTest {
     }
 
     @Test
-    void shouldNotFindInactiveProduct() {
-        // Given - prodotto inattivo
-        Product inactiveProduct = Product.builder()
-                .id(1L)
-                .name("Laptop Dell")
-                .active(false)
-                .build();
-
-        when(productRepository.findById(1L)).thenReturn(Optional.of(inactiveProduct));
+    void shouldNotFindProductMissingFromCache() {
+        // Given - la cache non restituisce prodotti inattivi o inesistenti
+        when(productCache.get(1L)).thenReturn(Optional.empty());
 
         // When
         Optional<ProductResponse> found = productService.findById(1L);
@@ -189,10 +254,11 @@ class ProductServiceTest {
     @Test
     void shouldGetProductsWithPagination() {
         // Given
-        List<Product> products = Arrays.asList(laptop, smartphone);
-        Page<Product> productPage = new PageImpl<>(products, PageRequest.of(0, 10), 2);
+        laptop.setUpdatedAt(LocalDateTime.of(2024, 3, 1, 10, 30));
+        List<ProductProjection> products = Arrays.asList(projection(laptop), projection(smartphone));
+        Page<ProductProjection> productPage = new PageImpl<>(products, PageRequest.of(0, 10), 2);
 
-        when(productRepository.findByActiveTrue(any(Pageable.class))).thenReturn(productPage);
+        when(productRepository.findActiveProjections(any(Pageable.class))).thenReturn(productPage);
 
         // When
         PageResponse<ProductResponse> result = productService.getProducts(0, 10);
@@ -210,16 +276,17 @@ class ProductServiceTest {
         assertThat(result.getContent())
                 .extracting(ProductResponse::getName)
                 .containsExactlyInAnyOrder("Laptop Dell", "iPhone 15");
+        assertThat(result.getContent())
+                .extracting(ProductResponse::getUpdatedAt)
+                .containsExactlyInAnyOrder("2024-03-01T10:30:00", null);
     }
 
     @Test
     void shouldSearchProducts() {
         // Given
-        List<Product> laptopResults = Collections.singletonList(laptop);
-        Page<Product> laptopPage = new PageImpl<>(laptopResults, PageRequest.of(0, 10), 1);
-
-        when(productRepository.searchByNameOrDescription("laptop", PageRequest.of(0, 10)))
-                .thenReturn(laptopPage);
+        when(productSearchIndex.search("laptop", 0, 10))
+                .thenReturn(new ProductSearchIndex.SearchHits(List.of(1L), List.of(6), 1));
+        when(productRepository.findProjectionsByIdIn(List.of(1L))).thenReturn(List.of(projection(laptop)));
 
         // When
         PageResponse<ProductResponse> result = productService.searchProducts("laptop", 0, 10);
@@ -228,44 +295,47 @@ class ProductServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getContent()).hasSize(1);
         assertThat(result.getContent().get(0).getName()).isEqualTo("Laptop Dell");
+        assertThat(result.getTotalElements()).isEqualTo(1);
     }
 
     @Test
-    void shouldReturnEmptyResultForNonExistentSearch() {
-        // Given
-        Page<Product> emptyPage = new PageImpl<>(Collections.emptyList(), PageRequest.of(0, 10), 0);
-
-        when(productRepository.searchByNameOrDescription("prodottoinesistente", PageRequest.of(0, 10)))
-                .thenReturn(emptyPage);
+    void shouldKeepRelevanceOrderFromSearchIndex() {
+        // Given - l'indice mette lo smartphone prima del laptop
+        when(productSearchIndex.search("phone", 0, 10))
+                .thenReturn(new ProductSearchIndex.SearchHits(List.of(2L, 1L), List.of(6, 3), 2));
+        when(productRepository.findProjectionsByIdIn(List.of(2L, 1L))).thenReturn(List.of(projection(laptop), projection(smartphone)));
 
         // When
-        PageResponse<ProductResponse> result = productService.searchProducts("prodottoinesistente", 0, 10);
+        PageResponse<ProductResponse> result = productService.searchProducts("phone", 0, 10);
 
         // Then
-        assertThat(result).isNotNull();
-        assertThat(result.getContent()).isEmpty();
-        assertThat(result.getTotalElements()).isEqualTo(0);
+        assertThat(result.getContent())
+                .extracting(ProductResponse::getName)
+                .containsExactly("iPhone 15", "Laptop Dell");
     }
 
     @Test
-    void shouldNotFindProductWithNonExistentId() {
+    void shouldReturnEmptyResultForNonExistentSearch() {
         // Given
-        when(productRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(productSearchIndex.search("prodottoinesistente", 0, 10))
+                .thenReturn(new ProductSearchIndex.SearchHits(Collections.emptyList(), Collections.emptyList(), 0));
 
         // When
-        Optional<ProductResponse> found = productService.findById(999L);
+        PageResponse<ProductResponse> result = productService.searchProducts("prodottoinesistente", 0, 10);
 
         // Then
-        assertThat(found).isEmpty();
+        assertThat(result).isNotNull();
+        assertThat(result.getContent()).isEmpty();
+        assertThat(result.getTotalElements()).isEqualTo(0);
     }
 
     @Test
     void shouldHandlePaginationCorrectly() {
         // Given - prima pagina
-        List<Product> page1Products = Arrays.asList(laptop, smartphone);
-        Page<Product> page1 = new PageImpl<>(page1Products, PageRequest.of(0, 10), 17);
+        List<ProductProjection> page1Products = Arrays.asList(projection(laptop), projection(smartphone));
+        Page<ProductProjection> page1 = new PageImpl<>(page1Products, PageRequest.of(0, 10), 17);
 
-        when(productRepository.findByActiveTrue(PageRequest.of(0, 10))).thenReturn(page1);
+        when(productRepository.findActiveProjections(PageRequest.of(0, 10))).thenReturn(page1);
 
         // When
         PageResponse<ProductResponse> result = productService.getProducts(0, 10);
@@ -278,4 +348,191 @@ class ProductServiceTest {
         assertThat(result.isHasNext()).isTrue();
         assertThat(result.isHasPrevious()).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGetFirstKeysetPageWithNextCursor() {
+        // Given - viene chiesto un elemento in più per capire se c'è una pagina successiva
+        when(productRepository.findActiveProjectionsNewestFirst(PageRequest.of(0, 2)))
+                .thenReturn(List.of(projection(smartphone), projection(laptop)));
+
+        // When
+        PageResponse<ProductResponse> result = productService.getProductsAfter("", 1);
+
+        // Then
+        assertThat(result.getContent()).extracting(ProductResponse::getName).containsExactly("iPhone 15");
+        assertThat(result.isHasNext()).isTrue();
+        assertThat(result.isHasPrevious()).isFalse();
+
+        ProductCursor next = ProductCursor.decode(result.getNextCursor());
+        assertThat(next.getCreatedAt()).isEqualTo(smartphone.getCreatedAt());
+        assertThat(next.getId()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldSeekAfterCursorWithoutCountQuery() {
+        // Given
+        String cursor = ProductCursor.encode(smartphone.getCreatedAt(), 2L);
+        when(productRepository.findActiveProjectionsAfter(smartphone.getCreatedAt(), 2L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(projection(laptop)));
+
+        // When
+        PageResponse<ProductResponse> result = productService.getProductsAfter(cursor, 1);
+
+        // Then
+        assertThat(result.getContent()).extracting(ProductResponse::getName).containsExactly("Laptop Dell");
+        assertThat(result.isHasNext()).isFalse();
+        assertThat(result.isHasPrevious()).isTrue();
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldSearchAfterScoreCursor() {
+        // Given
+        when(productSearchIndex.search("phone", 0, 2))
+                .thenReturn(new ProductSearchIndex.SearchHits(List.of(2L, 1L), List.of(6, 3), 2));
+        when(productRepository.findProjectionsByIdIn(List.of(2L))).thenReturn(List.of(projection(smartphone)));
+
+        // When
+        PageResponse<ProductResponse> firstPage = productService.searchProductsAfter("phone", "", 1);
+
+        // Then - il cursore porta (score, id) dell'ultimo risultato restituito
+        assertThat(firstPage.getContent()).extracting(ProductResponse::getName).containsExactly("iPhone 15");
+        ProductCursor next = ProductCursor.decode(firstPage.getNextCursor());
+        assertThat(next.getScore()).isEqualTo(6);
+        assertThat(next.getId()).isEqualTo(2L);
+
+        // Given - pagina successiva
+        when(productSearchIndex.searchAfter("phone", 6, 2L, 2))
+                .thenReturn(new ProductSearchIndex.SearchHits(List.of(1L), List.of(3), 2));
+        when(productRepository.findProjectionsByIdIn(List.of(1L))).thenReturn(List.of(projection(laptop)));
+
+        // When
+        PageResponse<ProductResponse> secondPage = productService.searchProductsAfter("phone", firstPage.getNextCursor(), 1);
+
+        // Then
+        assertThat(secondPage.getContent()).extracting(ProductResponse::getName).containsExactly("Laptop Dell");
+        assertThat(secondPage.isHasNext()).isFalse();
+    }
+
+    @Test
+    void shouldCapCursorPageSize() {
+        // Given - size enorme: niente overflow su size + 1, la pagina viene limitata a 100
+        when(productRepository.findActiveProjectionsNewestFirst(PageRequest.of(0, 101)))
+                .thenReturn(List.of(projection(smartphone)));
+        when(productSearchIndex.search("phone", 0, 101))
+                .thenReturn(new ProductSearchIndex.SearchHits(List.of(), List.of(), 0));
+
+        // When
+        PageResponse<ProductResponse> products = productService.getProductsAfter("", Integer.MAX_VALUE);
+        PageResponse<ProductResponse> hits = productService.searchProductsAfter("phone", "", Integer.MAX_VALUE);
+
+        // Then
+        assertThat(products.getContent()).hasSize(1);
+        assertThat(products.isHasNext()).isFalse();
+        assertThat(hits.getContent()).isEmpty();
+    }
+
+    @Test
+    void shouldRejectMalformedOrMismatchedCursor() {
+        String searchCursor = ProductCursor.encode(6, 2L);
+
+        assertThatThrownBy(() -> productService.getProductsAfter("non-un-cursore!", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursore non valido");
+        assertThatThrownBy(() -> productService.getProductsAfter(searchCursor, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursore non valido");
+    }
+
+    @Test
+    void shouldGetProductsByCategory() {
+        // Given
+        Page<ProductProjection> page = new PageImpl<>(List.of(projection(laptop)), PageRequest.of(0, 10), 1);
+        when(productRepository.findActiveProjectionsByCategory(1L, PageRequest.of(0, 10))).thenReturn(page);
+
+        // When
+        PageResponse<ProductResponse> result = productService.getProductsByCategory(1L, 0, 10);
+
+        // Then - la categoria arriva dalla stessa riga della proiezione
+        assertThat(result.getContent()).hasSize(1);
+        assertThat(result.getContent().get(0).getCategory().getName()).isEqualTo("Electronics");
+        assertThat(result.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFilterProductsWithFacetCounts() {
+        // Given
+        ProductFilter filter = ProductFilter.builder().brands(List.of("Apple")).inStock(true).build();
+        ProductFacetIndex.FacetResult facets = new ProductFacetIndex.FacetResult(List.of(2L), 1,
+                Map.of("Apple", 1L, "Dell", 1L), Map.of(1L, 1L), Map.of("1000+", 1L), 1);
+        when(productFacetIndex.filter(filter, 0, 10)).thenReturn(facets);
+        when(productRepository.findProjectionsByIdIn(List.of(2L))).thenReturn(List.of(projection(smartphone)));
+
+        // When
+        ProductFilterResponse result = productService.filterProducts(filter, 0, 10);
+
+        // Then - solo la pagina richiesta viene letta dal DB, i conteggi arrivano dall'indice
+        assertThat(result.getProducts().getContent()).extracting(ProductResponse::getId).containsExactly(2L);
+        assertThat(result.getProducts().getTotalElements()).isEqualTo(1);
+        assertThat(result.getBrands()).containsEntry("Dell", 1L);
+        assertThat(result.getPriceBands()).containsEntry("1000+", 1L);
+        verify(productRepository, never()).findActiveProjections(any(Pageable.class));
+    }
+
+    @Test
+    void shouldRejectInvalidFilterPagination() {
+        assertThatThrownBy(() -> productService.filterProducts(new ProductFilter(), -1, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> productService.filterProducts(new ProductFilter(), 0, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldSuggestFromTrieWithoutQueries() {
+        // Given
+        when(productSuggestIndex.suggest("lap", 5)).thenReturn(List.of(
+                new ProductSuggestIndex.Suggestion("Laptop Dell", ProductSuggestIndex.TYPE_PRODUCT, 1L, 3)));
+
+        // When
+        List<ProductSuggestionResponse> result = productService.suggest("lap", 5);
+
+        // Then
+        assertThat(result).singleElement().satisfies(suggestion -> {
+            assertThat(suggestion.getText()).isEqualTo("Laptop Dell");
+            assertThat(suggestion.getProductId()).isEqualTo(1L);
+        });
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void shouldServeBestSellersFromRankings() {
+        // Given
+        when(productRankings.topSelling(2)).thenReturn(List.of(2L, 1L));
+        when(productRepository.findProjectionsByIdIn(List.of(2L, 1L)))
+                .thenReturn(List.of(projection(laptop), projection(smartphone)));
+
+        // When
+        List<ProductResponse> result = productService.getBestSellers(2);
+
+        // Then - ordine della classifica, senza query di aggregazione
+        assertThat(result).extracting(ProductResponse::getId).containsExactly(2L, 1L);
+        verify(productRepository, never()).findBestSellingProducts(any(Pageable.class));
+    }
+
+    @Test
+    void shouldRejectRankingLimitOutOfRange() {
+        assertThatThrownBy(() -> productService.getMostCarted(0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> productService.getBestSellers(101))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Proiezione equivalente a quella prodotta dalla query JPQL
+    private ProductProjection projection(Product product) {
+        Category category = product.getCategory();
+        return new ProductProjection(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getStockQuantity(), product.getImageUrl(), product.getBrand(),
+                product.isActive(), product.getCreatedAt(), product.getUpdatedAt(),
+                category.getId(), category.getName(), category.getDescription(), category.isActive());
+    }
+}
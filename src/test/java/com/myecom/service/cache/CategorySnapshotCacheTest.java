@@ -0,0 +1,68 @@
+package com.myecom.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myecom.model.Category;
+import com.myecom.repository.CategoryRepository;
+import com.myecom.service.mapper.ProductMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test per la fotografia delle categorie attive
+ */
+@ExtendWith(MockitoExtension.class)
+class CategorySnapshotCacheTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    private CategorySnapshotCache categorySnapshotCache;
+    private Category electronics;
+    private Category books;
+
+    @BeforeEach
+    void setUp() {
+        categorySnapshotCache = new CategorySnapshotCache(categoryRepository, new ProductMapper(), new ObjectMapper());
+
+        electronics = Category.builder().id(1L).name("Electronics").active(true).build();
+        books = Category.builder().id(2L).name("Books").active(true).build();
+    }
+
+    @Test
+    void shouldServeRepeatedReadsFromTheSameSnapshot() {
+        when(categoryRepository.findByActiveTrue()).thenReturn(List.of(electronics));
+
+        CategorySnapshotCache.Snapshot first = categorySnapshotCache.get();
+        CategorySnapshotCache.Snapshot second = categorySnapshotCache.get();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getCategories()).extracting("name").containsExactly("Electronics");
+        assertThat(new String(first.getJson(), StandardCharsets.UTF_8)).contains("\"name\":\"Electronics\"");
+        verify(categoryRepository, times(1)).findByActiveTrue();
+    }
+
+    @Test
+    void shouldSwapSnapshotOnRefresh() {
+        when(categoryRepository.findByActiveTrue()).thenReturn(List.of(electronics), List.of(electronics, books));
+
+        CategorySnapshotCache.Snapshot before = categorySnapshotCache.get();
+        categorySnapshotCache.refresh();
+        CategorySnapshotCache.Snapshot after = categorySnapshotCache.get();
+
+        assertThat(after).isNotSameAs(before);
+        assertThat(before.getCategories()).hasSize(1);
+        assertThat(after.getCategories()).extracting("name").containsExactly("Electronics", "Books");
+        assertThat(new String(after.getJson(), StandardCharsets.UTF_8)).contains("Books");
+    }
+}
@@ -0,0 +1,132 @@
+package com.myecom.service.cache;
+
+import com.myecom.dto.product.ProductResponse;
+import com.myecom.model.Category;
+import com.myecom.model.Money;
+import com.myecom.model.Product;
+import com.myecom.repository.ProductRepository;
+import com.myecom.service.mapper.ProductMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test per la cache read-through dei prodotti
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductCacheTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductCache productCache;
+    private Category electronics;
+    private Product laptop;
+
+    @BeforeEach
+    void setUp() {
+        productCache = new ProductCache(productRepository, new ProductMapper(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(productCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(productCache, "ttl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(productCache, "refreshAfter", Duration.ofMinutes(5));
+        productCache.init();
+
+        electronics = Category.builder()
+                .id(1L)
+                .name("Electronics")
+                .active(true)
+                .build();
+
+        laptop = Product.builder()
+                .id(1L)
+                .name("Laptop Dell")
+                .price(Money.of("999.99"))
+                .stockQuantity(10)
+                .brand("Dell")
+                .category(electronics)
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void shouldLoadOnceAndServeFromCache() {
+        // Given
+        when(productRepository.findWithCategoryById(1L)).thenReturn(Optional.of(laptop));
+
+        // When
+        Optional<ProductResponse> first = productCache.get(1L);
+        Optional<ProductResponse> second = productCache.get(1L);
+
+        // Then - una sola query, la seconda lettura è un hit
+        assertThat(first).isPresent();
+        assertThat(second.get().getCategory().getName()).isEqualTo("Electronics");
+        verify(productRepository, times(1)).findWithCategoryById(1L);
+        assertThat(productCache.stats().hitCount()).isEqualTo(1);
+        assertThat(productCache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheInactiveProduct() {
+        // Given
+        laptop.setActive(false);
+        when(productRepository.findWithCategoryById(1L)).thenReturn(Optional.of(laptop));
+
+        // When & Then
+        assertThat(productCache.get(1L)).isEmpty();
+    }
+
+    @Test
+    void shouldNotCacheMissingProduct() {
+        // Given
+        when(productRepository.findWithCategoryById(999L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThat(productCache.get(999L)).isEmpty();
+        assertThat(productCache.get(999L)).isEmpty();
+        verify(productRepository, times(2)).findWithCategoryById(999L);
+    }
+
+    @Test
+    void shouldReloadAfterProductInvalidation() {
+        // Given
+        when(productRepository.findWithCategoryById(1L)).thenReturn(Optional.of(laptop));
+        productCache.get(1L);
+
+        // When
+        productCache.invalidate(1L);
+        productCache.get(1L);
+
+        // Then
+        verify(productRepository, times(2)).findWithCategoryById(1L);
+    }
+
+    @Test
+    void shouldEvictProductsOfChangedCategory() {
+        // Given
+        when(productRepository.findWithCategoryById(1L)).thenReturn(Optional.of(laptop));
+        productCache.get(1L);
+
+        // When - un'altra categoria non tocca il prodotto, la sua sì
+        productCache.invalidateCategory(2L);
+        productCache.get(1L);
+        productCache.invalidateCategory(1L);
+        productCache.get(1L);
+
+        // Then
+        verify(productRepository, times(2)).findWithCategoryById(1L);
+    }
+}
@@ -0,0 +1,246 @@
+package com.myecom.service.cart;
+
+import com.myecom.model.Cart;
+import com.myecom.model.CartItem;
+import com.myecom.model.Product;
+import com.myecom.model.User;
+import com.myecom.repository.CartItemRepository;
+import com.myecom.repository.CartRepository;
+import com.myecom.repository.ProductRepository;
+import com.myecom.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test per i carrelli in memoria con journal e salvataggio differito
+ */
+@ExtendWith(MockitoExtension.class)
+class WriteBehindCartStoreTest {
+
+    @Mock private CartRepository cartRepository;
+    @Mock private CartItemRepository cartItemRepository;
+    @Mock private ProductRepository productRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private WriteBehindCartStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = newStore();
+        store.recover();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Chiude solo il journal: il salvataggio finale non fa parte dei test
+        ReflectionTestUtils.setField(store, "enabled", false);
+        ReflectionTestUtils.invokeMethod(store, "flushOnShutdown");
+    }
+
+    @Test
+    void shouldServeMutationsFromMemoryAfterFirstLoad() {
+        // Given
+        when(cartRepository.findWithItemsByUserId(1L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        // When
+        add(1L, 10L, 2);
+        add(1L, 10L, 1);
+        add(1L, 20L, 1);
+        CartSnapshot cart = store.remove(1L, 20L);
+
+        // Then - il DB viene letto una sola volta, al primo accesso
+        assertThat(cart.getItems()).containsExactly(Map.entry(10L, 3));
+        assertThat(store.get(1L).getItems()).containsEntry(10L, 3);
+        verify(cartRepository, times(1)).findWithItemsByUserId(1L);
+        verify(cartItemRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldRejectUnknownUserAndMissingCart() {
+        // Given
+        when(cartRepository.findWithItemsByUserId(any())).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.existsById(99L)).thenReturn(false);
+
+        // When & Then
+        assertThatThrownBy(() -> add(99L, 10L, 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Utente non trovato");
+        assertThatThrownBy(() -> store.get(1L))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Carrello non trovato");
+    }
+
+    @Test
+    void shouldPersistDirtyCartsOnFlush() {
+        // Given
+        when(cartRepository.findWithItemsByUserId(1L)).thenReturn(Optional.empty());
+        when(cartRepository.findByUserId(1L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.getReferenceById(1L)).thenReturn(User.builder().id(1L).build());
+        when(productRepository.getReferenceById(10L)).thenReturn(Product.builder().id(10L).build());
+        when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> {
+            Cart cart = invocation.getArgument(0);
+            cart.setId(100L);
+            return cart;
+        });
+        when(cartItemRepository.findByCart(any())).thenReturn(List.of());
+
+        add(1L, 10L, 2);
+
+        // When
+        store.flush();
+        store.flush(); // Nessuna modifica nuova: nessun salvataggio
+
+        // Then
+        ArgumentCaptor<CartItem> saved = ArgumentCaptor.forClass(CartItem.class);
+        verify(cartItemRepository, times(1)).save(saved.capture());
+        assertThat(saved.getValue().getQuantity()).isEqualTo(2);
+        assertThat(store.get(1L).getCartId()).isEqualTo(100L);
+        assertThat(Files.exists(tempDir.resolve("carts.log.flushing"))).isFalse();
+    }
+
+    @Test
+    void shouldUpdateOnlyChangedRowsOfExistingCart() {
+        // Given
+        Cart cart = Cart.builder().id(100L).createdAt(LocalDateTime.now()).build();
+        CartItem kept = CartItem.builder().id(1L).cart(cart).product(Product.builder().id(10L).build()).quantity(1).build();
+        CartItem removed = CartItem.builder().id(2L).cart(cart).product(Product.builder().id(20L).build()).quantity(1).build();
+        cart.setCartItems(List.of(kept, removed));
+        when(cartRepository.findWithItemsByUserId(1L)).thenReturn(Optional.of(cart));
+        when(cartRepository.findById(100L)).thenReturn(Optional.of(cart));
+        when(cartItemRepository.findByCart(cart)).thenReturn(List.of(kept, removed));
+
+        add(1L, 10L, 4);
+        store.remove(1L, 20L);
+
+        // When
+        store.flush(1L);
+
+        // Then
+        assertThat(kept.getQuantity()).isEqualTo(5);
+        verify(cartItemRepository).delete(removed);
+        verify(cartItemRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldReplayJournalAfterRestart() {
+        // Given - modifiche scritte sul journal ma mai salvate (crash prima del flush)
+        when(cartRepository.findWithItemsByUserId(1L)).thenReturn(Optional.empty());
+        when(cartRepository.findByUserId(1L)).thenReturn(Optional.empty());
+        lenient().when(userRepository.existsById(1L)).thenReturn(true);
+        add(1L, 10L, 2);
+        add(1L, 30L, 1);
+        store.clear(1L);
+        add(1L, 20L, 5);
+
+        when(userRepository.getReferenceById(1L)).thenReturn(User.builder().id(1L).build());
+        when(productRepository.getReferenceById(20L)).thenReturn(Product.builder().id(20L).build());
+        when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> {
+            Cart cart = invocation.getArgument(0);
+            cart.setId(100L);
+            return cart;
+        });
+        when(cartItemRepository.findByCart(any())).thenReturn(List.of());
+
+        // When
+        WriteBehindCartStore restarted = newStore();
+        restarted.recover();
+
+        // Then - il riavvio ricostruisce il carrello e lo salva
+        ArgumentCaptor<CartItem> saved = ArgumentCaptor.forClass(CartItem.class);
+        verify(cartItemRepository).save(saved.capture());
+        assertThat(saved.getValue().getProduct().getId()).isEqualTo(20L);
+        assertThat(saved.getValue().getQuantity()).isEqualTo(5);
+        assertThat(restarted.get(1L).getItems()).containsOnlyKeys(20L);
+
+        ReflectionTestUtils.invokeMethod(restarted, "flushOnShutdown");
+    }
+
+    @Test
+    void shouldJournalConcurrentChangesOfDifferentCarts() throws Exception {
+        // Given - più carrelli modificati in parallelo: le righe condividono i force del journal
+        when(cartRepository.findWithItemsByUserId(any())).thenReturn(Optional.empty());
+        when(userRepository.existsById(any())).thenReturn(true);
+        int users = 8;
+        int changes = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+
+        // When
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long userId = 1; userId <= users; userId++) {
+                long user = userId;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < changes; i++) {
+                        add(user, 10L, 1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then - ogni modifica ha la sua riga completa, ogni carrello il suo totale
+        assertThat(Files.readAllLines(tempDir.resolve("carts.log"))).hasSize(users * changes);
+        for (long userId = 1; userId <= users; userId++) {
+            assertThat(store.get(userId).getItems()).containsExactly(Map.entry(10L, changes));
+        }
+    }
+
+    // Aggiunge pezzi come fa CartService.addToCart, tramite update
+    private CartSnapshot add(Long userId, Long productId, int quantity) {
+        return store.update(userId, items -> {
+            items.merge(productId, quantity, Integer::sum);
+            return items;
+        });
+    }
+
+    private WriteBehindCartStore newStore() {
+        WriteBehindCartStore cartStore = new WriteBehindCartStore(
+                cartRepository, cartItemRepository, productRepository, userRepository, transactionManager);
+        ReflectionTestUtils.setField(cartStore, "enabled", true);
+        ReflectionTestUtils.setField(cartStore, "journalPath", tempDir.resolve("carts.log").toString());
+        ReflectionTestUtils.setField(cartStore, "flushBatchSize", 100);
+        ReflectionTestUtils.setField(cartStore, "idleEviction", Duration.ofMinutes(30));
+        return cartStore;
+    }
+}
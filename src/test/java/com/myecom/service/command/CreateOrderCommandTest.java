@@ -3,22 +3,31 @@ package com.myecom.service.command;
 import com.myecom.dto.order.CreateOrderRequest;
 import com.myecom.dto.order.OrderResponse;
 import com.myecom.events.OrderCreatedEvent;
+import com.myecom.events.ProductChangedEvent;
+import com.myecom.events.ProductSoldEvent;
 import com.myecom.exception.BusinessException;
 import com.myecom.model.*;
 import com.myecom.repository.*;
+import com.myecom.repository.ProductStockRepository.StockDecrease;
 import com.myecom.service.CartService;
 import com.myecom.service.mapper.OrderMapper;
-import com.myecom.service.validation.OrderValidator;
+import com.myecom.service.validation.DailyOrderCounter;
+import com.myecom.service.validation.ValidatorChain;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,10 +47,17 @@ class CreateOrderCommandTest {
     @Mock private UserRepository userRepository;
     @Mock private CartRepository cartRepository;
     @Mock private CartItemRepository cartItemRepository;
+    @Mock private ProductRepository productRepository;
     @Mock private CartService cartService;
     @Mock private OrderMapper orderMapper;
     @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private EntityManager entityManager;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private OrderGroupCommit orderGroupCommit;
+    @Mock private DailyOrderCounter dailyOrderCounter;
+    @Mock private ValidatorChain validatorChain; // Nessun validator: il mock non fa nulla
 
+    // Session (sottotipo di EntityManager) non è un campo @Mock: @InjectMocks potrebbe iniettarla al posto di entityManager
     @InjectMocks
     private CreateOrderCommand createOrderCommand;
 
@@ -49,9 +65,6 @@ class CreateOrderCommandTest {
 
     @BeforeEach
     void setUp() {
-        // Nessun validator - lista vuota per semplicità
-        ReflectionTestUtils.setField(createOrderCommand, "validators", Collections.emptyList());
-
         request = new CreateOrderRequest();
         request.setShippingAddress("Via Test 123");
     }
@@ -91,6 +104,7 @@ class CreateOrderCommandTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
         when(cartItemRepository.findByCart(cart)).thenReturn(Collections.emptyList());
+        when(productRepository.decreaseStock(Map.of())).thenReturn(new StockDecrease(List.of(), Map.of()));
         when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
         when(orderMapper.toResponse(eq(savedOrder), any())).thenReturn(response);
 
@@ -101,6 +115,64 @@ class CreateOrderCommandTest {
         verify(eventPublisher).publishEvent(any(OrderCreatedEvent.class));
     }
 
+    @Test
+    void shouldPublishStockReadAfterUpdateNotTheStaleValue() {
+        // Given - letto 10 in prepare, ma un checkout concorrente ne ha venduti 2: dopo questo ne restano 5
+        User user = mock(User.class);
+        Cart cart = mock(Cart.class);
+        Product product = Product.builder().id(7L).price(Money.of("10.00")).stockQuantity(10).build();
+        CartItem item = CartItem.builder().product(product).quantity(3).build();
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
+        when(cartItemRepository.findByCart(cart)).thenReturn(List.of(item));
+        when(productRepository.decreaseStock(Map.of(7L, 3))).thenReturn(new StockDecrease(List.of(), Map.of(7L, 5)));
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+        when(orderRepository.save(any(Order.class))).thenReturn(mock(Order.class));
+
+        // When
+        createOrderCommand.init(1L, request).execute();
+
+        // Then - indici e ETag vedono lo stock vero
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        assertThat(events.getAllValues())
+                .filteredOn(ProductChangedEvent.class::isInstance)
+                .singleElement()
+                .satisfies(event -> assertThat(((ProductChangedEvent) event).getProduct().getStockQuantity()).isEqualTo(5));
+    }
+
+    @Test
+    void shouldPublishProductSoldEventForEachItem() {
+        // Given
+        User user = mock(User.class);
+        Cart cart = mock(Cart.class);
+        Order savedOrder = mock(Order.class);
+        Product product = Product.builder().id(7L).price(Money.of("10.00")).stockQuantity(10).build();
+        CartItem item = CartItem.builder().product(product).quantity(3).build();
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
+        when(cartItemRepository.findByCart(cart)).thenReturn(List.of(item));
+        when(productRepository.decreaseStock(Map.of(7L, 3))).thenReturn(new StockDecrease(List.of(), Map.of(7L, 5)));
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+        when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
+
+        // When
+        createOrderCommand.init(1L, request).execute();
+
+        // Then - la classifica vendite riceve prodotto e quantità
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        assertThat(events.getAllValues())
+                .filteredOn(ProductSoldEvent.class::isInstance)
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(((ProductSoldEvent) event).getProductId()).isEqualTo(7L);
+                    assertThat(((ProductSoldEvent) event).getQuantity()).isEqualTo(3);
+                });
+    }
+
     @Test
     void shouldCallCartServiceClear() {
         // Given - setup minimale per arrivare fino al clear cart
@@ -112,6 +184,7 @@ class CreateOrderCommandTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
         when(cartItemRepository.findByCart(cart)).thenReturn(Collections.emptyList());
+        when(productRepository.decreaseStock(Map.of())).thenReturn(new StockDecrease(List.of(), Map.of()));
         when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
         when(orderMapper.toResponse(eq(savedOrder), any())).thenReturn(response);
 
@@ -136,6 +209,7 @@ class CreateOrderCommandTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
         when(cartItemRepository.findByCart(cart)).thenReturn(Collections.emptyList());
+        when(productRepository.decreaseStock(Map.of())).thenReturn(new StockDecrease(List.of(), Map.of()));
         when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
         when(orderMapper.toResponse(eq(savedOrder), any())).thenReturn(expectedResponse);
 
@@ -146,4 +220,109 @@ class CreateOrderCommandTest {
         assertThat(result).isEqualTo(expectedResponse);
         assertThat(result.getOrderNumber()).isEqualTo("ORD-123");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldFailWithoutSavingWhenConditionalStockUpdateFails() {
+        // Given - un checkout concorrente ha preso gli ultimi pezzi dopo la validazione
+        User user = mock(User.class);
+        Cart cart = mock(Cart.class);
+        Product product = Product.builder().id(7L).name("Laptop").price(Money.of("10.00")).stockQuantity(3).build();
+        CartItem item = CartItem.builder().product(product).quantity(3).build();
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
+        when(cartItemRepository.findByCart(cart)).thenReturn(List.of(item));
+        when(productRepository.decreaseStock(any())).thenReturn(new StockDecrease(List.of(7L), Map.of()));
+
+        // When & Then
+        assertThatThrownBy(() -> createOrderCommand.init(1L, request).execute())
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Laptop");
+        verify(orderRepository, never()).save(any());
+        verify(cartService, never()).clearCart(anyLong());
+        assertThat(product.getStockQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldKeepStateOfEachInvocationSeparate() {
+        // Given - due checkout preparati dallo stesso bean prima di eseguirne uno
+        User user = mock(User.class);
+        Cart cart = mock(Cart.class);
+        Order savedOrder = mock(Order.class);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
+        when(cartItemRepository.findByCart(cart)).thenReturn(Collections.emptyList());
+        when(productRepository.decreaseStock(Map.of())).thenReturn(new StockDecrease(List.of(), Map.of()));
+        when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
+
+        OrderCommand<OrderResponse> first = createOrderCommand.init(1L, request);
+        OrderCommand<OrderResponse> second = createOrderCommand.init(2L, request);
+
+        // When
+        first.execute();
+
+        // Then - il secondo non ha ancora fatto nulla: ogni comando lavora con i suoi parametri
+        assertThat(first).isNotSameAs(second);
+        verify(userRepository).findById(1L);
+        verify(userRepository, never()).findById(2L);
+    }
+
+    @Test
+    void shouldHandAllCheckoutWritesToGroupCommitWhenEnabled() {
+        // Given
+        User user = mock(User.class);
+        Cart cart = mock(Cart.class);
+        Product product = Product.builder().id(7L).price(Money.of("10.00")).stockQuantity(10).build();
+        CartItem item = CartItem.builder().id(70L).product(product).quantity(3).build();
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
+        when(cartItemRepository.findByCart(cart)).thenReturn(List.of(item));
+        when(orderGroupCommit.isEnabled()).thenReturn(true);
+        when(orderGroupCommit.checkout(any(Order.class), eq(Map.of(7L, 3)), eq(List.of(70L))))
+                .thenReturn(new StockDecrease(List.of(), Map.of(7L, 4)));
+
+        // When
+        createOrderCommand.init(1L, request).execute();
+
+        // Then - stock, ordine e carrello li scrive il group commit, non questo thread
+        ArgumentCaptor<Order> order = ArgumentCaptor.forClass(Order.class);
+        verify(orderGroupCommit).checkout(order.capture(), eq(Map.of(7L, 3)), eq(List.of(70L)));
+        verify(productRepository, never()).decreaseStock(any());
+        verify(orderRepository, never()).save(any());
+        verify(cartService, never()).clearCart(anyLong());
+        verify(cartService).clearAfterCheckout(1L);
+        // Stock riletto dallo scrittore, non 10 - 3: un altro checkout ne ha venduti 3 nel frattempo
+        assertThat(product.getStockQuantity()).isEqualTo(4);
+        assertThat(order.getValue().getOrderItems())
+                .singleElement()
+                .satisfies(orderItem -> {
+                    assertThat(orderItem.getOrder()).isSameAs(order.getValue());
+                    assertThat(orderItem.getTotalPrice()).isEqualTo(Money.of("30.00"));
+                });
+    }
+
+    @Test
+    void shouldFailWhenGroupCommitFindsInsufficientStock() {
+        // Given
+        User user = mock(User.class);
+        Cart cart = mock(Cart.class);
+        Product product = Product.builder().id(7L).name("Laptop").price(Money.of("10.00")).stockQuantity(3).build();
+        CartItem item = CartItem.builder().id(70L).product(product).quantity(3).build();
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(cartRepository.findByUser(user)).thenReturn(Optional.of(cart));
+        when(cartItemRepository.findByCart(cart)).thenReturn(List.of(item));
+        when(orderGroupCommit.isEnabled()).thenReturn(true);
+        when(orderGroupCommit.checkout(any(Order.class), any(), any()))
+                .thenReturn(new StockDecrease(List.of(7L), Map.of()));
+
+        // When & Then
+        assertThatThrownBy(() -> createOrderCommand.init(1L, request).execute())
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Laptop");
+        verify(cartService, never()).clearAfterCheckout(anyLong());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+}
@@ -0,0 +1,177 @@
+package com.myecom.service.intake;
+
+import com.myecom.dto.order.CreateOrderRequest;
+import com.myecom.dto.order.OrderIntakeResponse;
+import com.myecom.dto.order.OrderResponse;
+import com.myecom.exception.BusinessException;
+import com.myecom.exception.TooManyRequestsException;
+import com.myecom.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test per l'accettazione asincrona degli ordini
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderIntakeTest {
+
+    @Mock private OrderService orderService;
+
+    private OrderIntake orderIntake;
+    private CreateOrderRequest request;
+
+    @BeforeEach
+    void setUp() {
+        orderIntake = new OrderIntake(orderService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(orderIntake, "enabled", true);
+        ReflectionTestUtils.setField(orderIntake, "workers", 1);
+        ReflectionTestUtils.setField(orderIntake, "queueCapacity", 1);
+        ReflectionTestUtils.setField(orderIntake, "statusTtl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(orderIntake, "retryAfter", Duration.ofSeconds(5));
+        ReflectionTestUtils.invokeMethod(orderIntake, "init");
+
+        request = new CreateOrderRequest();
+        request.setShippingAddress("Via Test 123");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(orderIntake, "shutdown");
+    }
+
+    @Test
+    void shouldCreateOrderInBackgroundAndExposeStatus() throws Exception {
+        // Given
+        OrderResponse order = OrderResponse.builder().id(10L).orderNumber("ORD-1").build();
+        when(orderService.createOrder(1L, request)).thenReturn(order);
+
+        // When
+        OrderIntakeResponse accepted = orderIntake.submit(1L, request);
+
+        // Then
+        assertThat(accepted.getStatus()).isEqualTo(OrderIntakeResponse.Status.QUEUED);
+        OrderIntakeResponse done = awaitFinished(accepted.getTrackingId());
+        assertThat(done.getStatus()).isEqualTo(OrderIntakeResponse.Status.COMPLETED);
+        assertThat(done.getOrder().getOrderNumber()).isEqualTo("ORD-1");
+    }
+
+    @Test
+    void shouldReportBusinessErrorsAsFailed() throws Exception {
+        // Given
+        when(orderService.createOrder(1L, request)).thenThrow(new BusinessException("Il carrello è vuoto"));
+
+        // When
+        OrderIntakeResponse accepted = orderIntake.submit(1L, request);
+
+        // Then
+        OrderIntakeResponse done = awaitFinished(accepted.getTrackingId());
+        assertThat(done.getStatus()).isEqualTo(OrderIntakeResponse.Status.FAILED);
+        assertThat(done.getError()).isEqualTo("Il carrello è vuoto");
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFullAndDeduplicateSameUser() throws Exception {
+        // Given - l'unico worker resta occupato finché il test non lo sblocca
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrder(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return OrderResponse.builder().id(1L).build();
+        });
+
+        OrderIntakeResponse first = orderIntake.submit(1L, request);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        OrderIntakeResponse queued = orderIntake.submit(2L, request); // Occupa l'unico posto in coda
+
+        // When & Then - il doppio invio dello stesso utente non occupa altri posti
+        assertThat(orderIntake.submit(2L, request).getTrackingId()).isEqualTo(queued.getTrackingId());
+        assertThatThrownBy(() -> orderIntake.submit(3L, request))
+                .isInstanceOf(TooManyRequestsException.class);
+
+        release.countDown();
+        assertThat(awaitFinished(first.getTrackingId()).getStatus()).isEqualTo(OrderIntakeResponse.Status.COMPLETED);
+        assertThat(awaitFinished(queued.getTrackingId()).getStatus()).isEqualTo(OrderIntakeResponse.Status.COMPLETED);
+        verify(orderService, times(2)).createOrder(any(), any());
+    }
+
+    @Test
+    void concurrentSubmitsFromSameUserShouldQueueOneOrder() throws Exception {
+        // Given - il worker resta occupato, così il primo ordine è ancora in corso per tutti gli invii
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrder(any(), any())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return OrderResponse.builder().id(1L).build();
+        });
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OrderIntakeResponse>> submits = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 8; i++) {
+                submits.add(clients.submit(() -> {
+                    start.await();
+                    return orderIntake.submit(1L, request);
+                }));
+            }
+
+            // When
+            start.countDown();
+            Set<String> trackingIds = new HashSet<>();
+            for (Future<OrderIntakeResponse> submit : submits) {
+                trackingIds.add(submit.get(10, TimeUnit.SECONDS).getTrackingId());
+            }
+
+            // Then
+            assertThat(trackingIds).hasSize(1);
+            release.countDown();
+            awaitFinished(trackingIds.iterator().next());
+            verify(orderService, times(1)).createOrder(any(), any());
+        } finally {
+            release.countDown();
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldReturnEmptyStatusForUnknownTrackingId() {
+        assertThat(orderIntake.getStatus("sconosciuto")).isEmpty();
+    }
+
+    private OrderIntakeResponse awaitFinished(String trackingId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            OrderIntakeResponse status = orderIntake.getStatus(trackingId).orElseThrow();
+            if (status.getStatus() == OrderIntakeResponse.Status.COMPLETED
+                    || status.getStatus() == OrderIntakeResponse.Status.FAILED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Ordine non elaborato: " + trackingId);
+    }
+}
@@ -0,0 +1,126 @@
+package com.myecom.service.ranking;
+
+import com.myecom.model.ProductCounter;
+import com.myecom.repository.ProductCounterRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test per le classifiche prodotti in memoria
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductRankingsTest {
+
+    @Mock
+    private ProductCounterRepository productCounterRepository;
+
+    @InjectMocks
+    private ProductRankings rankings;
+
+    @Test
+    void shouldRankSalesAndCartAddsSeparately() {
+        rankings.recordSale(1L, 2);
+        rankings.recordSale(2L, 5);
+        rankings.recordCartAdd(1L, 8);
+        rankings.recordCartAdd(3L, 1);
+
+        assertThat(rankings.topSelling(10)).containsExactly(2L, 1L);
+        assertThat(rankings.topCarted(1)).containsExactly(1L);
+    }
+
+    @Test
+    void shouldIgnoreInvalidQuantities() {
+        rankings.recordSale(1L, 0);
+        rankings.recordCartAdd(null, 3);
+
+        assertThat(rankings.topSelling(10)).isEmpty();
+        assertThat(rankings.topCarted(10)).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldFlushOnlyChangedCounters() {
+        // Given
+        rankings.recordSale(1L, 2);
+        rankings.recordCartAdd(1L, 4);
+
+        // When
+        rankings.flush();
+        rankings.flush(); // Niente di nuovo: nessuna scrittura
+
+        // Then
+        ArgumentCaptor<List<ProductCounter>> saved = ArgumentCaptor.forClass(List.class);
+        verify(productCounterRepository, times(1)).saveAll(saved.capture());
+        assertThat(saved.getValue()).singleElement().satisfies(counter -> {
+            assertThat(counter.getProductId()).isEqualTo(1L);
+            assertThat(counter.getSoldQuantity()).isEqualTo(2);
+            assertThat(counter.getCartAddQuantity()).isEqualTo(4);
+        });
+    }
+
+    @Test
+    void shouldRetryFlushAfterFailure() {
+        // Given
+        rankings.recordSale(1L, 1);
+        when(productCounterRepository.saveAll(anyList()))
+                .thenThrow(new RuntimeException("DB non disponibile"))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        rankings.flush();
+        rankings.flush();
+
+        // Then - il secondo flush riprova lo stesso contatore
+        verify(productCounterRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void shouldLoadPersistedCounters() {
+        // Given
+        when(productCounterRepository.findAll()).thenReturn(List.of(
+                new ProductCounter(1L, 3, 0, LocalDateTime.now()),
+                new ProductCounter(2L, 7, 9, LocalDateTime.now())));
+
+        // When
+        rankings.load();
+
+        // Then
+        assertThat(rankings.topSelling(10)).containsExactly(2L, 1L);
+        assertThat(rankings.topCarted(10)).containsExactly(2L);
+        verify(productCounterRepository, never()).sumSoldQuantityByProduct();
+    }
+
+    @Test
+    void shouldBootstrapFromOrderHistoryWhenNoCountersSaved() {
+        // Given
+        when(productCounterRepository.findAll()).thenReturn(Collections.emptyList());
+        when(productCounterRepository.sumSoldQuantityByProduct())
+                .thenReturn(List.<Object[]>of(new Object[]{5L, 12L}, new Object[]{6L, 4L}));
+        when(productCounterRepository.sumCartQuantityByProduct())
+                .thenReturn(List.<Object[]>of(new Object[]{6L, 2L}));
+
+        // When
+        rankings.load();
+        rankings.flush();
+
+        // Then - i valori ricavati vengono anche salvati
+        assertThat(rankings.topSelling(10)).containsExactly(5L, 6L);
+        assertThat(rankings.topCarted(10)).containsExactly(6L);
+        verify(productCounterRepository).saveAll(anyList());
+    }
+}
@@ -0,0 +1,52 @@
+package com.myecom.service.ranking;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test per il contatore con classifica ordinata
+ */
+class TopKCounterTest {
+
+    @Test
+    void shouldKeepIdsOrderedByCount() {
+        TopKCounter counter = new TopKCounter();
+        counter.increment(1L, 5);
+        counter.increment(2L, 10);
+        counter.increment(3L, 1);
+
+        assertThat(counter.top(2)).containsExactly(2L, 1L);
+        assertThat(counter.top(10)).containsExactly(2L, 1L, 3L);
+    }
+
+    @Test
+    void shouldMoveIdUpWhenIncremented() {
+        TopKCounter counter = new TopKCounter();
+        counter.increment(1L, 5);
+        counter.increment(2L, 10);
+
+        assertThat(counter.increment(1L, 6)).isEqualTo(11);
+        assertThat(counter.top(1)).containsExactly(1L);
+        assertThat(counter.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldBreakTiesByLowestId() {
+        TopKCounter counter = new TopKCounter();
+        counter.increment(9L, 3);
+        counter.increment(4L, 3);
+
+        assertThat(counter.top(2)).containsExactly(4L, 9L);
+    }
+
+    @Test
+    void shouldDropIdsSetToZero() {
+        TopKCounter counter = new TopKCounter();
+        counter.set(1L, 4);
+        counter.set(1L, 0);
+
+        assertThat(counter.top(5)).isEmpty();
+        assertThat(counter.get(1L)).isZero();
+    }
+}
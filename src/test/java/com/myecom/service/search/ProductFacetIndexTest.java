@@ -0,0 +1,234 @@
+package com.myecom.service.search;
+
+import com.myecom.model.Category;
+import com.myecom.model.Money;
+import com.myecom.model.Product;
+import com.myecom.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test per l'indice a bitmap delle faccette
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductFacetIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductFacetIndex index;
+
+    private Category electronics;
+    private Category accessories;
+    private Product laptop;
+    private Product smartphone;
+    private Product laptopBag;
+    private Product charger;
+
+    @BeforeEach
+    void setUp() {
+        electronics = Category.builder().id(1L).name("Electronics").active(true).build();
+        accessories = Category.builder().id(2L).name("Accessories").active(true).build();
+
+        laptop = product(1L, "Dell", electronics, "999.99", 10);
+        smartphone = product(2L, "Apple", electronics, "1299.99", 0);
+        laptopBag = product(3L, "Samsonite", accessories, "49.90", 25);
+        charger = product(4L, "Apple", accessories, "25.00", 100);
+
+        index.index(laptop);
+        index.index(smartphone);
+        index.index(laptopBag);
+        index.index(charger);
+    }
+
+    @Test
+    void shouldReturnAllActiveProductsWithoutFilters() {
+        ProductFacetIndex.FacetResult result = index.filter(new ProductFilter(), 0, 10);
+
+        // Ordinati dal più recente (id più alto)
+        assertThat(result.getProductIds()).containsExactly(4L, 3L, 2L, 1L);
+        assertThat(result.getTotalHits()).isEqualTo(4);
+        assertThat(result.getBrands()).containsEntry("Apple", 2L).containsEntry("Dell", 1L).containsEntry("Samsonite", 1L);
+        assertThat(result.getCategories()).containsEntry(1L, 2L).containsEntry(2L, 2L);
+        assertThat(result.getPriceBands()).containsExactly(
+                Map.entry("25-50", 2L), Map.entry("500-1000", 1L), Map.entry("1000+", 1L));
+        assertThat(result.getInStock()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldCombineFiltersWithOrWithinAndAndAcrossDimensions() {
+        ProductFilter filter = ProductFilter.builder()
+                .brands(List.of("apple", "Dell"))
+                .inStock(true)
+                .build();
+
+        ProductFacetIndex.FacetResult result = index.filter(filter, 0, 10);
+
+        // Apple O Dell, E disponibile: lo smartphone (stock 0) è escluso
+        assertThat(result.getProductIds()).containsExactly(4L, 1L);
+        assertThat(result.getTotalHits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldComputeFacetCountsIgnoringOwnDimension() {
+        ProductFilter filter = ProductFilter.builder()
+                .brands(List.of("Apple"))
+                .categoryIds(List.of(2L))
+                .build();
+
+        ProductFacetIndex.FacetResult result = index.filter(filter, 0, 10);
+
+        assertThat(result.getProductIds()).containsExactly(4L);
+        // Marche disponibili nella categoria 2, a prescindere dal filtro sulla marca
+        assertThat(result.getBrands()).containsOnlyKeys("Apple", "Samsonite");
+        // Categorie disponibili per Apple, a prescindere dal filtro sulla categoria
+        assertThat(result.getCategories()).containsEntry(1L, 1L).containsEntry(2L, 1L);
+        assertThat(result.getInStock()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFilterByPriceBand() {
+        ProductFilter filter = ProductFilter.builder().priceBands(List.of("25-50", "1000+")).build();
+
+        assertThat(index.filter(filter, 0, 10).getProductIds()).containsExactly(4L, 3L, 2L);
+        assertThat(ProductFacetIndex.priceBand(new BigDecimal("24.99"))).isEqualTo("0-25");
+        assertThat(ProductFacetIndex.priceBand(new BigDecimal("1000"))).isEqualTo("1000+");
+    }
+
+    @Test
+    void shouldFilterOutOfStockProducts() {
+        ProductFilter filter = ProductFilter.builder().inStock(false).build();
+
+        ProductFacetIndex.FacetResult result = index.filter(filter, 0, 10);
+
+        // Solo lo smartphone è esaurito; il conteggio dei disponibili ignora il filtro sullo stock
+        assertThat(result.getProductIds()).containsExactly(2L);
+        assertThat(result.getBrands()).containsOnly(Map.entry("Apple", 1L));
+        assertThat(result.getInStock()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldPaginateAcrossWordBoundaries() {
+        // Given - id sparsi su più parole da 64 bit
+        for (long id = 60; id <= 200; id += 10) {
+            index.index(product(id, "Bulk", accessories, "10.00", 1));
+        }
+        ProductFilter filter = ProductFilter.builder().brands(List.of("Bulk")).build();
+
+        // When
+        ProductFacetIndex.FacetResult result = index.filter(filter, 1, 4);
+
+        // Then
+        assertThat(result.getTotalHits()).isEqualTo(15);
+        assertThat(result.getProductIds()).containsExactly(160L, 150L, 140L, 130L);
+        assertThat(result.getCategories()).containsOnly(Map.entry(2L, 15L));
+    }
+
+    @Test
+    void shouldUpdateBitsInPlaceWhenStockChanges() {
+        // Given - un prodotto oltre la prima parola, poi esaurito e di nuovo disponibile
+        Product bulk = product(130L, "Bulk", accessories, "10.00", 1);
+        index.index(bulk);
+        bulk.setStockQuantity(0);
+        index.index(bulk);
+
+        // Then
+        assertThat(index.filter(ProductFilter.builder().inStock(false).build(), 0, 10).getProductIds())
+                .containsExactly(130L, 2L);
+        assertThat(index.filter(new ProductFilter(), 0, 10).getInStock()).isEqualTo(3);
+
+        // When - di nuovo disponibile
+        bulk.setStockQuantity(5);
+        index.index(bulk);
+
+        // Then
+        ProductFacetIndex.FacetResult result = index.filter(ProductFilter.builder().inStock(true).build(), 0, 10);
+        assertThat(result.getProductIds()).containsExactly(130L, 4L, 3L, 1L);
+        assertThat(result.getBrands()).containsEntry("Bulk", 1L);
+    }
+
+    @Test
+    void shouldReturnNothingForUnknownValues() {
+        ProductFilter filter = ProductFilter.builder().brands(List.of("Sony")).build();
+
+        ProductFacetIndex.FacetResult result = index.filter(filter, 0, 10);
+
+        assertThat(result.getProductIds()).isEmpty();
+        assertThat(result.getTotalHits()).isZero();
+    }
+
+    @Test
+    void shouldPaginateResults() {
+        assertThat(index.filter(new ProductFilter(), 0, 3).getProductIds()).containsExactly(4L, 3L, 2L);
+        assertThat(index.filter(new ProductFilter(), 1, 3).getProductIds()).containsExactly(1L);
+        assertThat(index.filter(new ProductFilter(), 2, 3).getProductIds()).isEmpty();
+    }
+
+    @Test
+    void shouldReindexUpdatedProduct() {
+        laptop.setBrand("Lenovo");
+        laptop.setStockQuantity(0);
+        index.index(laptop);
+
+        ProductFacetIndex.FacetResult result = index.filter(new ProductFilter(), 0, 10);
+
+        assertThat(result.getBrands()).containsOnlyKeys("Apple", "Lenovo", "Samsonite");
+        assertThat(result.getInStock()).isEqualTo(2);
+        assertThat(index.filter(ProductFilter.builder().inStock(false).build(), 0, 10).getProductIds())
+                .containsExactly(2L, 1L);
+    }
+
+    @Test
+    void shouldRemoveDeactivatedProduct() {
+        charger.setActive(false);
+        index.index(charger);
+
+        ProductFacetIndex.FacetResult result = index.filter(
+                ProductFilter.builder().brands(List.of("Apple")).build(), 0, 10);
+
+        assertThat(result.getProductIds()).containsExactly(2L);
+        assertThat(result.getBrands()).containsEntry("Apple", 1L);
+    }
+
+    @Test
+    void shouldRebuildFromRepositoryInBatches() {
+        // Given
+        when(productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(laptopBag));
+
+        // When
+        index.rebuild();
+
+        // Then - l'indice contiene solo quello che c'è nel DB
+        ProductFacetIndex.FacetResult result = index.filter(new ProductFilter(), 0, 10);
+        assertThat(result.getProductIds()).containsExactly(3L);
+        assertThat(result.getBrands()).containsOnlyKeys("Samsonite");
+    }
+
+    private Product product(Long id, String brand, Category category, String price, int stock) {
+        return Product.builder()
+                .id(id)
+                .name("Prodotto " + id)
+                .brand(brand)
+                .category(category)
+                .price(Money.of(price))
+                .stockQuantity(stock)
+                .active(true)
+                .build();
+    }
+}
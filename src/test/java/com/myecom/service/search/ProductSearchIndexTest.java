@@ -0,0 +1,160 @@
+package com.myecom.service.search;
+
+import com.myecom.model.Product;
+import com.myecom.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test per l'indice invertito dei prodotti
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductSearchIndex index;
+
+    private Product laptop;
+    private Product smartphone;
+    private Product laptopBag;
+
+    @BeforeEach
+    void setUp() {
+        laptop = product(1L, "Laptop Dell XPS", "Dell", "High performance laptop");
+        smartphone = product(2L, "iPhone 15", "Apple", "Latest smartphone with great camera");
+        laptopBag = product(3L, "Borsa porta PC", "Samsonite", "Borsa per laptop fino a 15 pollici");
+
+        index.index(laptop);
+        index.index(smartphone);
+        index.index(laptopBag);
+    }
+
+    @Test
+    void shouldFindByNameToken() {
+        ProductSearchIndex.SearchHits hits = index.search("iphone", 0, 10);
+
+        assertThat(hits.getProductIds()).containsExactly(2L);
+        assertThat(hits.getTotalHits()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRankNameMatchesAboveDescriptionMatches() {
+        ProductSearchIndex.SearchHits hits = index.search("laptop", 0, 10);
+
+        // Il laptop ha "laptop" nel nome e nella descrizione, la borsa solo nella descrizione
+        assertThat(hits.getProductIds()).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void shouldMatchPrefixesAndIgnoreCaseAndAccents() {
+        assertThat(index.search("LAP", 0, 10).getProductIds()).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(index.search("sàmsonite", 0, 10).getProductIds()).containsExactly(3L);
+    }
+
+    @Test
+    void shouldRequireAllQueryTerms() {
+        assertThat(index.search("laptop dell", 0, 10).getProductIds()).containsExactly(1L);
+        assertThat(index.search("laptop apple", 0, 10).getTotalHits()).isZero();
+    }
+
+    @Test
+    void shouldPaginateResults() {
+        ProductSearchIndex.SearchHits firstPage = index.search("laptop", 0, 1);
+        ProductSearchIndex.SearchHits secondPage = index.search("laptop", 1, 1);
+        ProductSearchIndex.SearchHits outOfRange = index.search("laptop", 5, 1);
+
+        assertThat(firstPage.getProductIds()).containsExactly(1L);
+        assertThat(secondPage.getProductIds()).containsExactly(3L);
+        assertThat(outOfRange.getProductIds()).isEmpty();
+        assertThat(outOfRange.getTotalHits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReturnEmptyPageWhenOffsetOverflowsInt() {
+        // page * size supera Integer.MAX_VALUE: pagina vuota, non un offset negativo
+        ProductSearchIndex.SearchHits hits = index.search("laptop", Integer.MAX_VALUE, 100);
+
+        assertThat(hits.getProductIds()).isEmpty();
+        assertThat(hits.getTotalHits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldSeekAfterScoreAndId() {
+        ProductSearchIndex.SearchHits firstPage = index.search("laptop", 0, 1);
+        int lastScore = firstPage.getScores().get(0);
+        long lastId = firstPage.getProductIds().get(0);
+
+        ProductSearchIndex.SearchHits nextPage = index.searchAfter("laptop", lastScore, lastId, 1);
+        ProductSearchIndex.SearchHits afterLast = index.searchAfter("laptop",
+                nextPage.getScores().get(0), nextPage.getProductIds().get(0), 1);
+
+        assertThat(nextPage.getProductIds()).containsExactly(3L);
+        assertThat(afterLast.getProductIds()).isEmpty();
+    }
+
+    @Test
+    void shouldReindexUpdatedProduct() {
+        laptop.setName("Notebook Dell XPS");
+        laptop.setDescription("Ultrabook");
+        index.index(laptop);
+
+        assertThat(index.search("laptop", 0, 10).getProductIds()).containsExactly(3L);
+        assertThat(index.search("notebook", 0, 10).getProductIds()).containsExactly(1L);
+    }
+
+    @Test
+    void shouldRemoveDeactivatedProduct() {
+        smartphone.setActive(false);
+        index.index(smartphone);
+
+        assertThat(index.search("iphone", 0, 10).getTotalHits()).isZero();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReturnNothingForBlankQuery() {
+        assertThat(index.search("   ", 0, 10).getTotalHits()).isZero();
+        assertThat(index.search("!!!", 0, 10).getTotalHits()).isZero();
+    }
+
+    @Test
+    void shouldRebuildFromRepositoryInBatches() {
+        // Given
+        when(productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(smartphone));
+
+        // When
+        index.rebuild();
+
+        // Then - l'indice contiene solo quello che c'è nel DB
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("laptop", 0, 10).getTotalHits()).isZero();
+        assertThat(index.search("iphone", 0, 10).getProductIds()).containsExactly(2L);
+    }
+
+    private Product product(Long id, String name, String brand, String description) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .brand(brand)
+                .description(description)
+                .stockQuantity(10)
+                .active(true)
+                .build();
+    }
+}
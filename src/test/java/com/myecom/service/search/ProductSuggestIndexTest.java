@@ -0,0 +1,153 @@
+package com.myecom.service.search;
+
+import com.myecom.model.Product;
+import com.myecom.repository.ProductRepository;
+import com.myecom.service.ranking.ProductRankings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test per il trie dell'autocompletamento
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ProductSuggestIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductRankings productRankings;
+
+    @InjectMocks
+    private ProductSuggestIndex index;
+
+    private Product xps;
+    private Product latitude;
+    private Product macbook;
+
+    @BeforeEach
+    void setUp() {
+        when(productRankings.soldQuantity(anyLong())).thenReturn(0L);
+        when(productRankings.soldQuantity(2L)).thenReturn(50L);
+        when(productRankings.soldQuantity(3L)).thenReturn(10L);
+
+        xps = product(1L, "Laptop Dell XPS", "Dell");
+        latitude = product(2L, "Laptop Dell Latitude", "Dell");
+        macbook = product(3L, "MacBook Àir", "Apple");
+
+        index.index(xps);
+        index.index(latitude);
+        index.index(macbook);
+    }
+
+    @Test
+    void shouldSuggestByPrefixRankedByPopularity() {
+        assertThat(texts(index.suggest("lap", 10))).containsExactly("Laptop Dell Latitude", "Laptop Dell XPS");
+    }
+
+    @Test
+    void shouldMatchAnyWordOfTheName() {
+        assertThat(texts(index.suggest("xp", 10))).containsExactly("Laptop Dell XPS");
+        assertThat(texts(index.suggest("AIR", 10))).containsExactly("MacBook Àir");
+    }
+
+    @Test
+    void shouldSuggestBrandsWithSummedPopularity() {
+        List<ProductSuggestIndex.Suggestion> suggestions = index.suggest("d", 10);
+
+        // La marca Dell somma le vendite dei suoi prodotti (50 + 0)
+        assertThat(suggestions.get(0).getType()).isEqualTo(ProductSuggestIndex.TYPE_BRAND);
+        assertThat(suggestions.get(0).getText()).isEqualTo("Dell");
+        assertThat(suggestions.get(0).getScore()).isEqualTo(50L);
+        assertThat(suggestions.get(0).getProductId()).isNull();
+    }
+
+    @Test
+    void shouldLimitSuggestions() {
+        assertThat(index.suggest("laptop", 1)).hasSize(1);
+        assertThat(index.suggest("  ", 10)).isEmpty();
+        assertThat(index.suggest("zzz", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldReindexRenamedProductAndUpdatedPopularity() {
+        when(productRankings.soldQuantity(1L)).thenReturn(100L);
+        xps.setName("Notebook Dell XPS");
+        index.index(xps);
+
+        assertThat(texts(index.suggest("lap", 10))).containsExactly("Laptop Dell Latitude");
+        assertThat(texts(index.suggest("dell", 10))).containsExactly("Dell", "Notebook Dell XPS", "Laptop Dell Latitude");
+    }
+
+    @Test
+    void shouldUpdatePopularityInPlaceAfterSale() {
+        // Una vendita cambia solo la popolarità: XPS supera Latitude e il totale di Dell sale
+        when(productRankings.soldQuantity(1L)).thenReturn(70L);
+        index.index(xps);
+
+        assertThat(texts(index.suggest("lap", 10))).containsExactly("Laptop Dell XPS", "Laptop Dell Latitude");
+        assertThat(texts(index.suggest("dell", 10))).containsExactly("Dell", "Laptop Dell XPS", "Laptop Dell Latitude");
+        assertThat(index.suggest("dell", 10).get(0).getScore()).isEqualTo(120L);
+        assertThat(index.suggest("xps", 10).get(0).getScore()).isEqualTo(70L);
+
+        // Anche con la popolarità in calo (es. dopo una ricostruzione) l'ordine resta corretto
+        when(productRankings.soldQuantity(1L)).thenReturn(5L);
+        index.index(xps);
+
+        assertThat(texts(index.suggest("lap", 10))).containsExactly("Laptop Dell Latitude", "Laptop Dell XPS");
+        assertThat(index.suggest("dell", 10).get(0).getScore()).isEqualTo(55L);
+    }
+
+    @Test
+    void shouldRemoveDeactivatedProductAndEmptyBrand() {
+        macbook.setActive(false);
+        index.index(macbook);
+
+        assertThat(index.suggest("mac", 10)).isEmpty();
+        assertThat(index.suggest("apple", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldRebuildFromRepositoryInBatches() {
+        // Given
+        when(productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(macbook));
+
+        // When
+        index.rebuild();
+
+        // Then
+        assertThat(index.suggest("laptop", 10)).isEmpty();
+        assertThat(texts(index.suggest("mac", 10))).containsExactly("MacBook Àir");
+    }
+
+    private List<String> texts(List<ProductSuggestIndex.Suggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestIndex.Suggestion::getText).toList();
+    }
+
+    private Product product(Long id, String name, String brand) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .brand(brand)
+                .stockQuantity(10)
+                .active(true)
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package com.myecom.service.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test per le prenotazioni di stock con scadenza
+ */
+class StockReservationsTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private StockReservations reservations;
+
+    @BeforeEach
+    void setUp() {
+        reservations = new StockReservations();
+        ReflectionTestUtils.setField(reservations, "enabled", true);
+        ReflectionTestUtils.setField(reservations, "ttl", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(reservations, "tick", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(reservations, "wheelSlots", 64);
+        ReflectionTestUtils.setField(reservations, "stripeCount", 16);
+        ReflectionTestUtils.setField(reservations, "nanoClock", (LongSupplier) now::get);
+        ReflectionTestUtils.invokeMethod(reservations, "init");
+    }
+
+    @Test
+    void shouldHoldOnlyWhatOthersHaveNotReserved() {
+        // Given - stock 5, l'utente 1 ne tiene 3
+        assertThat(reservations.hold(1L, 10L, 3, 5)).isTrue();
+
+        // When & Then
+        assertThat(reservations.hold(2L, 10L, 3, 5)).isFalse();
+        assertThat(reservations.hold(2L, 10L, 2, 5)).isTrue();
+        assertThat(reservations.reserved(10L)).isEqualTo(5);
+        assertThat(reservations.reservedByOthers(10L, 1L)).isEqualTo(2);
+
+        // La propria prenotazione non conta contro se stessi
+        assertThat(reservations.hold(1L, 10L, 2, 5)).isTrue();
+        assertThat(reservations.reserved(10L)).isEqualTo(4);
+    }
+
+    @Test
+    void shouldRestorePreviousHoldsIgnoringStock() {
+        // Given - l'utente 1 passa da 2 a 4 pezzi, poi la scrittura del carrello fallisce
+        reservations.hold(1L, 10L, 2, 5);
+        reservations.hold(1L, 10L, 4, 5);
+        reservations.hold(1L, 20L, 1, 5);
+
+        // When
+        reservations.restore(1L, Map.of(10L, 2, 20L, 0));
+
+        // Then
+        assertThat(reservations.heldBy(1L, 10L)).isEqualTo(2);
+        assertThat(reservations.heldBy(1L, 20L)).isZero();
+        assertThat(reservations.reserved(10L)).isEqualTo(2);
+        assertThat(reservations.reserved(20L)).isZero();
+    }
+
+    @Test
+    void shouldReleaseHolds() {
+        reservations.hold(1L, 10L, 2, 5);
+        reservations.hold(1L, 20L, 1, 5);
+
+        reservations.release(1L, 10L);
+        assertThat(reservations.reserved(10L)).isZero();
+
+        reservations.releaseAll(1L);
+        assertThat(reservations.reserved(20L)).isZero();
+        assertThat(reservations.heldBy(1L, 20L)).isZero();
+    }
+
+    @Test
+    void shouldRestorePreviousHoldsWhenBatchFails() {
+        // Given
+        reservations.hold(1L, 10L, 1, 5);
+        reservations.hold(2L, 20L, 4, 5);
+
+        // When - il secondo prodotto non ha abbastanza stock
+        Long unavailable = reservations.holdAll(1L, Map.of(10L, 3, 20L, 2), Map.of(10L, 5, 20L, 5));
+
+        // Then
+        assertThat(unavailable).isEqualTo(20L);
+        assertThat(reservations.heldBy(1L, 10L)).isEqualTo(1);
+        assertThat(reservations.reserved(20L)).isEqualTo(4);
+    }
+
+    @Test
+    void shouldExpireHoldsNotRenewedWithinTtl() {
+        // Given
+        reservations.hold(1L, 10L, 2, 5);
+        reservations.hold(2L, 10L, 1, 5);
+
+        // When - l'utente 2 modifica il carrello dopo 10 minuti
+        advance(Duration.ofMinutes(10));
+        reservations.hold(2L, 10L, 2, 5);
+        advance(Duration.ofMinutes(6));
+
+        // Then - scade solo la prenotazione dell'utente 1 (la ruota ha 64 slot: più giri)
+        assertThat(reservations.heldBy(1L, 10L)).isZero();
+        assertThat(reservations.heldBy(2L, 10L)).isEqualTo(2);
+        assertThat(reservations.reserved(10L)).isEqualTo(2);
+
+        advance(Duration.ofMinutes(10));
+        assertThat(reservations.reserved(10L)).isZero();
+    }
+
+    @Test
+    void shouldNeverOversubscribeHotProductUnderConcurrency() throws Exception {
+        // Given - 2000 utenti che vogliono 1 pezzo ciascuno di un prodotto con stock 100
+        int users = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        try {
+            for (long userId = 1; userId <= users; userId++) {
+                long id = userId;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return reservations.hold(id, 10L, 1, 100);
+                }));
+            }
+
+            // When
+            start.countDown();
+            int held = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(10, TimeUnit.SECONDS)) {
+                    held++;
+                }
+            }
+
+            // Then
+            assertThat(held).isEqualTo(100);
+            assertThat(reservations.reserved(10L)).isEqualTo(100);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Porta avanti l'orologio un secondo alla volta, come lo scheduler
+    private void advance(Duration duration) {
+        for (long second = 0; second < duration.toSeconds(); second++) {
+            now.addAndGet(Duration.ofSeconds(1).toNanos());
+            reservations.expire();
+        }
+    }
+}
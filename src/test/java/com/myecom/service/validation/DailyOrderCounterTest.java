@@ -0,0 +1,101 @@
+package com.myecom.service.validation;
+
+import com.myecom.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test per i contatori giornalieri degli ordini
+ */
+@ExtendWith(MockitoExtension.class)
+class DailyOrderCounterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+    @Mock private OrderRepository orderRepository;
+
+    private DailyOrderCounter counter;
+    private final AtomicReference<LocalDate> today = new AtomicReference<>(DAY);
+
+    @BeforeEach
+    void setUp() {
+        counter = new DailyOrderCounter(orderRepository);
+        ReflectionTestUtils.setField(counter, "maxUsers", 100L);
+        ReflectionTestUtils.setField(counter, "idleEviction", Duration.ofHours(1));
+        ReflectionTestUtils.setField(counter, "today", (Supplier<LocalDate>) today::get);
+        ReflectionTestUtils.invokeMethod(counter, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldSeedFromDatabaseOnlyOnFirstUse() {
+        // Given
+        when(orderRepository.countUserOrdersInPeriod(1L, DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()))
+                .thenReturn(3L);
+
+        // When
+        counter.countToday(1L);
+        counter.recordOrder(1L);
+
+        // Then
+        assertThat(counter.countToday(1L)).isEqualTo(4);
+        verify(orderRepository, times(1)).countUserOrdersInPeriod(1L, DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay());
+    }
+
+    @Test
+    void shouldCountOrderOnlyAfterCommit() {
+        // Given
+        when(orderRepository.countUserOrdersInPeriod(
+                1L, DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay())).thenReturn(0L);
+        counter.countToday(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        counter.recordOrder(1L);
+
+        // Then - prima del commit non conta, dopo sì
+        assertThat(counter.countToday(1L)).isZero();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(counter.countToday(1L)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRollOverAtMidnight() {
+        // Given
+        LocalDate nextDay = DAY.plusDays(1);
+        when(orderRepository.countUserOrdersInPeriod(1L, DAY.atStartOfDay(), nextDay.atStartOfDay()))
+                .thenReturn(9L);
+        when(orderRepository.countUserOrdersInPeriod(1L, nextDay.atStartOfDay(), nextDay.plusDays(1).atStartOfDay()))
+                .thenReturn(0L);
+        assertThat(counter.countToday(1L)).isEqualTo(9);
+
+        // When
+        today.set(nextDay);
+
+        // Then
+        assertThat(counter.countToday(1L)).isZero();
+    }
+}
@@ -0,0 +1,193 @@
+package com.myecom.service.validation;
+
+import com.myecom.exception.BusinessException;
+import com.myecom.model.CartItem;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit test per la catena delle validazioni ordine
+ */
+class ValidatorChainTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+
+    private ValidatorChain chain;
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(chain, "shutdown");
+    }
+
+    @Test
+    void shouldRunEnabledValidatorsInOrderAndRecordMetrics() {
+        // Given
+        chain = chain(false,
+                new FakeValidator("Second", 20, false, null),
+                new FakeValidator("First", 10, false, null),
+                new FakeValidator("Disabled", 5, false, null).disabled());
+
+        // When
+        chain.validate(1L, List.of());
+
+        // Then
+        assertThat(executed).containsExactly("First", "Second");
+        assertThat(meterRegistry.get("orders.validation.result")
+                .tags("validator", "First", "result", "pass").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("orders.validation.duration")
+                .tag("validator", "Second").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRebuildChainWhenValidatorIsEnabledAgain() {
+        // Given
+        FakeValidator toggled = new FakeValidator("Toggled", 10, false, null).disabled();
+        chain = chain(false, toggled);
+        chain.validate(1L, List.of());
+
+        // When
+        toggled.enabled = true;
+        chain.validate(1L, List.of());
+
+        // Then
+        assertThat(executed).containsExactly("Toggled");
+    }
+
+    @Test
+    void shouldStopAtFirstFailureAndCountIt() {
+        // Given
+        chain = chain(false,
+                new FakeValidator("Ok", 1, false, null),
+                new FakeValidator("Fails", 2, false, new BusinessException("Primo errore")),
+                new FakeValidator("Never", 3, false, null));
+
+        // When & Then
+        assertThatThrownBy(() -> chain.validate(1L, List.of()))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Primo errore");
+        assertThat(executed).containsExactly("Ok", "Fails");
+        assertThat(meterRegistry.get("orders.validation.result")
+                .tags("validator", "Fails", "result", "fail").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldWrapUnexpectedErrorsWithValidatorName() {
+        // Given
+        chain = chain(false, new FakeValidator("Broken", 1, false, new IllegalStateException("boom")));
+
+        // When & Then
+        assertThatThrownBy(() -> chain.validate(1L, List.of()))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Errore interno durante la validazione dell'ordine: Broken");
+        assertThat(meterRegistry.get("orders.validation.result")
+                .tags("validator", "Broken", "result", "error").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void parallelChainShouldKeepFirstFailureWins() {
+        // Given - l'indipendente con ordine più basso fallisce, anche se il sequenziale dopo fallisce subito
+        chain = chain(true,
+                new FakeValidator("SlowIndependent", 1, true, new BusinessException("Errore indipendente"), 50),
+                new FakeValidator("Sequential", 2, false, new BusinessException("Errore sequenziale")));
+
+        // When & Then
+        assertThatThrownBy(() -> chain.validate(1L, List.of()))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Errore indipendente");
+        assertThat(executed).doesNotContain("Sequential");
+    }
+
+    @Test
+    void parallelChainShouldRunIndependentValidatorsOnPoolThreads() {
+        // Given
+        FakeValidator independent = new FakeValidator("Independent", 1, true, null);
+        chain = chain(true, independent, new FakeValidator("Sequential", 2, false, null));
+
+        // When
+        chain.validate(1L, List.of());
+
+        // Then
+        assertThat(executed).containsExactlyInAnyOrder("Independent", "Sequential");
+        assertThat(independent.thread).startsWith("order-validation-");
+    }
+
+    private ValidatorChain chain(boolean parallel, OrderValidator... validators) {
+        ValidatorChain validatorChain = new ValidatorChain(List.of(validators), meterRegistry);
+        ReflectionTestUtils.setField(validatorChain, "parallel", parallel);
+        ReflectionTestUtils.setField(validatorChain, "threads", 2);
+        ReflectionTestUtils.invokeMethod(validatorChain, "init");
+        return validatorChain;
+    }
+
+    private class FakeValidator implements OrderValidator {
+        private final String name;
+        private final int order;
+        private final boolean independent;
+        private final RuntimeException failure;
+        private final long delayMillis;
+        private volatile boolean enabled = true;
+        private volatile String thread;
+
+        FakeValidator(String name, int order, boolean independent, RuntimeException failure) {
+            this(name, order, independent, failure, 0);
+        }
+
+        FakeValidator(String name, int order, boolean independent, RuntimeException failure, long delayMillis) {
+            this.name = name;
+            this.order = order;
+            this.independent = independent;
+            this.failure = failure;
+            this.delayMillis = delayMillis;
+        }
+
+        FakeValidator disabled() {
+            enabled = false;
+            return this;
+        }
+
+        @Override
+        public void validate(Long userId, List<CartItem> cartItems) {
+            thread = Thread.currentThread().getName();
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            executed.add(name);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public boolean isIndependent() {
+            return independent;
+        }
+    }
+}